@@ -0,0 +1,249 @@
+package benchmark;
+
+import util.DateFormatter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generated SQLite databases for the benchmarks. A dataset is built once per message count from database/db.sql
+ * and kept in the data directory (default target/datasets, override with -Dteamflow.bench.dataDir),
+ * so later runs and forks reuse it. The file name holds a hash of the schema, so a changed schema gets a new dataset. The content is generated from a fixed seed, so every run sees the same data.
+ */
+public final class BenchmarkDataset {
+    // Shape of every dataset
+    public static final int USERS = 50;
+    public static final int SPRINTS = 26;
+    // Every TRELLO_EVERY-th message links a Trello card
+    public static final int TRELLO_EVERY = 20;
+
+    // Words the messages are made of, the first ones are the most common
+    static final String[] WORDS = {
+            "de", "het", "een", "en", "van", "ik", "je", "we", "is", "dat",
+            "sprint", "taak", "review", "standup", "bug", "fix", "deploy", "build", "test", "merge",
+            "backlog", "story", "points", "retro", "retrospective", "planning", "demo", "klant", "feature", "release",
+            "database", "query", "index", "scherm", "menu", "login", "gebruiker", "bericht", "zoeken", "trello",
+            "morgen", "vandaag", "gisteren", "klaar", "bezig", "blokkade", "hulp", "vraag", "antwoord", "overleg",
+            "refactor", "pull", "request", "branch", "main", "hotfix", "crash", "performance", "cache", "pagina"
+    };
+
+    private static final long SEED = 20240501L;
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 8, 9, 0);
+
+    private BenchmarkDataset() {
+    }
+
+    /**
+     * Returns the dataset with the given number of messages, generating it first if it does not exist yet.
+     *
+     * @param messages the number of messages in the dataset
+     * @return the path of the SQLite file
+     */
+    public static synchronized Path prepare(int messages) throws IOException, SQLException {
+        Path dataDir = Path.of(System.getProperty("teamflow.bench.dataDir", "target/datasets"));
+        String name = "teamflow-" + messages + "-" + Integer.toHexString(Files.readString(schemaPath()).hashCode());
+        Path file = dataDir.resolve(name + ".sqlite");
+        if (Files.exists(file)) {
+            return file;
+        }
+
+        Files.createDirectories(dataDir);
+        Path partial = dataDir.resolve(name + ".sqlite.partial");
+        Files.deleteIfExists(partial);
+
+        System.out.printf("Generating benchmark dataset with %d messages in %s%n", messages, file);
+        long start = System.nanoTime();
+        generate(partial, messages);
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Dataset generated in %.1f s%n", (System.nanoTime() - start) / 1e9);
+
+        return file;
+    }
+
+    /**
+     * Copies a dataset to a temporary file, for benchmarks that write and must not change the shared dataset.
+     *
+     * @return the path of the copy, delete it when done
+     */
+    public static Path copyOf(int messages) throws IOException, SQLException {
+        Path source = prepare(messages);
+        Path copy = Files.createTempFile(source.getParent(), "teamflow-" + messages + "-", ".sqlite");
+        Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    /**
+     * @return the username of the n-th generated user
+     */
+    public static String user(int n) {
+        return "gebruiker" + n;
+    }
+
+    /**
+     * Creates the tables from database/db.sql in an empty database (default database/db.sql,
+     * override with -Dteamflow.schema).
+     */
+    public static void createSchema(Connection conn) throws IOException, SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : splitScript(Files.readString(schemaPath()))) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    private static Path schemaPath() {
+        return Path.of(System.getProperty("teamflow.schema", "database/db.sql"));
+    }
+
+    /**
+     * Splits an SQL script into statements on the semicolons that end a line,
+     * keeping trigger bodies (BEGIN ... END;) together.
+     */
+    static List<String> splitScript(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inTrigger = false;
+
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+
+            current.append(line).append('\n');
+
+            if (trimmed.toUpperCase().startsWith("CREATE TRIGGER")) {
+                inTrigger = true;
+            }
+
+            boolean endOfStatement = inTrigger ? trimmed.equalsIgnoreCase("END;") : trimmed.endsWith(";");
+            if (endOfStatement) {
+                statements.add(current.toString());
+                current.setLength(0);
+                inTrigger = false;
+            }
+        }
+
+        return statements;
+    }
+
+    private static void generate(Path file, int messages) throws IOException, SQLException {
+        SplittableRandom random = new SplittableRandom(SEED);
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file)) {
+            try (Statement stmt = conn.createStatement()) {
+                // Nothing to recover from while generating, the file is only used once it is complete
+                stmt.execute("PRAGMA journal_mode = OFF");
+                stmt.execute("PRAGMA synchronous = OFF");
+            }
+
+            createSchema(conn);
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO GEBRUIKER (gebruikersnaam, weergavenaam) VALUES (?, ?)")) {
+                for (int i = 1; i <= USERS; i++) {
+                    stmt.setString(1, user(i));
+                    stmt.setString(2, "Gebruiker " + i);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO SPRINT (sprintNummer, beginDatum, eindDatum) VALUES (?, ?, ?)")) {
+                LocalDate begin = START.toLocalDate();
+                for (int i = 1; i <= SPRINTS; i++) {
+                    stmt.setInt(1, i);
+                    stmt.setDate(2, java.sql.Date.valueOf(begin));
+                    stmt.setDate(3, java.sql.Date.valueOf(begin.plusDays(13)));
+                    stmt.addBatch();
+                    begin = begin.plusDays(14);
+                }
+                stmt.executeBatch();
+            }
+
+            // Spread the messages evenly over the sprints, in increasing time order like real chat history
+            long secondsPerMessage = Math.max(1, (SPRINTS * 14L * 24 * 3600) / messages);
+
+            try (PreparedStatement bericht = conn.prepareStatement("INSERT INTO BERICHT (berichtID, inhoud, tijdstip, afzender, sprintNummer) VALUES (?, ?, ?, ?, ?)");
+                 PreparedStatement trello = conn.prepareStatement("INSERT INTO TRELLO (trelloID, berichtID, trelloURL) VALUES (?, ?, ?)");
+                 PreparedStatement taak = conn.prepareStatement("INSERT INTO TAAK (berichtID, trelloID, beschrijving) VALUES (?, ?, ?)")) {
+
+                int trelloID = 0;
+                for (int id = 1; id <= messages; id++) {
+                    LocalDateTime tijdstip = START.plusSeconds(secondsPerMessage * (id - 1));
+                    int sprint = (int) Math.min(SPRINTS, 1 + (secondsPerMessage * (id - 1)) / (14L * 24 * 3600));
+
+                    bericht.setInt(1, id);
+                    bericht.setString(2, sentence(random));
+                    DateFormatter.setTimestamp(bericht, 3, tijdstip);
+                    bericht.setString(4, user(1 + random.nextInt(USERS)));
+                    bericht.setInt(5, sprint);
+                    bericht.addBatch();
+
+                    if (id % TRELLO_EVERY == 0) {
+                        trelloID++;
+                        trello.setInt(1, trelloID);
+                        trello.setInt(2, id);
+                        trello.setString(3, "https://trello.com/c/" + Integer.toString(trelloID, 36) + "/kaart-" + trelloID);
+                        trello.addBatch();
+
+                        taak.setInt(1, id);
+                        taak.setInt(2, trelloID);
+                        taak.setString(3, "Taak " + trelloID);
+                        taak.addBatch();
+                    }
+
+                    if (id % 10_000 == 0 || id == messages) {
+                        bericht.executeBatch();
+                        trello.executeBatch();
+                        taak.executeBatch();
+                    }
+                }
+            }
+
+            conn.commit();
+            conn.setAutoCommit(true);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE");
+            }
+        }
+    }
+
+    /**
+     * @return a message of 4 to 20 words, common words are picked more often
+     */
+    static String sentence(SplittableRandom random) {
+        int words = 4 + random.nextInt(17);
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+
+            // Squaring a uniform number favours the start of the word list
+            double r = random.nextDouble();
+            if (r < 0.05) {
+                // A long tail of rare words, like names and ticket numbers
+                sb.append("w").append(random.nextInt(50_000));
+            } else {
+                sb.append(WORDS[(int) (r * r * WORDS.length)]);
+            }
+        }
+
+        return sb.toString();
+    }
+}
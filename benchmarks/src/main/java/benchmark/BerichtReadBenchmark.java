@@ -0,0 +1,100 @@
+package benchmark;
+
+import database.Database;
+import database.model.Bericht;
+import database.model.Trello;
+import database.search.BerichtIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of the model layer against the generated datasets.
+ * Every dataset size runs in its own fork, because the Database singleton reads its URL once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BerichtReadBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + BenchmarkDataset.prepare(messages));
+
+        // Build the in-memory search index up front, it is not part of a single search
+        BerichtIndex.getInstance().ensureLoaded();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public Bericht lookup() {
+        return Bericht.lookup(1 + ThreadLocalRandom.current().nextInt(messages));
+    }
+
+    @Benchmark
+    public Trello trelloLookupByBerichtID() {
+        // Only every TRELLO_EVERY-th message has a card, pick one of those
+        int cards = messages / BenchmarkDataset.TRELLO_EVERY;
+        return Trello.lookupByBerichtID(BenchmarkDataset.TRELLO_EVERY * (1 + ThreadLocalRandom.current().nextInt(cards)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Bericht> getBySprint() {
+        return Bericht.getBySprint(1 + ThreadLocalRandom.current().nextInt(BenchmarkDataset.SPRINTS));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Bericht> getByAfzender() {
+        return Bericht.getByAfzender(BenchmarkDataset.user(1 + ThreadLocalRandom.current().nextInt(BenchmarkDataset.USERS)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Bericht> getAll() {
+        return Bericht.getAll();
+    }
+
+    @Benchmark
+    public List<Bericht> searchIndex() {
+        return BerichtIndex.getInstance().search(searchTerm(), 0, null, 50);
+    }
+
+    @Benchmark
+    public List<Bericht> searchFts() {
+        return Bericht.search(searchTerm(), 50);
+    }
+
+    /**
+     * @return a two-word query, mixing common words with the rarer ones further down the word list
+     */
+    private static String searchTerm() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] words = BenchmarkDataset.WORDS;
+        return words[10 + random.nextInt(words.length - 10)] + " " + words[random.nextInt(words.length)];
+    }
+}
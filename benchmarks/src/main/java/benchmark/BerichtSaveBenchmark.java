@@ -0,0 +1,73 @@
+package benchmark;
+
+import database.Database;
+import database.model.Bericht;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bericht.save against a private copy of the generated datasets, so the shared dataset stays unchanged.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BerichtSaveBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int messages;
+
+    private Path copy;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        copy = BenchmarkDataset.copyOf(messages);
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + copy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Database.getInstance().closeConnection();
+        Files.deleteIfExists(copy);
+        Files.deleteIfExists(Path.of(copy + "-wal"));
+        Files.deleteIfExists(Path.of(copy + "-shm"));
+    }
+
+    @Benchmark
+    public int saveNew() throws SQLException {
+        Bericht bericht = new Bericht(0, BenchmarkDataset.sentence(random), LocalDateTime.now(),
+                BenchmarkDataset.user(1 + random.nextInt(BenchmarkDataset.USERS)), BenchmarkDataset.SPRINTS);
+        bericht.save();
+        return bericht.getBerichtID();
+    }
+
+    @Benchmark
+    public int saveExisting() throws SQLException {
+        int id = 1 + ThreadLocalRandom.current().nextInt(messages);
+        Bericht bericht = new Bericht(id, BenchmarkDataset.sentence(random), LocalDateTime.now(),
+                BenchmarkDataset.user(1 + random.nextInt(BenchmarkDataset.USERS)), BenchmarkDataset.SPRINTS);
+        bericht.save();
+        return bericht.getBerichtID();
+    }
+}
@@ -0,0 +1,144 @@
+package benchmark;
+
+import database.Database;
+import database.analytics.BerichtSnapshot;
+import database.model.Bericht;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The columnar BerichtSnapshot against a List of Bericht from getAll: loading the history,
+ * a refresh without new messages, and the scans a report runs over it.
+ * Run SnapshotFootprint for the heap each of them holds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BerichtSnapshotBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int messages;
+
+    private BerichtSnapshot snapshot;
+    private List<Bericht> list;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + BenchmarkDataset.prepare(messages));
+        snapshot = BerichtSnapshot.load();
+        list = Bericht.getAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public BerichtSnapshot loadSnapshot() throws SQLException {
+        return BerichtSnapshot.load();
+    }
+
+    @Benchmark
+    public List<Bericht> loadList() {
+        return Bericht.getAll();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int refreshUnchanged() throws SQLException {
+        return snapshot.refresh();
+    }
+
+    @Benchmark
+    public SortedMap<Integer, Integer> countPerSprintSnapshot() {
+        return snapshot.countPerSprint();
+    }
+
+    @Benchmark
+    public SortedMap<Integer, Integer> countPerSprintList() {
+        SortedMap<Integer, Integer> perSprint = new TreeMap<>();
+        for (Bericht bericht : list) {
+            perSprint.merge(bericht.getSprintNummer(), 1, Integer::sum);
+        }
+        return perSprint;
+    }
+
+    @Benchmark
+    public Map<String, Integer> countPerAfzenderSnapshot() {
+        return snapshot.countPerAfzender(0);
+    }
+
+    @Benchmark
+    public Map<String, Integer> countPerAfzenderList() {
+        Map<String, Integer> perAfzender = new TreeMap<>();
+        for (Bericht bericht : list) {
+            perAfzender.merge(bericht.getAfzender(), 1, Integer::sum);
+        }
+        return perAfzender;
+    }
+
+    @Benchmark
+    public int[] selectSnapshot() {
+        return snapshot.select(randomSprint(), randomUser(), null, null);
+    }
+
+    @Benchmark
+    public List<Bericht> selectList() {
+        int sprint = randomSprint();
+        String user = randomUser();
+        List<Bericht> selected = new ArrayList<>();
+        for (Bericht bericht : list) {
+            if (bericht.getSprintNummer() == sprint && bericht.getAfzender().equals(user)) {
+                selected.add(bericht);
+            }
+        }
+        return selected;
+    }
+
+    @Benchmark
+    public int[] containsSnapshot() {
+        return snapshot.rowsContaining("retro");
+    }
+
+    @Benchmark
+    public int containsList() {
+        int count = 0;
+        for (Bericht bericht : list) {
+            if (bericht.getInhoud().contains("retro")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int randomSprint() {
+        return 1 + ThreadLocalRandom.current().nextInt(BenchmarkDataset.SPRINTS);
+    }
+
+    private static String randomUser() {
+        return BenchmarkDataset.user(1 + ThreadLocalRandom.current().nextInt(BenchmarkDataset.USERS));
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.AllowedValues;
+import util.CLI;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating one line of console input: the regexes and list scan CLI used before against
+ * the character-class checks and hashed allowed values it uses now. Run with -prof gc to see the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputValidationBenchmark {
+    private static final String[] MENU = {"0", "1", "2", "3"};
+    private static final AllowedValues MENU_VALUES = AllowedValues.of(MENU);
+
+    @Param({"pietjansen42", "Piet Jansen de Vries", "12345", "bad input!"})
+    public String input;
+
+    @Benchmark
+    public boolean alphanumericRegex() {
+        return input.matches("^[a-zA-Z0-9]+$");
+    }
+
+    @Benchmark
+    public boolean alphanumericCharClass() {
+        return CLI.SanitizationType.Alphanumeric.isValid(input);
+    }
+
+    @Benchmark
+    public boolean alphanumericWithSpacesRegex() {
+        return input.matches("^[a-zA-Z0-9\\s]+$");
+    }
+
+    @Benchmark
+    public boolean alphanumericWithSpacesCharClass() {
+        return CLI.SanitizationType.AlphanumericWithSpaces.isValid(input);
+    }
+
+    @Benchmark
+    public boolean positiveNumberRegex() {
+        return input.matches("^\\d+$") && Integer.parseInt(input) >= 0;
+    }
+
+    @Benchmark
+    public boolean positiveNumberCharClass() {
+        return CLI.SanitizationType.PositiveNumber.isValid(input);
+    }
+
+    @Benchmark
+    public boolean allowedValuesList() {
+        return Arrays.asList(MENU).contains(input);
+    }
+
+    @Benchmark
+    public boolean allowedValuesSet() {
+        return MENU_VALUES.contains(input);
+    }
+}
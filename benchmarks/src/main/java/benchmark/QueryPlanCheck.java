@@ -0,0 +1,219 @@
+package benchmark;
+
+import database.Database;
+import database.analytics.BerichtSnapshot;
+import database.analytics.SprintAnalytics;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Query plan regression check. Runs every method of the model API against a copy of a dataset, collects the SQL
+ * of the statements they prepared from the statement caches of the pool, adds the statements in the trigger bodies
+ * of database/db.sql, and runs EXPLAIN QUERY PLAN on each of them.
+ * <p>
+ * A statement fails the check when its plan sorts or groups in a temporary B-tree, or when it has a WHERE clause
+ * and still scans a whole table. Statements without a WHERE clause are allowed to scan: they read a whole table
+ * on purpose (the getAll methods, the analytics) or walk an index in order up to their LIMIT.
+ * Statements run on a plain Statement are not cached and not checked, that is only the full rebuild in
+ * {@link Sprint#rebuildStats()}, which reads every message anyway.
+ * <p>
+ * Exits with status 1 when a statement fails, mvn -B -pl benchmarks verify runs it after packaging the benchmarks.
+ * Run it by hand with {@code java -cp benchmarks/target/benchmarks.jar benchmark.QueryPlanCheck [messages]}.
+ */
+public final class QueryPlanCheck {
+    // Trigger bodies refer to the changed row as new.x and old.x, in a plain statement those become parameters
+    private static final Pattern ROW_REFERENCE = Pattern.compile("\\b(?:new|old)\\.\\w+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WHERE = Pattern.compile("\\bWHERE\\b", Pattern.CASE_INSENSITIVE);
+
+    private QueryPlanCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        // Large enough that no statement is evicted before it is collected
+        System.setProperty("teamflow.db.statementCacheSize", "256");
+
+        Path copy = BenchmarkDataset.copyOf(messages);
+        // SQL text and where it comes from
+        Map<String, String> statements = new LinkedHashMap<>();
+        int failures;
+        try {
+            System.setProperty("teamflow.db.url", "jdbc:sqlite:" + copy);
+
+            try {
+                exerciseModel();
+                for (String sql : Database.getInstance().getPool().getCachedSql()) {
+                    statements.put(sql, "model");
+                }
+            } finally {
+                Database.getInstance().closeConnection();
+            }
+
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + copy)) {
+                statements.putAll(triggerStatements(conn));
+                failures = check(conn, statements);
+            }
+        } finally {
+            Files.deleteIfExists(copy);
+            Files.deleteIfExists(Path.of(copy + "-wal"));
+            Files.deleteIfExists(Path.of(copy + "-shm"));
+        }
+
+        System.out.printf("%n%d statements checked, %d with a full scan or temp B-tree%n", statements.size(), failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Calls every read and write method of the model classes once, so their statements end up in the statement caches.
+     */
+    private static void exerciseModel() throws SQLException {
+        String user = BenchmarkDataset.user(1);
+
+        Bericht.exists(1);
+        Bericht.lookup(1);
+        Bericht.getAll();
+        Bericht.stream(50).limit(120).count();
+        Bericht.search("sprint", 10);
+        Bericht.search("sprint sprint:1 van:" + user, 10);
+        Bericht.search("sprint:1", 10);
+        Bericht.search("van:" + user, 10);
+        Bericht.search("sprint:1 van:" + user, 10);
+        Bericht.getByAfzender(user);
+        Bericht.getBySprint(1);
+
+        Taak.exists(BenchmarkDataset.TRELLO_EVERY);
+        Taak.lookup(BenchmarkDataset.TRELLO_EVERY);
+        Taak.getAll();
+        Taak.getByTrelloID(1);
+
+        Trello.exists(1);
+        Trello.lookup(1);
+        Trello.lookupByBerichtID(BenchmarkDataset.TRELLO_EVERY);
+        Trello.getAll();
+
+        Gebruiker.exists(user);
+        Gebruiker.lookup(user);
+        Gebruiker.getAll();
+
+        Sprint.exists(1);
+        Sprint.lookup(1);
+        Sprint.getAll();
+        Sprint.getStats(1);
+
+        new SprintAnalytics().compute();
+        BerichtSnapshot.load().refresh();
+
+        // Writes, each one on its own rows so they can be removed again
+        Gebruiker gebruiker = new Gebruiker("queryplan", "Query Plan");
+        gebruiker.save();
+        Sprint sprint = new Sprint(BenchmarkDataset.SPRINTS + 1, LocalDate.now(), LocalDate.now().plusDays(13));
+        sprint.save();
+
+        Bericht bericht = new Bericht(0, "query plan check", LocalDateTime.now(), gebruiker.getGebruikersnaam(), sprint.getSprintNummer());
+        bericht.save();
+        bericht.save();
+        List<Bericht> batch = new ArrayList<>();
+        batch.add(new Bericht(0, "query plan check batch", LocalDateTime.now(), gebruiker.getGebruikersnaam(), sprint.getSprintNummer()));
+        Bericht.saveAll(batch);
+
+        Trello trello = new Trello(0, bericht.getBerichtID(), "https://trello.com/c/queryplan");
+        trello.save();
+        trello.save();
+        Trello.saveAll(List.of(new Trello(0, batch.get(0).getBerichtID(), "https://trello.com/c/queryplan2")));
+
+        Taak taak = new Taak(bericht.getBerichtID(), trello.getTrelloID(), "query plan check");
+        taak.save();
+        Taak.saveAll(List.of(new Taak(batch.get(0).getBerichtID(), trello.getTrelloID(), "query plan check batch")));
+
+        taak.delete();
+        trello.delete();
+        bericht.delete();
+        sprint.delete();
+        gebruiker.delete();
+
+        Sprint.rebuildStats();
+    }
+
+    /**
+     * EXPLAIN QUERY PLAN on a statement that fires a trigger does not show the statements of the trigger,
+     * so those are checked on their own.
+     */
+    private static Map<String, String> triggerStatements(Connection conn) throws SQLException {
+        Map<String, String> statements = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name, sql FROM sqlite_master WHERE type = 'trigger' ORDER BY name")) {
+            while (rs.next()) {
+                String sql = rs.getString("sql");
+                int begin = sql.toUpperCase().indexOf("BEGIN");
+                int end = sql.toUpperCase().lastIndexOf("END");
+                for (String body : sql.substring(begin + "BEGIN".length(), end).split(";")) {
+                    if (!body.isBlank()) {
+                        statements.put(ROW_REFERENCE.matcher(body.strip()).replaceAll("?"), rs.getString("name"));
+                    }
+                }
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * Prints the plan of every statement and returns the number of statements whose plan fails the check.
+     */
+    private static int check(Connection conn, Map<String, String> statements) throws SQLException {
+        int failures = 0;
+        for (Map.Entry<String, String> entry : statements.entrySet()) {
+            String sql = entry.getKey();
+            boolean filters = WHERE.matcher(sql).find();
+            List<String> problems = new ArrayList<>();
+            List<String> plan = new ArrayList<>();
+
+            try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+                // The plan does not depend on the values, but every parameter has to be bound
+                for (int i = 1; i <= stmt.getParameterMetaData().getParameterCount(); i++) {
+                    stmt.setNull(i, java.sql.Types.NULL);
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        String detail = rs.getString("detail");
+                        plan.add(detail);
+                        if (detail.contains("USE TEMP B-TREE")) {
+                            problems.add(detail);
+                        } else if (filters && detail.startsWith("SCAN ")
+                                && !detail.contains("VIRTUAL TABLE") && !detail.equals("SCAN CONSTANT ROW")) {
+                            problems.add(detail);
+                        }
+                    }
+                }
+            }
+
+            System.out.printf("%n[%s] %s%n", entry.getValue(), sql.replaceAll("\\s+", " "));
+            for (String detail : plan) {
+                System.out.printf("    %s%s%n", problems.contains(detail) ? "FAIL " : "", detail);
+            }
+            if (!problems.isEmpty()) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,155 @@
+package benchmark;
+
+import database.Database;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Compares the old two-query paths (exists + select, exists + update/insert) with the
+ * single-query lookup and upsert paths of the model classes.
+ * Runs against a fresh temporary database so the real database is never touched.
+ *
+ * Usage: java benchmark.RoundTripBenchmark [messages] [operations]
+ */
+public class RoundTripBenchmark {
+    private static final String SELECT_SQL = "SELECT berichtID, inhoud, tijdstip, afzender, sprintNummer FROM BERICHT WHERE berichtID = ?";
+    private static final String EXISTS_SQL = "SELECT COUNT(*) FROM BERICHT WHERE berichtID = ?";
+    private static final String UPDATE_SQL = "UPDATE BERICHT SET inhoud = ?, tijdstip = ?, afzender = ?, sprintNummer = ? WHERE berichtID = ?";
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        // Point the Database singleton at a temporary copy of the schema before it is first used
+        Path dbFile = Files.createTempFile("teamflow-bench", ".sqlite");
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + dbFile);
+        createSchema();
+        seed(messages);
+
+        System.out.printf("Round trip benchmark: %d messages, %d operations per run%n", messages, operations);
+
+        // Warm up both paths so the JIT and statement caches are settled
+        runLookupTwoQueries(messages, operations);
+        runLookupSingleQuery(messages, operations);
+
+        report("lookup   exists + select (before)", runLookupTwoQueries(messages, operations), operations);
+        report("lookup   single select   (after) ", runLookupSingleQuery(messages, operations), operations);
+
+        int saves = Math.max(1, operations / 10);
+        report("save     exists + update (before)", runSaveTwoQueries(messages, saves), saves);
+        report("save     upsert          (after) ", runSaveUpsert(messages, saves), saves);
+
+        System.out.println(Database.getInstance().getPool());
+        Database.getInstance().closeConnection();
+        Files.deleteIfExists(dbFile);
+    }
+
+    private static long runLookupTwoQueries(int messages, int operations) throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int id = 1 + (i % messages);
+            Connection conn = Database.getInstance().getReadConnection();
+            try {
+                if (count(conn, id) > 0) {
+                    PreparedStatement stmt = Database.getInstance().prepareStatement(conn, SELECT_SQL);
+                    stmt.setInt(1, id);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                    }
+                }
+            } finally {
+                Database.getInstance().releaseConnection(conn);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runLookupSingleQuery(int messages, int operations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            Bericht.lookup(1 + (i % messages));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runSaveTwoQueries(int messages, int operations) throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int id = 1 + (i % messages);
+            Connection conn = Database.getInstance().getWriteConnection();
+            try {
+                if (count(conn, id) > 0) {
+                    PreparedStatement stmt = Database.getInstance().prepareStatement(conn, UPDATE_SQL);
+                    stmt.setString(1, "bijgewerkt bericht " + i);
+                    stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                    stmt.setString(3, "bench");
+                    stmt.setInt(4, 1);
+                    stmt.setInt(5, id);
+                    stmt.executeUpdate();
+                }
+            } finally {
+                Database.getInstance().releaseConnection(conn);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runSaveUpsert(int messages, int operations) throws SQLException {
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            int id = 1 + (i % messages);
+            new Bericht(id, "bijgewerkt bericht " + i, LocalDateTime.now(), "bench", 1).save();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int count(Connection conn, int id) throws SQLException {
+        PreparedStatement stmt = Database.getInstance().prepareStatement(conn, EXISTS_SQL);
+        stmt.setInt(1, id);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void createSchema() throws SQLException, IOException {
+        Connection conn = Database.getInstance().getWriteConnection();
+        try {
+            BenchmarkDataset.createSchema(conn);
+        } finally {
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    private static void seed(int messages) throws SQLException {
+        new Gebruiker("bench", "Benchmark").save();
+        new Sprint(1, LocalDate.now(), LocalDate.now().plusDays(14)).save();
+
+        Connection conn = Database.getInstance().getWriteConnection();
+        try {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < messages; i++) {
+                new Bericht(0, "bericht " + i, LocalDateTime.now(), "bench", 1).save();
+            }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    private static void report(String name, long nanos, int operations) {
+        System.out.printf("%s  %10.2f us/op  %12.0f ops/s%n", name, nanos / 1000.0 / operations, operations / (nanos / 1e9));
+    }
+}
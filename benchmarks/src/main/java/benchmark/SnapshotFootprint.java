@@ -0,0 +1,56 @@
+package benchmark;
+
+import database.Database;
+import database.analytics.BerichtSnapshot;
+import database.model.Bericht;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+
+/**
+ * Heap held per message by the object model (a List of Bericht from getAll) and by the columnar BerichtSnapshot,
+ * measured as the growth of the used heap after a full GC, next to the snapshot's own estimate.
+ * Run with {@code java -cp benchmarks/target/benchmarks.jar benchmark.SnapshotFootprint [messages]},
+ * give it a heap that fits the list, e.g. -Xmx2g for 1M messages.
+ */
+public final class SnapshotFootprint {
+    private SnapshotFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        // One dataset per run, the Database singleton reads its URL once
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + BenchmarkDataset.prepare(messages));
+        try {
+            // Warm up the pool and the statement caches, so they are not counted
+            Bericht.getAll();
+            BerichtSnapshot.load();
+
+            long before = usedHeap();
+            List<Bericht> list = Bericht.getAll();
+            long listBytes = usedHeap() - before;
+            int size = list.size();
+            list = null;
+
+            before = usedHeap();
+            BerichtSnapshot snapshot = BerichtSnapshot.load();
+            long snapshotBytes = usedHeap() - before;
+
+            System.out.printf("%10s %16s %16s %16s%n", "messages", "list B/msg", "snapshot B/msg", "estimate B/msg");
+            System.out.printf("%10d %16.1f %16.1f %16.1f%n", size, listBytes / (double) size,
+                    snapshotBytes / (double) snapshot.size(), snapshot.getBytesPerMessage());
+        } finally {
+            Database.getInstance().closeConnection();
+        }
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,79 @@
+package benchmark;
+
+import database.Database;
+import database.analytics.SprintAnalytics;
+import database.model.Bericht;
+import database.model.Taak;
+import database.model.Trello;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The retrospective numbers of every sprint: SprintAnalytics, which reads the history once and counts in parallel,
+ * against the model API, a getBySprint per sprint and a Taak and Trello lookup per message.
+ * The lookups take over ten seconds per run on the 1M dataset, leave them out with -e perEntityLookups for quick runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SprintAnalyticsBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + BenchmarkDataset.prepare(messages));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public SprintAnalytics.Report analytics() throws SQLException {
+        return new SprintAnalytics().compute();
+    }
+
+    @Benchmark
+    public Map<Long, Integer> perEntityLookups() {
+        // Messages per (sprint, day) and (sprint, user), and tasks per (sprint, card)
+        Map<Long, Integer> counts = new HashMap<>();
+        for (int sprint = 1; sprint <= BenchmarkDataset.SPRINTS; sprint++) {
+            for (Bericht bericht : Bericht.getBySprint(sprint)) {
+                LocalDate dag = bericht.getTijdstip().toLocalDate();
+                counts.merge(((long) sprint << 32) | dag.toEpochDay(), 1, Integer::sum);
+                counts.merge(((long) sprint << 40) | bericht.getAfzender().hashCode(), 1, Integer::sum);
+
+                Taak taak = Taak.lookup(bericht.getBerichtID());
+                if (taak != null) {
+                    Trello trello = Trello.lookup(taak.getTrelloID());
+                    if (trello != null) {
+                        counts.merge(((long) sprint << 48) | trello.getTrelloID(), 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+}
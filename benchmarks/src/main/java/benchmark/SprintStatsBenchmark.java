@@ -0,0 +1,77 @@
+package benchmark;
+
+import database.Database;
+import database.model.Bericht;
+import database.model.Sprint;
+import database.model.SprintStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The numbers of a sprint: read from SPRINT_STATS against loading the messages of the sprint and counting in Java,
+ * which is what it took before the statistics table. The scan leaves out the tasks, which would cost a query per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SprintStatsBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int messages;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + BenchmarkDataset.prepare(messages));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    @Benchmark
+    public SprintStats getStats() {
+        return Sprint.getStats(1 + ThreadLocalRandom.current().nextInt(BenchmarkDataset.SPRINTS));
+    }
+
+    @Benchmark
+    public SprintStats scanBySprint() {
+        int sprint = 1 + ThreadLocalRandom.current().nextInt(BenchmarkDataset.SPRINTS);
+        List<Bericht> berichten = Bericht.getBySprint(sprint);
+
+        Set<String> afzenders = new HashSet<>();
+        LocalDateTime eerste = null;
+        LocalDateTime laatste = null;
+        for (Bericht b : berichten) {
+            afzenders.add(b.getAfzender());
+            if (eerste == null || b.getTijdstip().isBefore(eerste)) {
+                eerste = b.getTijdstip();
+            }
+            if (laatste == null || b.getTijdstip().isAfter(laatste)) {
+                laatste = b.getTijdstip();
+            }
+        }
+
+        return new SprintStats(sprint, berichten.size(), afzenders.size(), 0, eerste, laatste);
+    }
+}
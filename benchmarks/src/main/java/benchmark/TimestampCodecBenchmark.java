@@ -0,0 +1,136 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import util.DateFormatter;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The timestamp path of the models and the screen: java.sql.Timestamp and DateTimeFormatter
+ * against DateFormatter. The row benchmarks read 10k timestamps from an in-memory SQLite table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimestampCodecBenchmark {
+    private static final int ROWS = 10_000;
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private Connection conn;
+    private PreparedStatement select;
+    private LocalDateTime[] values;
+    private long[] millis;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        values = new LocalDateTime[ROWS];
+        millis = new long[ROWS];
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < ROWS; i++) {
+            // A message every 37 seconds, like a busy chat
+            values[i] = start.plusSeconds(37L * i);
+            millis[i] = Timestamp.valueOf(values[i]).getTime();
+        }
+
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE T (tijdstip DATETIME NOT NULL)");
+        }
+        conn.setAutoCommit(false);
+        try (PreparedStatement insert = conn.prepareStatement("INSERT INTO T (tijdstip) VALUES (?)")) {
+            for (LocalDateTime value : values) {
+                insert.setTimestamp(1, Timestamp.valueOf(value));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        conn.commit();
+        select = conn.prepareStatement("SELECT tijdstip FROM T");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        select.close();
+        conn.close();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % ROWS;
+        return next;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void readRowsTimestamp(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(rs.getTimestamp("tijdstip").toLocalDateTime());
+            }
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void readRowsCodec(Blackhole blackhole) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                blackhole.consume(DateFormatter.getTimestamp(rs, "tijdstip"));
+            }
+        }
+    }
+
+    @Benchmark
+    public LocalDateTime decodeTimestamp() {
+        return new Timestamp(millis[nextIndex()]).toLocalDateTime();
+    }
+
+    @Benchmark
+    public LocalDateTime decodeCodec() {
+        return DateFormatter.fromEpochMillis(millis[nextIndex()]);
+    }
+
+    @Benchmark
+    public long encodeTimestamp() {
+        return Timestamp.valueOf(values[nextIndex()]).getTime();
+    }
+
+    @Benchmark
+    public long encodeCodec() {
+        return DateFormatter.toEpochMillis(values[nextIndex()]);
+    }
+
+    @Benchmark
+    public String displayFormatter() {
+        return values[nextIndex()].format(DATE_TIME_FORMATTER);
+    }
+
+    @Benchmark
+    public String displayCodec() {
+        return DateFormatter.formatDisplay(values[nextIndex()]);
+    }
+}
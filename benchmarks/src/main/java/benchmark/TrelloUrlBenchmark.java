@@ -0,0 +1,104 @@
+package benchmark;
+
+import database.Database;
+import database.model.Trello;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.TrelloUrlValidator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Trello links: canonicalizing one with a regex against the single-pass TrelloUrlValidator,
+ * and refusing a link that is already taken with a failing INSERT against the in-memory check of Trello.save.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrelloUrlBenchmark {
+    private static final Pattern TRELLO_URL = Pattern.compile(
+            "^(?:https?://)?(?:www\\.)?trello\\.com/([bc])/([A-Za-z0-9]{1,24})(?:[/?#]\\S*)?$", Pattern.CASE_INSENSITIVE);
+
+    @Param({"https://trello.com/c/AbCd1234", "HTTP://www.Trello.com/b/AbCd1234/sprint-board?filter=member", "https://example.com/c/AbCd1234"})
+    public String url;
+
+    private Path copy;
+    private String takenUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        copy = BenchmarkDataset.copyOf(10_000);
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + copy);
+        takenUrl = Trello.lookup(1).getTrelloURL();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Database.getInstance().closeConnection();
+        Files.deleteIfExists(copy);
+        Files.deleteIfExists(Path.of(copy + "-wal"));
+        Files.deleteIfExists(Path.of(copy + "-shm"));
+    }
+
+    @Benchmark
+    public String canonicalizeRegex() {
+        Matcher matcher = TRELLO_URL.matcher(url);
+        if (!matcher.matches()) {
+            return null;
+        }
+        return "https://trello.com/" + matcher.group(1).toLowerCase() + "/" + matcher.group(2);
+    }
+
+    @Benchmark
+    public String canonicalizeScan() {
+        return TrelloUrlValidator.canonicalize(url);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean duplicateInsert() {
+        Connection conn = null;
+        try {
+            conn = Database.getInstance().getWriteConnection();
+            PreparedStatement stmt = Database.getInstance().prepareStatement(conn, "INSERT INTO TRELLO (berichtID, trelloURL) VALUES (?, ?)");
+            stmt.setInt(1, 1);
+            stmt.setString(2, takenUrl);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            return false;
+        } finally {
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean duplicateSave() {
+        try {
+            return new Trello(0, 1, takenUrl).save();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
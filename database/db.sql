@@ -1,4 +1,7 @@
 -- Clean up existing tables if they exist
+DROP TABLE IF EXISTS SPRINT_AFZENDER;
+DROP TABLE IF EXISTS SPRINT_STATS;
+DROP TABLE IF EXISTS BERICHT_FTS;
 DROP TABLE IF EXISTS TAAK;
 DROP TABLE IF EXISTS TRELLO;
 DROP TABLE IF EXISTS BERICHT;
@@ -43,8 +46,139 @@ CREATE TABLE TAAK (
     FOREIGN KEY (trelloID) REFERENCES TRELLO(trelloID)
 );
 
-CREATE INDEX idx_bericht_afzender ON BERICHT(afzender);
-CREATE INDEX idx_bericht_sprint ON BERICHT(sprintNummer);
-CREATE INDEX idx_taak_bericht ON TAAK(berichtID);
+-- Messages of a sprint or a user are read in time order, the composite indexes return them sorted
+-- and answer MIN/MAX(tijdstip) of a sprint without touching the table
+CREATE INDEX idx_bericht_afzender_tijdstip ON BERICHT(afzender, tijdstip, berichtID);
+CREATE INDEX idx_bericht_sprint_tijdstip ON BERICHT(sprintNummer, tijdstip, berichtID);
+CREATE INDEX idx_bericht_tijdstip ON BERICHT(tijdstip, berichtID);
+CREATE UNIQUE INDEX idx_taak_bericht ON TAAK(berichtID);
 CREATE INDEX idx_taak_trello ON TAAK(trelloID);
-CREATE INDEX idx_trello_bericht ON TRELLO(berichtID);
\ No newline at end of file
+CREATE INDEX idx_trello_bericht ON TRELLO(berichtID);
+
+-- Full-text index over BERICHT.inhoud, the content itself stays in BERICHT (external content table)
+CREATE VIRTUAL TABLE BERICHT_FTS USING fts5(
+    inhoud,
+    content = 'BERICHT',
+    content_rowid = 'berichtID',
+    tokenize = 'unicode61 remove_diacritics 2'
+);
+
+-- Keep the full-text index in sync with BERICHT
+CREATE TRIGGER trg_bericht_fts_insert AFTER INSERT ON BERICHT BEGIN
+    INSERT INTO BERICHT_FTS (rowid, inhoud) VALUES (new.berichtID, new.inhoud);
+END;
+
+CREATE TRIGGER trg_bericht_fts_delete AFTER DELETE ON BERICHT BEGIN
+    INSERT INTO BERICHT_FTS (BERICHT_FTS, rowid, inhoud) VALUES ('delete', old.berichtID, old.inhoud);
+END;
+
+CREATE TRIGGER trg_bericht_fts_update AFTER UPDATE OF inhoud ON BERICHT BEGIN
+    INSERT INTO BERICHT_FTS (BERICHT_FTS, rowid, inhoud) VALUES ('delete', old.berichtID, old.inhoud);
+    INSERT INTO BERICHT_FTS (rowid, inhoud) VALUES (new.berichtID, new.inhoud);
+END;
+
+-- Per-sprint numbers, kept up to date by the triggers below so they never need a scan of BERICHT.
+-- Sprints without messages have no row. Rebuilt from scratch with --rebuild-stats (Sprint.rebuildStats).
+-- The triggers check for an existing row instead of INSERT OR IGNORE: the conflict clause of the statement
+-- that fires a trigger (e.g. the upsert of Bericht.save) overrides the one in the trigger body.
+CREATE TABLE SPRINT_STATS (
+    sprintNummer INTEGER PRIMARY KEY,
+    berichtCount INTEGER NOT NULL DEFAULT 0,
+    afzenderCount INTEGER NOT NULL DEFAULT 0,
+    taakCount INTEGER NOT NULL DEFAULT 0,
+    eersteTijdstip DATETIME,
+    laatsteTijdstip DATETIME
+);
+
+-- Messages per sender per sprint, so the triggers know when a sender joins or leaves a sprint
+CREATE TABLE SPRINT_AFZENDER (
+    sprintNummer INTEGER NOT NULL,
+    afzender TEXT NOT NULL,
+    berichtCount INTEGER NOT NULL,
+    PRIMARY KEY (sprintNummer, afzender)
+) WITHOUT ROWID;
+
+CREATE TRIGGER trg_sprint_stats_bericht_insert AFTER INSERT ON BERICHT BEGIN
+    INSERT INTO SPRINT_STATS (sprintNummer) SELECT new.sprintNummer
+        WHERE NOT EXISTS (SELECT 1 FROM SPRINT_STATS WHERE sprintNummer = new.sprintNummer);
+    INSERT INTO SPRINT_AFZENDER (sprintNummer, afzender, berichtCount) SELECT new.sprintNummer, new.afzender, 0
+        WHERE NOT EXISTS (SELECT 1 FROM SPRINT_AFZENDER WHERE sprintNummer = new.sprintNummer AND afzender = new.afzender);
+    UPDATE SPRINT_AFZENDER SET berichtCount = berichtCount + 1
+        WHERE sprintNummer = new.sprintNummer AND afzender = new.afzender;
+    UPDATE SPRINT_STATS SET
+        berichtCount = berichtCount + 1,
+        afzenderCount = afzenderCount + (SELECT berichtCount = 1 FROM SPRINT_AFZENDER
+            WHERE sprintNummer = new.sprintNummer AND afzender = new.afzender),
+        taakCount = taakCount + (SELECT COUNT(*) FROM TAAK WHERE berichtID = new.berichtID),
+        eersteTijdstip = CASE WHEN eersteTijdstip IS NULL OR new.tijdstip < eersteTijdstip THEN new.tijdstip ELSE eersteTijdstip END,
+        laatsteTijdstip = CASE WHEN laatsteTijdstip IS NULL OR new.tijdstip > laatsteTijdstip THEN new.tijdstip ELSE laatsteTijdstip END
+        WHERE sprintNummer = new.sprintNummer;
+END;
+
+-- Only removing the first or last message of a sprint looks at the other messages of the sprint
+CREATE TRIGGER trg_sprint_stats_bericht_delete AFTER DELETE ON BERICHT BEGIN
+    UPDATE SPRINT_AFZENDER SET berichtCount = berichtCount - 1
+        WHERE sprintNummer = old.sprintNummer AND afzender = old.afzender;
+    UPDATE SPRINT_STATS SET
+        berichtCount = berichtCount - 1,
+        afzenderCount = afzenderCount - (SELECT berichtCount = 0 FROM SPRINT_AFZENDER
+            WHERE sprintNummer = old.sprintNummer AND afzender = old.afzender),
+        taakCount = taakCount - (SELECT COUNT(*) FROM TAAK WHERE berichtID = old.berichtID),
+        eersteTijdstip = CASE WHEN old.tijdstip <= eersteTijdstip
+            THEN (SELECT MIN(tijdstip) FROM BERICHT WHERE sprintNummer = old.sprintNummer) ELSE eersteTijdstip END,
+        laatsteTijdstip = CASE WHEN old.tijdstip >= laatsteTijdstip
+            THEN (SELECT MAX(tijdstip) FROM BERICHT WHERE sprintNummer = old.sprintNummer) ELSE laatsteTijdstip END
+        WHERE sprintNummer = old.sprintNummer;
+    DELETE FROM SPRINT_AFZENDER WHERE sprintNummer = old.sprintNummer AND afzender = old.afzender AND berichtCount = 0;
+    DELETE FROM SPRINT_STATS WHERE sprintNummer = old.sprintNummer AND berichtCount = 0;
+END;
+
+-- A changed message counts as removed from its old sprint and added to its new one
+CREATE TRIGGER trg_sprint_stats_bericht_update AFTER UPDATE OF berichtID, tijdstip, afzender, sprintNummer ON BERICHT BEGIN
+    UPDATE SPRINT_AFZENDER SET berichtCount = berichtCount - 1
+        WHERE sprintNummer = old.sprintNummer AND afzender = old.afzender;
+    UPDATE SPRINT_STATS SET
+        berichtCount = berichtCount - 1,
+        afzenderCount = afzenderCount - (SELECT berichtCount = 0 FROM SPRINT_AFZENDER
+            WHERE sprintNummer = old.sprintNummer AND afzender = old.afzender),
+        taakCount = taakCount - (SELECT COUNT(*) FROM TAAK WHERE berichtID = old.berichtID),
+        eersteTijdstip = CASE WHEN old.tijdstip <= eersteTijdstip
+            THEN (SELECT MIN(tijdstip) FROM BERICHT WHERE sprintNummer = old.sprintNummer AND berichtID <> new.berichtID) ELSE eersteTijdstip END,
+        laatsteTijdstip = CASE WHEN old.tijdstip >= laatsteTijdstip
+            THEN (SELECT MAX(tijdstip) FROM BERICHT WHERE sprintNummer = old.sprintNummer AND berichtID <> new.berichtID) ELSE laatsteTijdstip END
+        WHERE sprintNummer = old.sprintNummer;
+    DELETE FROM SPRINT_AFZENDER WHERE sprintNummer = old.sprintNummer AND afzender = old.afzender AND berichtCount = 0;
+    DELETE FROM SPRINT_STATS WHERE sprintNummer = old.sprintNummer AND berichtCount = 0;
+
+    INSERT INTO SPRINT_STATS (sprintNummer) SELECT new.sprintNummer
+        WHERE NOT EXISTS (SELECT 1 FROM SPRINT_STATS WHERE sprintNummer = new.sprintNummer);
+    INSERT INTO SPRINT_AFZENDER (sprintNummer, afzender, berichtCount) SELECT new.sprintNummer, new.afzender, 0
+        WHERE NOT EXISTS (SELECT 1 FROM SPRINT_AFZENDER WHERE sprintNummer = new.sprintNummer AND afzender = new.afzender);
+    UPDATE SPRINT_AFZENDER SET berichtCount = berichtCount + 1
+        WHERE sprintNummer = new.sprintNummer AND afzender = new.afzender;
+    UPDATE SPRINT_STATS SET
+        berichtCount = berichtCount + 1,
+        afzenderCount = afzenderCount + (SELECT berichtCount = 1 FROM SPRINT_AFZENDER
+            WHERE sprintNummer = new.sprintNummer AND afzender = new.afzender),
+        taakCount = taakCount + (SELECT COUNT(*) FROM TAAK WHERE berichtID = new.berichtID),
+        eersteTijdstip = CASE WHEN eersteTijdstip IS NULL OR new.tijdstip < eersteTijdstip THEN new.tijdstip ELSE eersteTijdstip END,
+        laatsteTijdstip = CASE WHEN laatsteTijdstip IS NULL OR new.tijdstip > laatsteTijdstip THEN new.tijdstip ELSE laatsteTijdstip END
+        WHERE sprintNummer = new.sprintNummer;
+END;
+
+CREATE TRIGGER trg_sprint_stats_taak_insert AFTER INSERT ON TAAK BEGIN
+    UPDATE SPRINT_STATS SET taakCount = taakCount + 1
+        WHERE sprintNummer = (SELECT sprintNummer FROM BERICHT WHERE berichtID = new.berichtID);
+END;
+
+CREATE TRIGGER trg_sprint_stats_taak_delete AFTER DELETE ON TAAK BEGIN
+    UPDATE SPRINT_STATS SET taakCount = taakCount - 1
+        WHERE sprintNummer = (SELECT sprintNummer FROM BERICHT WHERE berichtID = old.berichtID);
+END;
+
+CREATE TRIGGER trg_sprint_stats_taak_update AFTER UPDATE OF berichtID ON TAAK BEGIN
+    UPDATE SPRINT_STATS SET taakCount = taakCount - 1
+        WHERE sprintNummer = (SELECT sprintNummer FROM BERICHT WHERE berichtID = old.berichtID);
+    UPDATE SPRINT_STATS SET taakCount = taakCount + 1
+        WHERE sprintNummer = (SELECT sprintNummer FROM BERICHT WHERE berichtID = new.berichtID);
+END;
@@ -1,214 +1,223 @@
-import java.sql.Connection;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 
+import UserInterface.BatchRunner;
+import UserInterface.ConsoleUI;
+import UserInterface.SessionHost;
 import database.Database;
-import database.model.*;
-import util.*;
+import database.QueryStats;
+import database.analytics.SprintAnalytics;
+import database.analytics.SprintMetrics;
+import database.model.Sprint;
+import server.LocalTeamflowService;
+import server.Protocol;
+import server.RemoteTeamflowService;
+import server.TeamflowServer;
+import server.TeamflowService;
+import util.CLI;
 
 public class UserInterface {
-    private static final Scanner scanner = new Scanner(System.in);
-    private static Gebruiker currentUser;
-    private static int currentSprint;
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-    private static boolean loggedIn = false;
-
+    // Default port for --sessions, next to the server port
+    private static final int DEFAULT_SESSION_PORT = Protocol.DEFAULT_PORT + 1;
+
+    /**
+     * Starts the console UI against the local database, or:
+     * --server [port]       run as Teamflow server, owning the database for many clients
+     * --connect host[:port] run as thin client of a Teamflow server
+     * --sessions [port]     host console sessions for plain text connections (e.g. telnet), one virtual thread each
+     * --batch [file]        run the commands in the file (or stdin) without a console, see BatchRunner;
+     *                       can follow --connect host[:port]
+     * --rebuild-stats       recompute the sprint statistics from the messages and report the sprints that were off
+     * --report [sprint]     print the retrospective numbers of every sprint, or of one sprint
+     */
     public static void main(String[] args) {
-        boolean running = true;
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : Protocol.DEFAULT_PORT;
+            runServer(port);
+            return;
+        }
 
-        while (running) {
-            if (handleLogin()) {
-                while (loggedIn) {
-                    handleMainMenu();
-                }
+        if (args.length > 0 && args[0].equals("--rebuild-stats")) {
+            runRebuildStats();
+            return;
+        }
 
-            }
+        if (args.length > 0 && args[0].equals("--report")) {
+            runReport(args.length > 1 ? Integer.parseInt(args[1]) : -1);
+            return;
         }
 
-        scanner.close();
-    }
+        if (args.length > 0 && args[0].equals("--sessions")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SESSION_PORT;
+            runSessions(port);
+            return;
+        }
 
-    private static boolean handleLogin() {
-        clearScreen();
-        System.out.println("+----------------------------------------------------------------------------------------------------------------");
-        System.out.println("| ");
-        System.out.println("| ======    Welkom bij TeamFlow!    =====");
-        System.out.println("| ");
-        System.out.println("| Voer je gebruikersnaam in om verder te gaan.");
-        System.out.println("| ");
-
-        String gebruikersnaam = CLI.acceptUserInput("| Gebruikersnaam: ", CLI.SanitizationType.Alphanumeric);
-        String weergavenaam = CLI.acceptUserInput("| Weergavenaam: ", CLI.SanitizationType.AlphanumericWithSpaces);
-        String sprintNummerString = CLI.acceptUserInput("| Sprint #: ", CLI.SanitizationType.PositiveNumber);
-        int sprintNummer = Integer.parseInt(sprintNummerString);
-
-        currentUser = new Gebruiker(gebruikersnaam, weergavenaam);
-        currentSprint = sprintNummer;
-
-        //System.out.println("| Sprint #: ");
-        System.out.println("| ");
-        System.out.println("| ");
-
-        loggedIn = true;
-        return true;
-    }
+        TeamflowService service;
+        if (args.length > 1 && args[0].equals("--connect")) {
+            String[] address = args[1].split(":");
+            int port = address.length > 1 ? Integer.parseInt(address[1]) : Protocol.DEFAULT_PORT;
+            try {
+                service = new RemoteTeamflowService(address[0], port);
+            } catch (IOException e) {
+                System.out.println("Kan geen verbinding maken met de server " + args[1] + ": " + e.getMessage());
+                return;
+            }
+        } else {
+            service = new LocalTeamflowService();
+        }
 
+        int batch = Arrays.asList(args).indexOf("--batch");
+        if (batch >= 0) {
+            String file = batch + 1 < args.length ? args[batch + 1] : "-";
+            runBatch(service, file);
+            return;
+        }
 
+        // Close the database or the server connection when the application is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread(service::close));
 
-    private static void handleMainMenu() {
-        clearScreen();
-        System.out.println("+----------------------------------------------------------------------------------------------------------------");
-        System.out.println("| ");
-        System.out.println("| ======    Welkom bij TeamFlow, " + currentUser.getWeergavenaam() + "!    =====");
-        System.out.println("| ");
-        System.out.println("| Dit is sprint " + currentSprint + ". Kies een van de onderstaande opties om verder te gaan.");
-        System.out.println("| ");
-        System.out.println("| 1) Bericht versturen");
-        System.out.println("| 2) Chatgeschiedenis weergeven");
-        System.out.println("| 3) Zoeken in berichten");
-        System.out.println("|");
-        System.out.println("| 0) Uitloggen");
-        System.out.println("|");
-
-
-        int choice = Integer.parseInt(CLI.acceptUserInput("| Kies een optie: ", CLI.SanitizationType.PositiveNumber, new String[]{"0", "1", "2", "3"}));
-
-        switch (choice) {
-            case 1:
-                displayMessageScreen();
-                break;
-            case 2:
-                displayChatHistory();
-                break;
-            case 3:
-                displaySearchScreen();
-                break;
-            case 0:
-                loggedIn = false;
-                currentUser = null;
-                currentSprint = -1;
-                break;
-            default:
-                System.out.println("Ongeldige keuze. Probeer opnieuw."); //Zou nooit moeten gebeuren
+        // The console session runs on a virtual thread, like the sessions of --sessions
+        Thread session = Thread.ofVirtual().name("teamflow-console").start(new ConsoleUI(service, new CLI()));
+        try {
+            session.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
     }
 
-    private static void displayMessageScreen() {
-        clearScreen();
-        System.out.println("+----------------------------------------------------------------------------------------------------------------");
-        System.out.println("| ");
-        System.out.println("| ======    Welkom bij TeamFlow, " + currentUser.getWeergavenaam() + "!    =====");
-        System.out.println("| ");
-
-        String bericht = CLI.acceptUserInput("| Typ uw bericht: ", CLI.SanitizationType.None);
-        String taakKoppelen = CLI.acceptUserInput("| Wilt u een taak koppelen? [J/N] ", CLI.SanitizationType.YesNo);
-        String trelloUrl;
-
-        if (taakKoppelen.equals("J"))
-        {
-            trelloUrl = CLI.acceptUserInput("| Trello URL: ", CLI.SanitizationType.YesNo);
+    private static void runBatch(TeamflowService service, String file) {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), false, StandardCharsets.UTF_8);
+        // Stdout only carries the JSON results, log messages go to stderr
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true, StandardCharsets.UTF_8));
+        try (BufferedReader in = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+            new BatchRunner(service, out).run(in);
+        } catch (IOException e) {
+            System.out.println("Kan de opdrachten niet lezen uit " + file + ": " + e.getMessage());
+        } finally {
+            out.flush();
+            service.close();
         }
+    }
 
-        System.out.println("| ");
-        System.out.println("| Druk op [Enter] om te verzenden of op [ESC] om te annuleren.");
-
-        long charCode = CLI.readSingleKey();
+    private static void runRebuildStats() {
+        try {
+            long start = System.nanoTime();
+            List<Integer> corrected = Sprint.rebuildStats();
+            long millis = (System.nanoTime() - start) / 1_000_000;
 
-        if (charCode == 10) //[ENTER]
-        {
-            Bericht berichtObj = new Bericht(0, bericht, LocalDateTime.now(), currentUser.getGebruikersnaam(), currentSprint);
-            try {
-                berichtObj.save();
-                System.out.println("| Bericht verzonden.");
-            } catch (SQLException e) {
-                System.out.println("| Fout bij opslaan van bericht: " + e.getMessage());
-                e.printStackTrace();
+            if (corrected.isEmpty()) {
+                System.out.println("Sprintstatistieken herberekend in " + millis + " ms, alles klopte.");
+            } else {
+                System.out.println("Sprintstatistieken herberekend in " + millis + " ms, gecorrigeerd voor sprint " + corrected + ".");
             }
-            return;
+        } catch (SQLException e) {
+            System.out.println("Kan de sprintstatistieken niet herberekenen: " + e.getMessage());
+        } finally {
+            Database.getInstance().closeConnection();
         }
+    }
 
-        if (charCode == 27) //[ESC]
-        {
-            System.out.println("| Bericht geannuleerd.");
-            return;
+    private static void runReport(int sprintNummer) {
+        try {
+            SprintAnalytics.Report report = new SprintAnalytics().compute();
+            for (SprintMetrics sprint : report.getSprints().values()) {
+                if (sprintNummer < 0 || sprint.getSprintNummer() == sprintNummer) {
+                    printSprintMetrics(sprint);
+                }
+            }
+            System.out.println(report.getRows() + " berichten verwerkt in " + report.getMillis() + " ms.");
+        } catch (SQLException e) {
+            System.out.println("Kan het sprintrapport niet maken: " + e.getMessage());
+        } finally {
+            Database.getInstance().closeConnection();
         }
     }
 
-    private static void printBerichten(List<Bericht> berichten)
-    {
-        for (Bericht b : berichten) {
-            System.out.printf("| [%s | %s] %s%n", b.getTijdstip().format(DATE_TIME_FORMATTER), b.getAfzender(), b.getInhoud());
+    private static void printSprintMetrics(SprintMetrics sprint) {
+        System.out.println("== Sprint " + sprint.getSprintNummer() + ": " + sprint.getBerichtCount() + " berichten van "
+                + sprint.getBerichtenPerGebruiker().size() + " gebruikers ==");
+
+        System.out.println("Berichten per dag:");
+        for (Map.Entry<LocalDate, Integer> dag : sprint.getBerichtenPerDag().entrySet()) {
+            System.out.println("  " + dag.getKey() + "  " + dag.getValue());
         }
 
-        if (berichten.isEmpty())
-        {
-            System.out.println("| <geen berichten om weer te geven>");
+        System.out.println("Meest actieve gebruikers:");
+        sprint.getBerichtenPerGebruiker().entrySet().stream().limit(5)
+                .forEach(gebruiker -> System.out.println("  " + gebruiker.getKey() + "  " + gebruiker.getValue()));
+
+        System.out.println("Gekoppelde taken: " + sprint.getGekoppeldeTaken() + ", waarvan " + sprint.getTakenMetVermelding()
+                + " eerder genoemd (gemiddeld " + formatDuur(sprint.getGemiddeldeTijdTotKoppeling())
+                + ", langst " + formatDuur(sprint.getLangsteTijdTotKoppeling()) + " tot koppeling)");
+        if (!sprint.getMeestGekoppeldeKaarten().isEmpty()) {
+            System.out.println("Meest gekoppelde kaarten:");
+            for (SprintMetrics.KaartTelling kaart : sprint.getMeestGekoppeldeKaarten()) {
+                System.out.println("  " + kaart);
+            }
         }
+        System.out.println();
     }
 
-    private static void displayChatHistory() {
-        clearScreen();
-        System.out.println("+----------------------------------------------------------------------------------------------------------------");
-        System.out.println("| ");
-        System.out.println("| ======    Welkom bij TeamFlow, " + currentUser.getWeergavenaam() + "!    =====");
-        System.out.println("| ");
-
-        System.out.println("| Chat geschiedenis:");
-
-        List<Bericht> berichten = Bericht.getAll();
-        printBerichten(berichten);
-
-
-        System.out.println("| ");
-        System.out.println("| Druk op [ENTER] om naar het vorige scherm te gaan.");
-
-        scanner.nextLine();
+    private static String formatDuur(Duration duur) {
+        return duur.toDays() > 0
+                ? duur.toDays() + "d " + duur.toHoursPart() + "u"
+                : duur.toHours() + "u " + duur.toMinutesPart() + "m";
     }
 
-    private static void displaySearchScreen() {
-        clearScreen();
-        System.out.println("+----------------------------------------------------------------------------------------------------------------");
-        System.out.println("| ");
-        System.out.println("| ======    Welkom bij TeamFlow, " + currentUser.getWeergavenaam() + "!    =====");
-        System.out.println("| ");
-
-        String zoekterm = CLI.acceptUserInput("| Zoekterm: ", CLI.SanitizationType.None);
-
-//        System.out.println("| Zoeken in berichten: ");
-//        System.out.println("|");
-//        System.out.println("| Filter op datum:");
-//        System.out.println("| Van: ____-__-__");
-//        System.out.println("| Tot: ____-__-__ ");
-        System.out.println("| ");
-        //System.out.println("| [Enter] Zoeken  [ESC] Terug naar hoofdmenu");
-
-        List<Bericht> berichten = Bericht.getAll();
-        List<Bericht> gefilterdeBerichten = new ArrayList<>();
-
-        for (Bericht b : berichten) {
-            if (b.getInhoud().contains(zoekterm))
-                gefilterdeBerichten.add(b);
+    private static void runServer(int port) {
+        try {
+            TeamflowServer server = new TeamflowServer(new LocalTeamflowService(), port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                System.out.println(server);
+                if (QueryStats.getInstance().getExecutions() > 0) {
+                    System.out.print(QueryStats.getInstance().dump());
+                }
+            }));
+
+            System.out.println("Teamflow server luistert op poort " + server.getPort() + ".");
+            server.awaitTermination();
+        } catch (IOException e) {
+            System.out.println("Kan de server niet starten op poort " + port + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-
-        printBerichten(gefilterdeBerichten);
-
-        System.out.println("| ");
-        System.out.println("| Druk op [ENTER] om naar het vorige scherm te gaan.");
-
-        scanner.nextLine();
     }
 
-    private static void clearScreen() {
-        System.out.print("\033[H\033[2J");
-        System.out.flush();
+    private static void runSessions(int port) {
+        TeamflowService service = new LocalTeamflowService();
+        try {
+            SessionHost host = new SessionHost(service, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                host.close();
+                service.close();
+                System.out.println(host);
+            }));
+
+            System.out.println("Teamflow sessies luisteren op poort " + host.getPort() + ".");
+            host.awaitTermination();
+        } catch (IOException e) {
+            System.out.println("Kan de sessies niet starten op poort " + port + ": " + e.getMessage());
+            service.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
-
-}
\ No newline at end of file
+}
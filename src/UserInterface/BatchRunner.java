@@ -0,0 +1,356 @@
+package UserInterface;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import database.LatencyHistogram;
+import database.QueryStats;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Trello;
+import server.TeamflowService;
+import util.CLI;
+import util.DateFormatter;
+import util.TrelloUrlValidator;
+
+/**
+ * Runs Teamflow without a human at the console: reads one command per line and writes one JSON object
+ * per result, so a script can load or replay a lot of traffic and read back what happened.
+ *
+ * <pre>
+ * login gebruikersnaam sprint [weergavenaam]   log in, later commands run as this user;
+ *                                               a new user is saved with the weergavenaam
+ * sprint nummer                                 switch to another sprint
+ * send [@yyyy-MM-ddTHH:mm[:ss]] tekst           send a message, optionally with its original time
+ * trello url                                    link a Trello board to the last sent message, even once it was awaited
+ * history [aantal]                              the newest messages, 20 by default
+ * search zoekterm                               search the messages, like the search screen
+ * querystats                                    the query statistics of this process, see QueryStats
+ * # ...                                         a comment, empty lines are skipped as well
+ * </pre>
+ *
+ * Sends are not waited for one by one: they are handed to the service and group-committed by the write queue,
+ * and only awaited when a command reads, every {@link #MAX_PENDING} messages, and at the end of the input.
+ * Their results are written in input order when that happens.
+ */
+public class BatchRunner {
+    // Messages in flight before the runner waits for them, bounds the memory a long script uses
+    private static final int MAX_PENDING = 1024;
+    private static final int DEFAULT_HISTORY = 20;
+    private static final int SEARCH_LIMIT = 50;
+
+    /**
+     * A sent message that has not been awaited yet, with the Trello boards to link to it.
+     */
+    private static class PendingSend {
+        final int line;
+        final CompletableFuture<Bericht> result;
+        final List<String> trelloUrls = new ArrayList<>();
+
+        PendingSend(int line, CompletableFuture<Bericht> result) {
+            this.line = line;
+            this.result = result;
+        }
+    }
+
+    private final TeamflowService service;
+    private final PrintStream out;
+
+    private String gebruikersnaam;
+    private int sprintNummer = -1;
+    private final List<PendingSend> pending = new ArrayList<>();
+    // The message of the last send that was awaited, 0 if it failed. A trello line after a flush links to it
+    private int lastBerichtID = 0;
+
+    // Statistics
+    private int commandCount = 0;
+    private int sentCount = 0;
+    private int errorCount = 0;
+
+    /**
+     * @param service runs the operations
+     * @param out where the JSON results are written, one per line
+     */
+    public BatchRunner(TeamflowService service, PrintStream out) {
+        this.service = service;
+        this.out = out;
+    }
+
+    /**
+     * Runs every command of the input and writes a summary at the end.
+     *
+     * @param in the commands, one per line
+     * @throws IOException if the input cannot be read
+     */
+    public void run(BufferedReader in) throws IOException {
+        long start = System.nanoTime();
+
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            commandCount++;
+            try {
+                execute(lineNumber, line);
+            } catch (IllegalArgumentException e) {
+                error(lineNumber, e.getMessage());
+            }
+        }
+        flush();
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        out.printf("{\"command\":\"summary\",\"commands\":%d,\"sent\":%d,\"errors\":%d,\"millis\":%d}%n",
+                commandCount, sentCount, errorCount, millis);
+        out.flush();
+    }
+
+    private void execute(int line, String command) {
+        int space = command.indexOf(' ');
+        String name = space < 0 ? command : command.substring(0, space);
+        String argument = space < 0 ? "" : command.substring(space + 1).strip();
+
+        switch (name) {
+            case "login" -> login(line, argument);
+            case "sprint" -> {
+                sprintNummer = parseSprint(argument);
+                out.printf("{\"command\":\"sprint\",\"line\":%d,\"status\":\"ok\",\"sprint\":%d}%n", line, sprintNummer);
+            }
+            case "send" -> send(line, argument);
+            case "trello" -> trello(line, argument);
+            case "history" -> {
+                flush();
+                int aantal = argument.isEmpty() ? DEFAULT_HISTORY : parseNumber(argument, "Aantal");
+                printBerichten("history", line, service.getPageBefore(null, aantal));
+            }
+            case "search" -> {
+                flush();
+                printBerichten("search", line, service.search(argument, SEARCH_LIMIT));
+            }
+            case "querystats" -> {
+                flush();
+                printQueryStats(line);
+            }
+            default -> throw new IllegalArgumentException("Unknown command " + name);
+        }
+    }
+
+    private void login(int line, String argument) {
+        String[] parts = argument.split("\\s+", 3);
+        if (parts.length < 2 || !CLI.SanitizationType.Alphanumeric.isValid(parts[0])) {
+            throw new IllegalArgumentException("Usage: login gebruikersnaam sprint [weergavenaam]");
+        }
+
+        int sprint = parseSprint(parts[1]);
+        if (parts.length == 3) {
+            if (!CLI.SanitizationType.AlphanumericWithSpaces.isValid(parts[2])) {
+                throw new IllegalArgumentException("Weergavenaam may only contain letters, digits and spaces");
+            }
+            if (service.lookupGebruiker(parts[0]) == null) {
+                try {
+                    service.saveGebruiker(new Gebruiker(parts[0], parts[2]));
+                } catch (SQLException e) {
+                    error(line, "Error saving gebruiker: " + e.getMessage());
+                    return;
+                }
+            }
+        }
+
+        gebruikersnaam = parts[0];
+        sprintNummer = sprint;
+        out.printf("{\"command\":\"login\",\"line\":%d,\"status\":\"ok\",\"gebruiker\":%s,\"sprint\":%d}%n",
+                line, json(gebruikersnaam), sprintNummer);
+    }
+
+    private void send(int line, String argument) {
+        if (gebruikersnaam == null) {
+            throw new IllegalArgumentException("Log in before sending messages");
+        }
+
+        LocalDateTime tijdstip = LocalDateTime.now();
+        String inhoud = argument;
+        if (argument.startsWith("@")) {
+            int space = argument.indexOf(' ');
+            String timestamp = space < 0 ? argument.substring(1) : argument.substring(1, space);
+            tijdstip = DateFormatter.parse(timestamp);
+            inhoud = space < 0 ? "" : argument.substring(space + 1).strip();
+        }
+        if (inhoud.isEmpty()) {
+            throw new IllegalArgumentException("Inhoud cannot be empty or null");
+        }
+
+        // Made room for before the send, so its trello lines still find it pending
+        if (pending.size() >= MAX_PENDING) {
+            flush();
+        }
+        Bericht bericht = new Bericht(0, inhoud, tijdstip, gebruikersnaam, sprintNummer);
+        pending.add(new PendingSend(line, service.sendBericht(bericht)));
+    }
+
+    private void trello(int line, String url) {
+        if (pending.isEmpty() && lastBerichtID <= 0) {
+            throw new IllegalArgumentException("Send a message before linking a Trello board");
+        }
+        if (url.isEmpty()) {
+            throw new IllegalArgumentException("Usage: trello url");
+        }
+        if (!TrelloUrlValidator.INSTANCE.isValid(url)) {
+            throw new IllegalArgumentException("Not a Trello URL: " + url);
+        }
+
+        if (pending.isEmpty()) {
+            // The message was already awaited, e.g. by a history line in between
+            link(line, lastBerichtID, url);
+        } else {
+            // Linked once the message has its ID
+            pending.get(pending.size() - 1).trelloUrls.add(url);
+        }
+    }
+
+    /**
+     * Waits for the messages in flight, links their Trello boards and writes their results.
+     */
+    private void flush() {
+        for (PendingSend send : pending) {
+            Bericht bericht;
+            try {
+                bericht = send.result.join();
+            } catch (CompletionException e) {
+                lastBerichtID = 0;
+                error(send.line, e.getCause().getMessage());
+                continue;
+            }
+
+            sentCount++;
+            lastBerichtID = bericht.getBerichtID();
+            out.printf("{\"command\":\"send\",\"line\":%d,\"status\":\"ok\",\"berichtID\":%d}%n", send.line, bericht.getBerichtID());
+
+            for (String url : send.trelloUrls) {
+                link(send.line, bericht.getBerichtID(), url);
+            }
+        }
+        pending.clear();
+    }
+
+    private void link(int line, int berichtID, String url) {
+        try {
+            Trello trello = service.saveTrello(new Trello(0, berichtID, url));
+            out.printf("{\"command\":\"trello\",\"line\":%d,\"status\":\"ok\",\"berichtID\":%d,\"trelloID\":%d}%n",
+                    line, berichtID, trello.getTrelloID());
+        } catch (Exception e) {
+            error(line, e.getMessage());
+        }
+    }
+
+    private void printBerichten(String command, int line, List<Bericht> berichten) {
+        StringBuilder json = new StringBuilder(64 + berichten.size() * 96);
+        json.append("{\"command\":\"").append(command).append("\",\"line\":").append(line)
+                .append(",\"status\":\"ok\",\"berichten\":[");
+        for (int i = 0; i < berichten.size(); i++) {
+            Bericht b = berichten.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"berichtID\":").append(b.getBerichtID())
+                    .append(",\"tijdstip\":\"").append(b.getTijdstip()).append('"')
+                    .append(",\"afzender\":").append(json(b.getAfzender()))
+                    .append(",\"sprint\":").append(b.getSprintNummer())
+                    .append(",\"inhoud\":").append(json(b.getInhoud()))
+                    .append('}');
+        }
+        json.append("]}");
+        out.println(json);
+    }
+
+    /**
+     * Writes the latency and row counts per statement. Only filled in while sampling is on
+     * (-Dteamflow.db.querySampleRate), and empty with --connect, where the queries run in the server.
+     */
+    private void printQueryStats(int line) {
+        QueryStats stats = QueryStats.getInstance();
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"command\":\"querystats\",\"line\":").append(line)
+                .append(",\"status\":\"ok\",\"sampleRate\":").append(stats.getSampleRate())
+                .append(",\"slowQueries\":").append(stats.getSlowQueries())
+                .append(",\"statements\":[");
+        List<QueryStats.Shape> shapes = stats.getShapes();
+        for (int i = 0; i < shapes.size(); i++) {
+            QueryStats.Shape shape = shapes.get(i);
+            LatencyHistogram latency = shape.getLatency();
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sql\":").append(json(shape.getSql().replaceAll("\\s+", " ")))
+                    .append(",\"executions\":").append(shape.getExecutions())
+                    .append(",\"rows\":").append(shape.getRows())
+                    .append(",\"errors\":").append(shape.getErrors())
+                    .append(",\"meanMicros\":").append(Math.round(latency.getMeanMicros()))
+                    .append(",\"p50Micros\":").append(latency.getPercentileMicros(50))
+                    .append(",\"p99Micros\":").append(latency.getPercentileMicros(99))
+                    .append(",\"maxMicros\":").append(latency.getMaxMicros())
+                    .append('}');
+        }
+        json.append("]}");
+        out.println(json);
+    }
+
+    private void error(int line, String message) {
+        errorCount++;
+        out.printf("{\"line\":%d,\"status\":\"error\",\"message\":%s}%n", line, json(message));
+    }
+
+    private static int parseSprint(String value) {
+        int sprint = parseNumber(value, "Sprint");
+        if (sprint <= 0) {
+            throw new IllegalArgumentException("SprintNummer must be greater than 0");
+        }
+        return sprint;
+    }
+
+    private static int parseNumber(String value, String name) {
+        if (!CLI.SanitizationType.PositiveNumber.isValid(value)) {
+            throw new IllegalArgumentException(name + " must be a number, not " + value);
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * @return the value as a JSON string literal
+     */
+    private static String json(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
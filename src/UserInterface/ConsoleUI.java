@@ -1,4 +1,129 @@
 package UserInterface;
 
-public class ConsoleUI {
+import java.io.PrintStream;
+import java.util.List;
+
+import UserInterface.Handler.MainMenuHandler;
+import UserInterface.Handler.WelcomeScreenHandler;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import server.TeamflowService;
+import util.CLI;
+import util.SessionClosedException;
+
+/**
+ * One console session: its input and output, the logged in user and the current sprint.
+ * Nothing here is shared between sessions except the service, so any number of sessions
+ * can run in one process, each on its own (virtual) thread.
+ */
+public class ConsoleUI implements Runnable {
+    private final TeamflowService service;
+    private final CLI cli;
+    private final PrintStream out;
+    private final ScreenRenderer renderer;
+
+    private Gebruiker currentUser;
+    private int currentSprint = -1;
+    private boolean loggedIn = false;
+    private volatile boolean running = true;
+
+    /**
+     * @param service runs the operations, shared by all sessions
+     * @param cli the input and output of this session
+     */
+    public ConsoleUI(TeamflowService service, CLI cli) {
+        this.service = service;
+        this.cli = cli;
+        this.out = cli.getOut();
+        this.renderer = new ScreenRenderer(out);
+    }
+
+    /**
+     * Runs the session until its input ends or {@link #stop()} is called.
+     */
+    @Override
+    public void run() {
+        WelcomeScreenHandler welcomeScreen = new WelcomeScreenHandler(this);
+        MainMenuHandler mainMenu = new MainMenuHandler(this);
+
+        try {
+            while (running) {
+                if (welcomeScreen.handle()) {
+                    while (running && loggedIn) {
+                        mainMenu.handle();
+                    }
+                }
+            }
+        } catch (SessionClosedException e) {
+            // The user went away, nothing to clean up
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Ends the session after the current screen.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public void login(Gebruiker gebruiker, int sprintNummer) {
+        currentUser = gebruiker;
+        currentSprint = sprintNummer;
+        loggedIn = true;
+    }
+
+    public void logout() {
+        loggedIn = false;
+        currentUser = null;
+        currentSprint = -1;
+    }
+
+    public TeamflowService getService() {
+        return service;
+    }
+
+    public CLI getCli() {
+        return cli;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public ScreenRenderer getRenderer() {
+        return renderer;
+    }
+
+    public Gebruiker getCurrentUser() {
+        return currentUser;
+    }
+
+    public int getCurrentSprint() {
+        return currentSprint;
+    }
+
+    public boolean isLoggedIn() {
+        return loggedIn;
+    }
+
+    // Shared screen parts
+
+    public void clearScreen() {
+        out.print("\033[H\033[2J");
+        out.flush();
+    }
+
+    public void printHeader() {
+        out.println("+----------------------------------------------------------------------------------------------------------------");
+        out.println("| ");
+        out.println("| ======    Welkom bij TeamFlow, " + currentUser.getWeergavenaam() + "!    =====");
+        out.println("| ");
+    }
+
+    public void printBerichten(List<Bericht> berichten)
+    {
+        renderer.printBerichten(berichten);
+    }
 }
@@ -1,4 +1,122 @@
 package UserInterface.Handler;
 
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import UserInterface.ConsoleUI;
+import database.live.Subscription;
+import database.model.Bericht;
+
+/**
+ * The chat history, one page at a time, with new messages of the sprint shown live on the newest page.
+ */
 public class ChatHistoryHandler {
+    private static final int HISTORY_PAGE_SIZE = Integer.getInteger("teamflow.history.pageSize", 20);
+    // Header, title and the prompt below the list
+    private static final int SCREEN_LINES = 9;
+
+    private final ConsoleUI ui;
+
+    public ChatHistoryHandler(ConsoleUI ui) {
+        this.ui = ui;
+    }
+
+    public void handle() {
+        PrintStream out = ui.getOut();
+
+        // Start at the newest page, older pages are only fetched when asked for
+        Bericht cursor = null;
+        boolean bladeren = true;
+
+        while (bladeren) {
+            ui.clearScreen();
+            ui.printHeader();
+
+            out.println("| Chat geschiedenis:");
+
+            // On the newest page, new messages of this sprint appear as they are sent. Subscribed before the page
+            // is fetched, so a message saved in between is not missed; it may then be both on the page and in the subscription
+            Subscription live = cursor == null ? ui.getService().subscribe(ui.getCurrentSprint()) : null;
+            Thread printer = null;
+            String keuze;
+            boolean meerBerichten;
+            try {
+                List<Bericht> pagina = ui.getService().getPageBefore(cursor, HISTORY_PAGE_SIZE);
+                meerBerichten = pagina.size() == HISTORY_PAGE_SIZE;
+
+                if (!pagina.isEmpty()) {
+                    cursor = pagina.get(pagina.size() - 1);
+                }
+
+                // Pages come newest first, print them in chronological order
+                List<Bericht> chronologisch = new ArrayList<>(pagina);
+                Collections.reverse(chronologisch);
+                ui.getRenderer().printBerichtenPaged(chronologisch, ui.getCli(), SCREEN_LINES);
+
+                out.println("| ");
+                if (meerBerichten) {
+                    out.println("| Typ [O] en druk op [ENTER] voor oudere berichten, of druk op [ENTER] om naar het vorige scherm te gaan.");
+                } else {
+                    out.println("| Druk op [ENTER] om naar het vorige scherm te gaan.");
+                }
+                out.flush();
+
+                if (live != null) {
+                    printer = followLive(live, pagina);
+                }
+                keuze = ui.getCli().readLine().trim();
+            } finally {
+                if (live != null) {
+                    live.close();
+                }
+                // Nothing of this screen may be printed onto the next one
+                if (printer != null) {
+                    joinPrinter(printer);
+                }
+            }
+            bladeren = meerBerichten && keuze.equalsIgnoreCase("O");
+        }
+    }
+
+    /**
+     * Prints the new messages of the current sprint as they arrive, until the subscription is closed.
+     * Messages that are already on the page are skipped.
+     *
+     * @return the thread that prints them
+     */
+    private Thread followLive(Subscription subscription, List<Bericht> pagina) {
+        Set<Integer> getoond = new HashSet<>();
+        for (Bericht b : pagina) {
+            getoond.add(b.getBerichtID());
+        }
+
+        return Thread.ofVirtual().name("teamflow-live-history").start(() -> {
+            try {
+                Bericht b;
+                while ((b = subscription.take()) != null) {
+                    if (getoond.add(b.getBerichtID())) {
+                        ui.printBerichten(List.of(b));
+                    }
+                }
+                if (subscription.isDisconnected()) {
+                    ui.getOut().println("| Live bijwerken is gestopt, open de chatgeschiedenis opnieuw om bij te blijven.");
+                    ui.getOut().flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private static void joinPrinter(Thread printer) {
+        try {
+            printer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
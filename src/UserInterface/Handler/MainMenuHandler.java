@@ -1,4 +1,65 @@
 package UserInterface.Handler;
 
+import java.io.PrintStream;
+
+import UserInterface.ConsoleUI;
+import util.AllowedValues;
+import util.CLI;
+
+/**
+ * The main menu of a logged in session.
+ */
 public class MainMenuHandler {
+    private static final AllowedValues OPTIONS = AllowedValues.of("0", "1", "2", "3");
+
+    private final ConsoleUI ui;
+    private final MessageEntryHandler messageEntry;
+    private final ChatHistoryHandler chatHistory;
+    private final SearchHandler search;
+
+    public MainMenuHandler(ConsoleUI ui) {
+        this.ui = ui;
+        this.messageEntry = new MessageEntryHandler(ui);
+        this.chatHistory = new ChatHistoryHandler(ui);
+        this.search = new SearchHandler(ui);
+    }
+
+    public void handle() {
+        PrintStream out = ui.getOut();
+
+        ui.clearScreen();
+        out.println("+----------------------------------------------------------------------------------------------------------------");
+        out.println("| ");
+        out.println("| ======    Welkom bij TeamFlow, " + ui.getCurrentUser().getWeergavenaam() + "!    =====");
+        out.println("| ");
+        out.println("| Dit is sprint " + ui.getCurrentSprint() + ". Kies een van de onderstaande opties om verder te gaan.");
+        out.println("| ");
+        out.println("| 1) Bericht versturen");
+        out.println("| 2) Chatgeschiedenis weergeven");
+        out.println("| 3) Zoeken in berichten");
+        out.println("|");
+        out.println("| 0) Uitloggen");
+        out.println("|");
+
+
+        int choice = Integer.parseInt(ui.getCli().acceptUserInput("| Kies een optie: ", CLI.SanitizationType.PositiveNumber, OPTIONS));
+
+        switch (choice) {
+            case 1:
+                messageEntry.handle();
+                break;
+            case 2:
+                chatHistory.handle();
+                break;
+            case 3:
+                search.handle();
+                break;
+            case 0:
+                ui.logout();
+                break;
+            default:
+                out.println("Ongeldige keuze. Probeer opnieuw."); //Zou nooit moeten gebeuren
+        }
+
+    }
 }
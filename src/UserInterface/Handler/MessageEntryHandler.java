@@ -1,4 +1,81 @@
 package UserInterface.Handler;
 
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executor;
+
+import UserInterface.ConsoleUI;
+import database.model.Bericht;
+import database.model.Trello;
+import util.CLI;
+import util.TrelloUrlValidator;
+
+/**
+ * The screen to write and send a message.
+ */
 public class MessageEntryHandler {
+    // Links the Trello board once the message is saved. Not on the thread that completes the send,
+    // for a remote service that is the thread reading the responses
+    private static final Executor LINK_EXECUTOR = task -> Thread.ofVirtual().name("teamflow-trello-link").start(task);
+
+    private final ConsoleUI ui;
+
+    public MessageEntryHandler(ConsoleUI ui) {
+        this.ui = ui;
+    }
+
+    public void handle() {
+        PrintStream out = ui.getOut();
+        CLI cli = ui.getCli();
+
+        ui.clearScreen();
+        ui.printHeader();
+
+        String bericht = cli.acceptUserInput("| Typ uw bericht: ", CLI.SanitizationType.None);
+        String taakKoppelen = cli.acceptUserInput("| Wilt u een taak koppelen? [J/N] ", CLI.SanitizationType.YesNo);
+        String trelloUrl = null;
+
+        if (taakKoppelen.equals("J"))
+        {
+            trelloUrl = cli.acceptUserInput("| Trello URL: ", TrelloUrlValidator.INSTANCE);
+        }
+
+        out.println("| ");
+        out.println("| Druk op [Enter] om te verzenden of op [ESC] om te annuleren.");
+        out.flush();
+
+        long charCode = cli.readSingleKey();
+
+        if (charCode == 10) //[ENTER]
+        {
+            Bericht berichtObj = new Bericht(0, bericht, LocalDateTime.now(), ui.getCurrentUser().getGebruikersnaam(), ui.getCurrentSprint());
+            String url = trelloUrl;
+            // The message is written in the background, a failed write is reported when it happens
+            ui.getService().sendBericht(berichtObj).whenCompleteAsync((opgeslagen, fout) -> {
+                if (fout != null) {
+                    out.println("| Fout bij opslaan van bericht: " + fout.getMessage());
+                    out.flush();
+                    return;
+                }
+
+                if (url != null) {
+                    try {
+                        ui.getService().saveTrello(new Trello(0, opgeslagen.getBerichtID(), url));
+                    } catch (SQLException | IllegalArgumentException e) {
+                        out.println("| Fout bij koppelen van Trello bord: " + e.getMessage());
+                        out.flush();
+                    }
+                }
+            }, LINK_EXECUTOR);
+            out.println("| Bericht verzonden.");
+            return;
+        }
+
+        if (charCode == 27) //[ESC]
+        {
+            out.println("| Bericht geannuleerd.");
+            return;
+        }
+    }
 }
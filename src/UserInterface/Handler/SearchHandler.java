@@ -1,4 +1,51 @@
 package UserInterface.Handler;
 
+import java.io.PrintStream;
+import java.util.List;
+
+import UserInterface.ConsoleUI;
+import database.model.Bericht;
+import util.CLI;
+
+/**
+ * The screen to search the messages.
+ */
 public class SearchHandler {
+    private static final int SEARCH_LIMIT = 50;
+    // Header, tip, search term and the prompt below the list
+    private static final int SCREEN_LINES = 10;
+
+    private final ConsoleUI ui;
+
+    public SearchHandler(ConsoleUI ui) {
+        this.ui = ui;
+    }
+
+    public void handle() {
+        PrintStream out = ui.getOut();
+
+        ui.clearScreen();
+        ui.printHeader();
+
+        out.println("| Tip: \"exacte zin\", woord1 OR woord2, begin*, sprint:3, van:gebruikersnaam");
+        String zoekterm = ui.getCli().acceptUserInput("| Zoekterm: ", CLI.SanitizationType.None);
+
+//        out.println("| Zoeken in berichten: ");
+//        out.println("|");
+//        out.println("| Filter op datum:");
+//        out.println("| Van: ____-__-__");
+//        out.println("| Tot: ____-__-__ ");
+        out.println("| ");
+        //out.println("| [Enter] Zoeken  [ESC] Terug naar hoofdmenu");
+
+        List<Bericht> gevondenBerichten = ui.getService().search(zoekterm, SEARCH_LIMIT);
+
+        ui.getRenderer().printBerichtenPaged(gevondenBerichten, ui.getCli(), SCREEN_LINES);
+
+        out.println("| ");
+        out.println("| Druk op [ENTER] om naar het vorige scherm te gaan.");
+        out.flush();
+
+        ui.getCli().readLine();
+    }
 }
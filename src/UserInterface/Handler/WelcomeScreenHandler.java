@@ -1,4 +1,43 @@
 package UserInterface.Handler;
 
+import java.io.PrintStream;
+
+import UserInterface.ConsoleUI;
+import database.model.Gebruiker;
+import util.CLI;
+
+/**
+ * The login screen of a session.
+ */
 public class WelcomeScreenHandler {
+    private final ConsoleUI ui;
+
+    public WelcomeScreenHandler(ConsoleUI ui) {
+        this.ui = ui;
+    }
+
+    public boolean handle() {
+        PrintStream out = ui.getOut();
+        CLI cli = ui.getCli();
+
+        ui.clearScreen();
+        out.println("+----------------------------------------------------------------------------------------------------------------");
+        out.println("| ");
+        out.println("| ======    Welkom bij TeamFlow!    =====");
+        out.println("| ");
+        out.println("| Voer je gebruikersnaam in om verder te gaan.");
+        out.println("| ");
+
+        String gebruikersnaam = cli.acceptUserInput("| Gebruikersnaam: ", CLI.SanitizationType.Alphanumeric);
+        String weergavenaam = cli.acceptUserInput("| Weergavenaam: ", CLI.SanitizationType.AlphanumericWithSpaces);
+        String sprintNummerString = cli.acceptUserInput("| Sprint #: ", CLI.SanitizationType.PositiveNumber);
+        int sprintNummer = Integer.parseInt(sprintNummerString);
+
+        //out.println("| Sprint #: ");
+        out.println("| ");
+        out.println("| ");
+
+        ui.login(new Gebruiker(gebruikersnaam, weergavenaam), sprintNummer);
+        return true;
+    }
 }
@@ -0,0 +1,192 @@
+package UserInterface;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import database.model.Bericht;
+import util.CLI;
+import util.DateFormatter;
+
+/**
+ * Draws lists of messages for one session. Lines are built in a reusable buffer and written in one go,
+ * with the timestamps from the display cache of {@link DateFormatter},
+ * instead of a formatted print per message, and lines wider than the terminal are cut off.
+ * Lists taller than the terminal are shown a screen at a time when the terminal height is known.
+ *
+ * The terminal size comes from teamflow.terminal.width / teamflow.terminal.height,
+ * or the COLUMNS / LINES environment variables. Without a height nothing is paged.
+ */
+public class ScreenRenderer {
+    private static final int DEFAULT_WIDTH = 120;
+    private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+
+    private final PrintStream out;
+    private final int width;
+    private final int height;
+
+    private final StringBuilder buffer = new StringBuilder(INITIAL_BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    // Several threads of a session may draw, e.g. live messages next to the screen.
+    // A lock rather than synchronized, so a virtual thread writing to a slow socket does not pin its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ScreenRenderer(PrintStream out) {
+        this(out, terminalSize("teamflow.terminal.width", "COLUMNS", DEFAULT_WIDTH),
+                terminalSize("teamflow.terminal.height", "LINES", 0));
+    }
+
+    /**
+     * @param out where the screen is written to
+     * @param width the number of characters per line, longer lines are cut off
+     * @param height the number of lines on the screen, 0 to never page
+     */
+    public ScreenRenderer(PrintStream out, int width, int height) {
+        this.out = out;
+        this.width = width;
+        this.height = height;
+    }
+
+    private static int terminalSize(String property, String environment, int defaultValue) {
+        String value = System.getProperty(property, System.getenv(environment));
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Writes the messages, one line each, and flushes once.
+     */
+    public void printBerichten(List<Bericht> berichten) {
+        printBerichten(berichten, 0, berichten.size());
+    }
+
+    private void printBerichten(List<Bericht> berichten, int from, int to) {
+        lock.lock();
+        try {
+            buffer.setLength(0);
+            for (int i = from; i < to; i++) {
+                appendBericht(berichten.get(i));
+            }
+
+            if (berichten.isEmpty())
+            {
+                appendLine("| <geen berichten om weer te geven>");
+            }
+            write();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the messages a screen at a time, asking to continue after every screen.
+     *
+     * @param berichten the messages to show
+     * @param cli reads the answer to the continue question
+     * @param usedLines the lines the screen needs besides the list, e.g. the header and the prompt below it
+     * @return false if the user stopped before the end
+     */
+    public boolean printBerichtenPaged(List<Bericht> berichten, CLI cli, int usedLines) {
+        int perScreen = height - usedLines;
+        if (height <= 0 || berichten.size() <= perScreen) {
+            printBerichten(berichten);
+            return true;
+        }
+        perScreen = Math.max(1, perScreen);
+
+        for (int from = 0; from < berichten.size(); from += perScreen) {
+            int to = Math.min(berichten.size(), from + perScreen);
+            printBerichten(berichten, from, to);
+
+            if (to < berichten.size()) {
+                out.print("| -- " + to + " van " + berichten.size() + ", [ENTER] voor meer, [Q] om te stoppen -- ");
+                out.flush();
+                if (cli.readLine().trim().equalsIgnoreCase("Q")) {
+                    return false;
+                }
+                // The next screens only hold the list and the continue question
+                perScreen = Math.max(1, height - 1);
+            }
+        }
+        return true;
+    }
+
+    private void appendBericht(Bericht b) {
+        int start = buffer.length();
+        buffer.append("| [");
+        buffer.append(DateFormatter.formatDisplay(b.getTijdstip()));
+        buffer.append(" | ").append(b.getAfzender()).append("] ");
+
+        // A message with line breaks stays on one line
+        String inhoud = b.getInhoud();
+        int end = Math.min(inhoud.length(), width > 0 ? width + 1 : inhoud.length());
+        for (int i = 0; i < end; i++) {
+            char c = inhoud.charAt(i);
+            buffer.append(c == '\n' || c == '\r' ? ' ' : c);
+        }
+
+        endLine(start);
+    }
+
+    private void appendLine(String line) {
+        int start = buffer.length();
+        buffer.append(line);
+        endLine(start);
+    }
+
+    private void endLine(int start) {
+        if (width > 0 && buffer.length() - start > width) {
+            buffer.setLength(start + width - 1);
+            buffer.append('…');
+        }
+        buffer.append(System.lineSeparator());
+    }
+
+    /**
+     * Encodes the buffer into the reusable byte buffer and writes it with a single write and flush.
+     */
+    private void write() {
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        bytes.clear();
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isOverflow()) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+                bytes.flip();
+                larger.put(bytes);
+                bytes = larger;
+                continue;
+            }
+            encoder.flush(bytes);
+            break;
+        }
+
+        out.write(bytes.array(), 0, bytes.position());
+        out.flush();
+    }
+}
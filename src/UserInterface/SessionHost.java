@@ -0,0 +1,133 @@
+package UserInterface;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import server.TeamflowService;
+import util.CLI;
+
+/**
+ * Hosts console sessions for plain text connections (e.g. telnet or nc): every connection gets
+ * its own {@link ConsoleUI} on its own virtual thread. A session waiting for input or for the database
+ * holds no platform thread, so one process can serve thousands of them.
+ */
+public class SessionHost implements Closeable {
+    private final TeamflowService service;
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    // Statistics
+    private final AtomicLong startedCount = new AtomicLong();
+
+    /**
+     * Opens the port and starts accepting sessions.
+     *
+     * @param service runs the operations of all sessions
+     * @param port the TCP port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public SessionHost(TeamflowService service, int port) throws IOException {
+        this.service = service;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(new InetSocketAddress(port), 1024);
+
+        this.acceptor = Thread.ofVirtual().name("teamflow-session-acceptor").start(this::accept);
+    }
+
+    /**
+     * @return the port the host listens on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                sockets.add(socket);
+                startedCount.incrementAndGet();
+                sessions.execute(() -> runSession(socket));
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Error accepting session: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void runSession(Socket socket) {
+        try (socket) {
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream()), false, StandardCharsets.UTF_8);
+            new ConsoleUI(service, new CLI(socket.getInputStream(), out)).run();
+        } catch (IOException e) {
+            System.out.println("Error in session: " + e.getMessage());
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Blocks until the host is closed.
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptor.join();
+    }
+
+    public int getSessionCount() {
+        return sockets.size();
+    }
+
+    public long getStartedCount() {
+        return startedCount.get();
+    }
+
+    /**
+     * Stops accepting sessions and ends the running ones. The service is left open.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            System.out.println("Error closing session port: " + e.getMessage());
+        }
+
+        // Closing the sockets ends the input of every session
+        for (Socket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+
+        sessions.shutdown();
+        try {
+            sessions.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SessionHost[port %d, %d sessions (%d started)]", getPort(), getSessionCount(), getStartedCount());
+    }
+}
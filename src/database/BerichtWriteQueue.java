@@ -0,0 +1,314 @@
+package database;
+
+import database.model.Bericht;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind pipeline for messages. Messages are accepted into a bounded in-memory queue and
+ * acknowledged through a future once they are committed. One writer thread takes everything
+ * that is waiting and commits it as a single batch with {@link Bericht#saveAll(java.util.Collection)},
+ * so many messages share one transaction (group commit).
+ * When the queue is full, {@link #submit(Bericht)} blocks until there is room again (backpressure).
+ * {@link Database#closeConnection()} flushes the pending messages before the connections are closed.
+ */
+public class BerichtWriteQueue {
+    // Queue settings, can be overridden with system properties (e.g. -Dteamflow.writeQueue.capacity=4096)
+    private static final int CAPACITY = Integer.getInteger("teamflow.writeQueue.capacity", 1024);
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("teamflow.writeQueue.batchSize", 256);
+
+    // Single instance of the class, created on first use
+    private static BerichtWriteQueue instance;
+
+    // Marks the end of the queue, the writer stops after committing everything before it
+    private static final PendingWrite STOP = new PendingWrite(null);
+
+    private final BlockingQueue<PendingWrite> queue;
+    private final int maxBatchSize;
+    private final Thread writer;
+
+    // Submitters hold the read lock while they check accepting and enqueue, shutdown() holds the write lock
+    // while it flips accepting and enqueues STOP. So nothing can be queued behind the stop marker.
+    private final ReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    private boolean accepting = true;
+
+    // Metrics
+    private final AtomicLong committedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong totalCommitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+
+    /**
+     * A message waiting to be written, with the future that is completed when it is committed.
+     */
+    private static class PendingWrite {
+        private final Bericht bericht;
+        private final CompletableFuture<Bericht> future = new CompletableFuture<>();
+
+        private PendingWrite(Bericht bericht) {
+            this.bericht = bericht;
+        }
+    }
+
+    /**
+     * Creates a queue and starts its writer thread.
+     *
+     * @param capacity the maximum number of messages waiting to be written
+     * @param maxBatchSize the maximum number of messages committed in one transaction
+     */
+    public BerichtWriteQueue(int capacity, int maxBatchSize) {
+        if (capacity <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be greater than 0");
+        }
+
+        // The stop marker takes a regular slot, the writer keeps taking messages until there is room for it
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+
+        // Daemon thread, so a forgotten shutdown never keeps the application alive. The shutdown hook still flushes it.
+        this.writer = new Thread(this::run, "teamflow-bericht-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Static method to get the singleton instance
+    public static synchronized BerichtWriteQueue getInstance() {
+        if (instance == null) {
+            instance = new BerichtWriteQueue(CAPACITY, MAX_BATCH_SIZE);
+
+            // Also flush when the application is stopped without closing the database
+            Runtime.getRuntime().addShutdownHook(new Thread(BerichtWriteQueue::shutdownInstance, "teamflow-bericht-flush"));
+        }
+        return instance;
+    }
+
+    /**
+     * Flushes and stops the singleton queue, if it was ever started. Called by {@link Database#closeConnection()}.
+     */
+    static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * Accepts a message for writing. Blocks while the queue is full.
+     *
+     * @param bericht the message to save
+     * @return a future that completes with the saved message (with its berichtID set) once it is committed,
+     * or completes exceptionally if saving failed
+     * @throws IllegalStateException if the queue has been shut down
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    public CompletableFuture<Bericht> submit(Bericht bericht) throws InterruptedException {
+        if (bericht == null) {
+            throw new IllegalArgumentException("Bericht cannot be null");
+        }
+
+        PendingWrite write = new PendingWrite(bericht);
+        acceptLock.readLock().lockInterruptibly();
+        try {
+            checkAccepting();
+            queue.put(write);
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        return write.future;
+    }
+
+    /**
+     * Accepts a message for writing, waiting at most the given time for room in the queue.
+     *
+     * @param bericht the message to save
+     * @param timeout how long to wait for room
+     * @param unit the unit of the timeout
+     * @return a future as with {@link #submit(Bericht)}, or null if the queue stayed full
+     * @throws IllegalStateException if the queue has been shut down
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    public CompletableFuture<Bericht> offer(Bericht bericht, long timeout, TimeUnit unit) throws InterruptedException {
+        if (bericht == null) {
+            throw new IllegalArgumentException("Bericht cannot be null");
+        }
+
+        PendingWrite write = new PendingWrite(bericht);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!acceptLock.readLock().tryLock(timeout, unit)) {
+            return null;
+        }
+        try {
+            checkAccepting();
+            long remaining = deadline - System.nanoTime();
+            return queue.offer(write, remaining, TimeUnit.NANOSECONDS) ? write.future : null;
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops accepting messages, commits everything that is still queued and stops the writer thread.
+     * Safe to call more than once and from several threads, every call returns once the writer has stopped.
+     */
+    public void shutdown() {
+        try {
+            acceptLock.writeLock().lockInterruptibly();
+            try {
+                if (accepting) {
+                    accepting = false;
+                    // No submitter holds the read lock, so the writer only makes room from here on
+                    queue.put(STOP);
+                }
+            } finally {
+                acceptLock.writeLock().unlock();
+            }
+
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Interrupted while flushing pending messages");
+            return;
+        }
+
+        // Nothing can be accepted after the stop marker, but never leave a caller waiting on a future
+        List<PendingWrite> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (PendingWrite write : leftover) {
+            if (write != STOP) {
+                failedCount.incrementAndGet();
+                write.future.completeExceptionally(new IllegalStateException("Write queue has been shut down"));
+            }
+        }
+    }
+
+    private void checkAccepting() {
+        if (!accepting) {
+            throw new IllegalStateException("Write queue has been shut down");
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+
+        while (!stopping) {
+            try {
+                // Wait for the first message, then take whatever else is already waiting
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+            } catch (InterruptedException e) {
+                // Only shutdown() stops the writer, keep going
+                continue;
+            }
+
+            // Everything queued before the stop marker still gets written
+            int stop = batch.indexOf(STOP);
+            if (stop >= 0) {
+                stopping = true;
+                batch.remove(stop);
+                queue.drainTo(batch);
+            }
+
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Bericht> berichten = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            berichten.add(write.bericht);
+        }
+
+        long start = System.nanoTime();
+        try {
+            Bericht.saveAll(berichten);
+            recordCommit(System.nanoTime() - start, batch.size());
+
+            for (PendingWrite write : batch) {
+                write.future.complete(write.bericht);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // One bad message must not fail the others, so save them one by one
+            for (PendingWrite write : batch) {
+                saveSingle(write);
+            }
+        }
+    }
+
+    private void saveSingle(PendingWrite write) {
+        long start = System.nanoTime();
+        try {
+            write.bericht.save();
+            recordCommit(System.nanoTime() - start, 1);
+            write.future.complete(write.bericht);
+        } catch (SQLException | RuntimeException e) {
+            failedCount.incrementAndGet();
+            System.out.println("Error saving queued message: " + e.getMessage());
+            write.future.completeExceptionally(e);
+        }
+    }
+
+    private void recordCommit(long nanos, int messages) {
+        committedCount.addAndGet(messages);
+        batchCount.incrementAndGet();
+        totalCommitNanos.addAndGet(nanos);
+        maxCommitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Metrics
+
+    /**
+     * @return the number of messages waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCommittedCount() {
+        return committedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0.0 : committedCount.get() / (double) batches;
+    }
+
+    public double getAverageCommitMillis() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0.0 : totalCommitNanos.get() / (double) batches / 1_000_000.0;
+    }
+
+    public double getMaxCommitMillis() {
+        return maxCommitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BerichtWriteQueue[depth %d, %d committed in %d batches (avg %.1f per batch), %d failed, avg commit %.3f ms, max commit %.3f ms]",
+                getQueueDepth(), getCommittedCount(), getBatchCount(), getAverageBatchSize(),
+                getFailedCount(), getAverageCommitMillis(), getMaxCommitMillis());
+    }
+}
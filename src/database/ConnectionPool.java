@@ -0,0 +1,305 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded pool of SQLite connections to a single database file.
+ * The database is put in WAL mode so that any number of readers can run next to one writer.
+ * Read connections are leased from a fixed set of read-only connections,
+ * all writes go through one dedicated writer connection.
+ * Every lease has to be handed back with {@link #release(Connection)}.
+ * Each connection has its own {@link StatementCache}.
+ */
+public class ConnectionPool {
+    private final Connection writer;
+    private final ReentrantLock writerLock = new ReentrantLock(true);
+
+    private final List<Connection> readers = new ArrayList<>();
+    private final BlockingQueue<Connection> idleReaders;
+
+    // One statement cache per connection, filled in the constructor and read-only afterwards
+    private final Map<Connection, StatementCache> statementCaches = new IdentityHashMap<>();
+
+    private final long leaseTimeoutMillis;
+
+    // Lease statistics
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger readersInUse = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    /**
+     * Opens the writer connection and the given number of reader connections.
+     *
+     * @param url the JDBC url of the SQLite database
+     * @param readerCount the number of read-only connections, 0 routes all reads through the writer
+     * @param leaseTimeoutMillis how long a lease may wait for a free connection before failing
+     * @param statementCacheSize the number of prepared statements cached per connection
+     * @throws SQLException if one of the connections cannot be opened
+     */
+    public ConnectionPool(String url, int readerCount, long leaseTimeoutMillis, int statementCacheSize) throws SQLException {
+        if (readerCount < 0) {
+            throw new IllegalArgumentException("ReaderCount cannot be negative");
+        }
+
+        this.leaseTimeoutMillis = leaseTimeoutMillis;
+        this.idleReaders = new ArrayBlockingQueue<>(Math.max(1, readerCount));
+
+        // The writer switches the database file to WAL mode, which is persistent for the file
+        this.writer = DriverManager.getConnection(url);
+        try (Statement stmt = writer.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA busy_timeout = " + leaseTimeoutMillis);
+        }
+        statementCaches.put(writer, new StatementCache(writer, statementCacheSize));
+
+        try {
+            for (int i = 0; i < readerCount; i++) {
+                Connection reader = DriverManager.getConnection(url);
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA query_only = ON");
+                    stmt.execute("PRAGMA busy_timeout = " + leaseTimeoutMillis);
+                }
+                readers.add(reader);
+                statementCaches.put(reader, new StatementCache(reader, statementCacheSize));
+                idleReaders.add(reader);
+            }
+        } catch (SQLException e) {
+            // Don't leave half a pool open. Not close(), a subclass could override it before it is constructed
+            closeConnections();
+            throw e;
+        }
+    }
+
+    /**
+     * Leases a read-only connection.
+     * If the calling thread currently holds the writer, the writer is returned instead
+     * so that reads inside a write see its own uncommitted changes.
+     *
+     * @return a connection that must be handed back with {@link #release(Connection)}
+     * @throws SQLException if the pool is closed or no connection became available in time
+     */
+    public Connection leaseReader() throws SQLException {
+        if (readers.isEmpty() || writerLock.isHeldByCurrentThread()) {
+            return leaseWriter();
+        }
+
+        checkOpen();
+
+        long start = System.nanoTime();
+        Connection conn;
+        try {
+            conn = idleReaders.poll(leaseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (conn == null) {
+            throw new SQLException("Timed out after " + leaseTimeoutMillis + " ms waiting for a read connection");
+        }
+
+        readersInUse.incrementAndGet();
+        return conn;
+    }
+
+    /**
+     * Leases the writer connection. The writer is reentrant, a thread that already
+     * holds it gets it again and has to release it once for every lease.
+     *
+     * @return the writer connection, must be handed back with {@link #release(Connection)}
+     * @throws SQLException if the pool is closed or the writer did not become available in time
+     */
+    public Connection leaseWriter() throws SQLException {
+        checkOpen();
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = writerLock.tryLock(leaseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the write connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        if (!acquired) {
+            throw new SQLException("Timed out after " + leaseTimeoutMillis + " ms waiting for the write connection");
+        }
+
+        return writer;
+    }
+
+    /**
+     * Hands a leased connection back to the pool. Passing null is a no-op.
+     *
+     * @param conn the connection to return
+     */
+    public void release(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+
+        if (conn == writer) {
+            writerLock.unlock();
+            return;
+        }
+
+        readersInUse.decrementAndGet();
+        idleReaders.offer(conn);
+    }
+
+    /**
+     * Returns a cached prepared statement for a connection leased from this pool.
+     * The statement must not be closed by the caller.
+     *
+     * @param conn a connection leased from this pool
+     * @param sql the SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return an open statement with its parameters cleared
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+        StatementCache cache = statementCaches.get(conn);
+        if (cache == null) {
+            throw new SQLException("Connection does not belong to this pool");
+        }
+        return cache.prepare(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Closes every connection of the pool, after closing their cached statements. Leases after this call fail.
+     */
+    public void close() {
+        closeConnections();
+    }
+
+    private void closeConnections() {
+        closed = true;
+
+        for (Connection reader : readers) {
+            closeQuietly(reader);
+        }
+        closeQuietly(writer);
+    }
+
+    private void checkOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        leaseCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+
+        StatementCache cache = statementCaches.get(conn);
+        if (cache != null) {
+            cache.clear();
+        }
+
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing pooled connection: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Statistics
+
+    public int getReaderCount() {
+        return readers.size();
+    }
+
+    public int getReadersInUse() {
+        return readersInUse.get();
+    }
+
+    public boolean isWriterInUse() {
+        return writerLock.isLocked();
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    public double getAverageLeaseWaitMillis() {
+        long count = leaseCount.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    public double getMaxLeaseWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return the fraction of all connections (readers and writer) that is currently leased, between 0 and 1
+     */
+    public double getUtilization() {
+        int inUse = getReadersInUse() + (isWriterInUse() ? 1 : 0);
+        return inUse / (double) (getReaderCount() + 1);
+    }
+
+    public long getStatementCacheHits() {
+        long hits = 0;
+        for (StatementCache cache : statementCaches.values()) {
+            hits += cache.getHits();
+        }
+        return hits;
+    }
+
+    public long getStatementCacheMisses() {
+        long misses = 0;
+        for (StatementCache cache : statementCaches.values()) {
+            misses += cache.getMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * @return the SQL text of the statements cached on any of the connections, sorted
+     */
+    public Set<String> getCachedSql() {
+        Set<String> sql = new TreeSet<>();
+        for (StatementCache cache : statementCaches.values()) {
+            sql.addAll(cache.getSql());
+        }
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[readers %d/%d in use, writer %s, %d leases, avg wait %.3f ms, max wait %.3f ms, statement cache %d hits/%d misses]",
+                getReadersInUse(), getReaderCount(), isWriterInUse() ? "in use" : "idle",
+                getLeaseCount(), getAverageLeaseWaitMillis(), getMaxLeaseWaitMillis(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+}
@@ -3,23 +3,30 @@ package database;
 import java.sql.*;
 
 public class Database {
-    private static final String DB_URL = "jdbc:sqlite:database/db.sqlite";
+    // Connection settings, can be overridden with system properties (e.g. -Dteamflow.db.readers=8)
+    private static final String DB_URL = System.getProperty("teamflow.db.url", "jdbc:sqlite:database/db.sqlite");
+    private static final int READER_COUNT = Integer.getInteger("teamflow.db.readers", 4);
+    private static final long LEASE_TIMEOUT_MS = Long.getLong("teamflow.db.leaseTimeoutMs", 10_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("teamflow.db.statementCacheSize", 32);
 
     // Single instance of the class
     private static Database instance;
 
-    // Database connection
-    private Connection connection;
+    // Pool of database connections
+    private ConnectionPool pool;
 
     private final boolean log = false;
 
     // Private constructor to prevent instantiation
     private Database() {
-        // Initialize connection in constructor
+        // Initialize connection pool in constructor
         try {
             if (log) System.out.println("Connecting to: " + DB_URL);
-            this.connection = DriverManager.getConnection(DB_URL);
-            if (log) System.out.println("Connection to SQLite has been established.");
+            this.pool = new ConnectionPool(DB_URL, READER_COUNT, LEASE_TIMEOUT_MS, STATEMENT_CACHE_SIZE);
+            if (log) System.out.println("Connection pool to SQLite has been established with " + READER_COUNT + " readers.");
+
+            // Query statistics can be switched on and read through JMX (jconsole), even while sampling is off
+            QueryStats.getInstance().registerMBean();
         } catch (SQLException e) {
             System.out.println("Connection error: " + e.getMessage());
             e.printStackTrace();
@@ -34,21 +41,49 @@ public class Database {
         return instance;
     }
 
-    // Get the database connection
-    public Connection getConnection() {
-        return connection;
+    // Lease a read-only connection, hand it back with releaseConnection
+    public Connection getReadConnection() throws SQLException {
+        return getPool().leaseReader();
+    }
+
+    // Lease the single writer connection, hand it back with releaseConnection
+    public Connection getWriteConnection() throws SQLException {
+        return getPool().leaseWriter();
+    }
+
+    // Return a leased connection to the pool
+    public void releaseConnection(Connection connection) {
+        if (pool != null) {
+            pool.release(connection);
+        }
+    }
+
+    // Get a cached prepared statement for a leased connection, the statement must not be closed
+    public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException {
+        return getPool().prepare(connection, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    // Get a cached prepared statement that returns generated keys, the statement must not be closed
+    public PreparedStatement prepareStatement(Connection connection, String sql, int autoGeneratedKeys) throws SQLException {
+        return getPool().prepare(connection, sql, autoGeneratedKeys);
     }
 
-    // Close the connection when needed
+    // Get the pool, e.g. for its lease and statement cache statistics
+    public ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("No connection to the database");
+        }
+        return pool;
+    }
+
+    // Close the connections when needed, pending queued messages are written first
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                System.out.println("Database connection closed.");
-            } catch (SQLException e) {
-                System.out.println("Error closing connection: " + e.getMessage());
-                e.printStackTrace();
-            }
+        BerichtWriteQueue.shutdownInstance();
+
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            System.out.println("Database connection closed.");
         }
     }
-}
\ No newline at end of file
+}
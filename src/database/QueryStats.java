@@ -0,0 +1,294 @@
+package database;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Latency and row counts per SQL statement, for the statements handed out by the {@link StatementCache}s of the pool.
+ * A statement is identified by its SQL text, which is its shape: the values are bind parameters.
+ * <p>
+ * Sampling is off by default. The caches then hand out the driver's statements as they are and nothing is measured.
+ * With a sample rate above 0 (-Dteamflow.db.querySampleRate=0.1, or through JMX) the statements are wrapped,
+ * see {@link TimedStatement}, and that fraction of the executions is timed from execute until the result set
+ * is closed, so the time spent stepping through the rows counts as well.
+ * Timed executions slower than -Dteamflow.db.slowQueryMs are logged with their bind parameters,
+ * which are redacted unless -Dteamflow.db.slowQueryRedact=false.
+ */
+public class QueryStats implements QueryStatsMBean {
+    // Values of text parameters are cut off at this length in the slow query log
+    private static final int MAX_PARAMETER_LENGTH = 64;
+
+    // Read on every prepare, so it is a static field instead of behind the instance
+    private static volatile double sampleRate = Double.parseDouble(System.getProperty("teamflow.db.querySampleRate", "0"));
+
+    // Single instance of the class
+    private static QueryStats instance;
+
+    private volatile long slowQueryMillis = Long.getLong("teamflow.db.slowQueryMs", 0L);
+    private volatile boolean redactParameters = Boolean.parseBoolean(System.getProperty("teamflow.db.slowQueryRedact", "true"));
+
+    // SQL text -> statistics of that statement
+    private final ConcurrentHashMap<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final LongAdder slowQueries = new LongAdder();
+
+    /**
+     * The statistics of one statement.
+     */
+    public static class Shape {
+        private final String sql;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+        Shape(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getExecutions() {
+            return latency.getCount();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        void reset() {
+            latency.reset();
+            rows.reset();
+            errors.reset();
+        }
+    }
+
+    // Private constructor to prevent instantiation
+    private QueryStats() {
+    }
+
+    // Static method to get the singleton instance
+    public static synchronized QueryStats getInstance() {
+        if (instance == null) {
+            instance = new QueryStats();
+        }
+        return instance;
+    }
+
+    /**
+     * @return true if statements have to be wrapped to be measured
+     */
+    static boolean isSampling() {
+        return sampleRate > 0;
+    }
+
+    /**
+     * @return true if this execution is to be timed
+     */
+    static boolean sample() {
+        double rate = sampleRate;
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    Shape shape(String sql) {
+        return shapes.computeIfAbsent(sql, Shape::new);
+    }
+
+    boolean isLoggingParameters() {
+        return slowQueryMillis > 0;
+    }
+
+    /**
+     * Records a timed execution and logs it if it was slow.
+     *
+     * @param parameters the bound parameters by index (index 0 unused), null if they were not kept
+     */
+    void record(Shape shape, long nanos, long rows, Object[] parameters) {
+        long micros = nanos / 1_000;
+        shape.latency.record(micros);
+        shape.rows.add(rows);
+
+        long threshold = slowQueryMillis;
+        if (threshold > 0 && micros >= threshold * 1_000) {
+            slowQueries.increment();
+            System.out.println(String.format(Locale.ROOT, "Slow query (%.1f ms, %d rows): %s%s",
+                    micros / 1000.0, rows, oneLine(shape.sql), formatParameters(parameters)));
+        }
+    }
+
+    void recordError(Shape shape) {
+        shape.errors.increment();
+    }
+
+    /**
+     * Registers the statistics with the platform MBean server as teamflow:type=QueryStats, once.
+     */
+    public synchronized void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("teamflow:type=QueryStats");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            System.out.println("Error registering query statistics with JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the statements measured so far, the ones with the most total time first
+     */
+    public List<Shape> getShapes() {
+        List<Shape> list = new ArrayList<>(shapes.values());
+        list.removeIf(shape -> shape.getExecutions() == 0 && shape.getErrors() == 0);
+        list.sort(Comparator.comparingLong((Shape shape) -> shape.latency.getTotalMicros()).reversed());
+        return list;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Query statistics, sample rate %.3f, %d slow queries%n", sampleRate, getSlowQueries()));
+        out.append(String.format(Locale.ROOT, "%8s %10s %6s %9s %9s %9s %9s %9s  %s%n",
+                "count", "rows", "errors", "total ms", "mean ms", "p50 ms", "p99 ms", "max ms", "sql"));
+        for (Shape shape : getShapes()) {
+            LatencyHistogram latency = shape.latency;
+            out.append(String.format(Locale.ROOT, "%8d %10d %6d %9.1f %9.3f %9.3f %9.3f %9.3f  %s%n",
+                    shape.getExecutions(), shape.getRows(), shape.getErrors(),
+                    latency.getTotalMicros() / 1000.0, latency.getMeanMicros() / 1000.0,
+                    latency.getPercentileMicros(50) / 1000.0, latency.getPercentileMicros(99) / 1000.0,
+                    latency.getMaxMicros() / 1000.0, oneLine(shape.sql)));
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Shape shape : shapes.values()) {
+            shape.reset();
+        }
+        slowQueries.reset();
+    }
+
+    // JMX attributes
+
+    @Override
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Statements already handed out keep being measured or not until they are prepared again.
+     */
+    @Override
+    public void setSampleRate(double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("SampleRate must be between 0 and 1");
+        }
+        QueryStats.sampleRate = sampleRate;
+    }
+
+    @Override
+    public long getSlowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    @Override
+    public void setSlowQueryMillis(long slowQueryMillis) {
+        this.slowQueryMillis = slowQueryMillis;
+    }
+
+    @Override
+    public boolean isRedactParameters() {
+        return redactParameters;
+    }
+
+    @Override
+    public void setRedactParameters(boolean redactParameters) {
+        this.redactParameters = redactParameters;
+    }
+
+    @Override
+    public int getStatementShapes() {
+        return getShapes().size();
+    }
+
+    @Override
+    public long getExecutions() {
+        long executions = 0;
+        for (Shape shape : shapes.values()) {
+            executions += shape.getExecutions();
+        }
+        return executions;
+    }
+
+    @Override
+    public long getErrors() {
+        long errors = 0;
+        for (Shape shape : shapes.values()) {
+            errors += shape.getErrors();
+        }
+        return errors;
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    /**
+     * Formats the parameters for the slow query log. Redacted, only the type of a value is shown
+     * and the length of a text, so message contents and usernames stay out of the log.
+     */
+    String formatParameters(Object[] parameters) {
+        if (parameters == null || parameters.length <= 1) {
+            return "";
+        }
+
+        boolean redact = redactParameters;
+        StringBuilder out = new StringBuilder(" [");
+        for (int i = 1; i < parameters.length; i++) {
+            if (i > 1) {
+                out.append(", ");
+            }
+            Object value = parameters[i];
+            out.append('?').append(i).append('=');
+            if (value == null) {
+                out.append("NULL");
+            } else if (value instanceof CharSequence text) {
+                if (redact) {
+                    out.append("<text ").append(text.length()).append('>');
+                } else {
+                    String shown = text.length() > MAX_PARAMETER_LENGTH ? text.subSequence(0, MAX_PARAMETER_LENGTH) + "..." : text.toString();
+                    out.append('\'').append(shown.replace("'", "''")).append('\'');
+                }
+            } else if (redact) {
+                out.append('<').append(value.getClass().getSimpleName().toLowerCase(Locale.ROOT)).append('>');
+            } else {
+                out.append(value);
+            }
+        }
+        return out.append(']').toString();
+    }
+
+    private static String oneLine(String sql) {
+        return sql.replaceAll("\\s+", " ").strip();
+    }
+}
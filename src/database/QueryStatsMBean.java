@@ -0,0 +1,33 @@
+package database;
+
+/**
+ * The JMX view of {@link QueryStats}, registered as teamflow:type=QueryStats.
+ */
+public interface QueryStatsMBean {
+    double getSampleRate();
+
+    void setSampleRate(double sampleRate);
+
+    long getSlowQueryMillis();
+
+    void setSlowQueryMillis(long slowQueryMillis);
+
+    boolean isRedactParameters();
+
+    void setRedactParameters(boolean redactParameters);
+
+    int getStatementShapes();
+
+    long getExecutions();
+
+    long getErrors();
+
+    long getSlowQueries();
+
+    /**
+     * @return the statistics per statement as a table, the statements with the most total time first
+     */
+    String dump();
+
+    void reset();
+}
@@ -0,0 +1,160 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An LRU cache of prepared statements for one connection, keyed by SQL text.
+ * Statements handed out by the cache stay open and are reused by the next caller with the same SQL,
+ * so callers only close their ResultSets, never the statement itself.
+ * When the cache is full the least recently used statement is closed.
+ */
+public class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    // The QueryStats wrappers of the cached statements, made on first use while sampling is on
+    private final Map<PreparedStatement, PreparedStatement> timed = new IdentityHashMap<>();
+
+    // Cache statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty cache for the given connection.
+     *
+     * @param connection the connection the statements are prepared on
+     * @param capacity the maximum number of statements kept open
+     */
+    public StatementCache(Connection connection, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+
+        this.connection = connection;
+        this.capacity = capacity;
+        // Access order makes the first entry the least recently used one
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, preparing it on a cache miss.
+     *
+     * @param sql the SQL text
+     * @return an open statement with its parameters cleared
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, preparing it on a cache miss.
+     *
+     * @param sql the SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return an open statement with its parameters cleared, wrapped to measure it while {@link QueryStats} is sampling
+     * @throws SQLException if the statement cannot be prepared
+     */
+    public synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        // Statements that return generated keys are prepared differently, so they get their own entry
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+
+        PreparedStatement stmt = statements.get(key);
+        if (stmt != null && !stmt.isClosed()) {
+            hits.incrementAndGet();
+            stmt = instrument(sql, stmt);
+            stmt.clearParameters();
+            return stmt;
+        }
+
+        misses.incrementAndGet();
+        stmt = connection.prepareStatement(sql, autoGeneratedKeys);
+        statements.put(key, stmt);
+
+        if (statements.size() > capacity) {
+            evictEldest();
+        }
+
+        return instrument(sql, stmt);
+    }
+
+    private PreparedStatement instrument(String sql, PreparedStatement stmt) {
+        if (!QueryStats.isSampling()) {
+            return stmt;
+        }
+        return timed.computeIfAbsent(stmt, s -> TimedStatement.wrap(s, sql));
+    }
+
+    /**
+     * Closes and removes every cached statement. Must be called before the connection is closed.
+     */
+    public synchronized void clear() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+        timed.clear();
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        PreparedStatement eldest = it.next().getValue();
+        it.remove();
+        timed.remove(eldest);
+        evictions.incrementAndGet();
+        closeQuietly(eldest);
+    }
+
+    private void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing cached statement: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return the SQL text of every statement in the cache, e.g. to check their query plans
+     */
+    public synchronized Set<String> getSql() {
+        Set<String> sql = new LinkedHashSet<>();
+        for (String key : statements.keySet()) {
+            sql.add(key.startsWith("K:") ? key.substring(2) : key);
+        }
+        return sql;
+    }
+
+    // Statistics
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+}
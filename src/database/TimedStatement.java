@@ -0,0 +1,181 @@
+package database;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Wraps a cached PreparedStatement to feed {@link QueryStats}. Only used while sampling is on,
+ * otherwise the {@link StatementCache} hands out the driver's statement itself.
+ * An update or batch is timed until it returns, a query until its result set is closed or runs out of rows.
+ * Like the statement it wraps, a wrapper is only used by the thread that leased its connection.
+ */
+final class TimedStatement implements InvocationHandler {
+    private final PreparedStatement statement;
+    private final QueryStats stats;
+    private final QueryStats.Shape shape;
+
+    // Bound parameters by index, kept only while the slow query log is on
+    private Object[] parameters = new Object[0];
+
+    private TimedStatement(PreparedStatement statement, String sql) {
+        this.statement = statement;
+        this.stats = QueryStats.getInstance();
+        this.shape = stats.shape(sql);
+    }
+
+    /**
+     * @return a statement that measures the executions of the given one
+     */
+    static PreparedStatement wrap(PreparedStatement statement, String sql) {
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, new TimedStatement(statement, sql));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (name) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "Timed" + statement;
+            };
+        }
+
+        // The execute methods of PreparedStatement take no arguments, the ones with SQL text belong to Statement
+        if (args == null && name.startsWith("execute") && QueryStats.sample()) {
+            return timed(name, method);
+        }
+
+        if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+            keepParameter(index, name.equals("setNull") ? null : args[1]);
+        } else if (name.equals("clearParameters")) {
+            Arrays.fill(parameters, null);
+        }
+
+        return call(method, args);
+    }
+
+    private Object timed(String name, Method method) throws Throwable {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = call(method, null);
+        } catch (SQLException e) {
+            stats.recordError(shape);
+            throw e;
+        }
+
+        switch (name) {
+            case "executeQuery" -> {
+                // Stepping through the rows is where SQLite does most of the work, so the query ends at close
+                return TimedResultSet.wrap((ResultSet) result, this, start);
+            }
+            case "executeUpdate", "executeLargeUpdate" -> record(start, ((Number) result).longValue());
+            case "executeBatch", "executeLargeBatch" -> {
+                long rows = 0;
+                int length = Array.getLength(result);
+                for (int i = 0; i < length; i++) {
+                    rows += Math.max(0, ((Number) Array.get(result, i)).longValue());
+                }
+                record(start, rows);
+            }
+            default -> record(start, Boolean.TRUE.equals(result) ? 0 : Math.max(0, statement.getUpdateCount()));
+        }
+        return result;
+    }
+
+    void record(long start, long rows) {
+        stats.record(shape, System.nanoTime() - start, rows, stats.isLoggingParameters() ? parameters : null);
+    }
+
+    private void keepParameter(int index, Object value) {
+        if (!stats.isLoggingParameters()) {
+            return;
+        }
+        if (index >= parameters.length) {
+            parameters = Arrays.copyOf(parameters, index + 1);
+        }
+        parameters[index] = value;
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Counts the rows of a timed query and records it when the rows run out or the result set is closed.
+     */
+    private static final class TimedResultSet implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final TimedStatement owner;
+        private final long start;
+        private long rows = 0;
+        private boolean recorded = false;
+
+        private TimedResultSet(ResultSet resultSet, TimedStatement owner, long start) {
+            this.resultSet = resultSet;
+            this.owner = owner;
+            this.start = start;
+        }
+
+        static ResultSet wrap(ResultSet resultSet, TimedStatement owner, long start) {
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, new TimedResultSet(resultSet, owner, start));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (name) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "Timed" + resultSet;
+                };
+            }
+
+            Object result;
+            try {
+                result = method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                if (!recorded && e.getCause() instanceof SQLException) {
+                    recorded = true;
+                    owner.stats.recordError(owner.shape);
+                }
+                throw e.getCause();
+            }
+
+            if (name.equals("next")) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    finish();
+                }
+            } else if (name.equals("close")) {
+                finish();
+            }
+            return result;
+        }
+
+        private void finish() {
+            if (!recorded) {
+                recorded = true;
+                owner.record(start, rows);
+            }
+        }
+    }
+}
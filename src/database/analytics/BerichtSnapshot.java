@@ -0,0 +1,578 @@
+package database.analytics;
+
+import database.Database;
+import database.model.AfzenderDictionary;
+import database.model.Bericht;
+import util.DateFormatter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The whole BERICHT table in memory as columns of primitives, for reports and history replays that would
+ * otherwise hold a List of Bericht. A message is a row number into the columns: int arrays for the berichtID
+ * and the sprint, the tijdstip as epoch milliseconds in a long array, the sender as a code into an {@link AfzenderDictionary}
+ * of user names, and the content as UTF-8 in one shared byte array. Scans, filters and counts run over
+ * those arrays, a Bericht or a String is only made for the rows that are asked for.
+ * <p>
+ * The rows are in berichtID order. {@link #refresh()} appends the messages above the highest berichtID seen,
+ * and reloads everything when the number of messages in SPRINT_STATS shows that rows below it were deleted
+ * or inserted. Changes to the content of an existing message are not noticed, {@link #reload()} picks those up.
+ * <p>
+ * Not thread-safe: refresh from the thread that scans, or guard the snapshot with a lock.
+ */
+public class BerichtSnapshot {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_CONTENT_CAPACITY = 64 * 1024;
+
+    // Rough object sizes on a 64-bit JVM with compressed references, for getMemoryBytes()
+    private static final int ARRAY_HEADER = 16;
+    private static final int STRING_OVERHEAD = 24 + ARRAY_HEADER;
+    private static final int MAP_ENTRY = 32 + 16;
+
+    // Reads a long out of the content bytes, for the search
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final String MESSAGES_SQL = "SELECT berichtID, tijdstip, afzender, sprintNummer, inhoud "
+            + "FROM BERICHT WHERE berichtID > ? ORDER BY berichtID";
+    // Kept up to date by the triggers, so this is a sum over the sprints rather than a count of the messages
+    private static final String COUNT_SQL = "SELECT COALESCE(SUM(berichtCount), 0) FROM SPRINT_STATS";
+
+    private int size;
+    private int[] berichtID = new int[INITIAL_CAPACITY];
+    private int[] sprint = new int[INITIAL_CAPACITY];
+    private long[] tijdstip = new long[INITIAL_CAPACITY];
+    private int[] afzender = new int[INITIAL_CAPACITY];
+    // The content of row i is inhoud[inhoudEinde[i - 1] .. inhoudEinde[i]), the first row starts at 0
+    private int[] inhoudEinde = new int[INITIAL_CAPACITY];
+    private byte[] inhoud = new byte[INITIAL_CONTENT_CAPACITY];
+
+    // Sender codes of this snapshot, replaced on a reload
+    private AfzenderDictionary afzenders = new AfzenderDictionary(Integer.MAX_VALUE);
+
+    private long refreshCount;
+    private long reloadCount;
+
+    /**
+     * Creates an empty snapshot, {@link #refresh()} fills it.
+     */
+    public BerichtSnapshot() {
+    }
+
+    /**
+     * @return a snapshot of all messages
+     * @throws SQLException if the messages cannot be read
+     */
+    public static BerichtSnapshot load() throws SQLException {
+        BerichtSnapshot snapshot = new BerichtSnapshot();
+        snapshot.refresh();
+        return snapshot;
+    }
+
+    /**
+     * Reads the messages added since the last refresh. The count and the new rows are read in one read transaction,
+     * when they do not add up the snapshot is reloaded from scratch.
+     *
+     * @return the number of rows read
+     * @throws SQLException if the messages cannot be read, the snapshot is empty then
+     */
+    public int refresh() throws SQLException {
+        return read(false);
+    }
+
+    /**
+     * Reads every message again, e.g. after messages were edited.
+     *
+     * @return the number of rows read
+     * @throws SQLException if the messages cannot be read, the snapshot is empty then
+     */
+    public int reload() throws SQLException {
+        return read(true);
+    }
+
+    private int read(boolean full) throws SQLException {
+        Connection conn = null;
+        boolean autoCommit = false;
+
+        try {
+            // Lease a read connection from the pool
+            conn = Database.getInstance().getReadConnection();
+
+            // A read transaction, so the count and the rows see the same messages. Inside a transaction
+            // of the writer (the pool hands that out to its owner) that is already the case.
+            autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+
+            long count;
+            PreparedStatement countStmt = Database.getInstance().prepareStatement(conn, COUNT_SQL);
+            try (ResultSet rs = countStmt.executeQuery()) {
+                count = rs.next() ? rs.getLong(1) : 0;
+            }
+
+            boolean fromScratch = full || size == 0 || count < size;
+            if (fromScratch) {
+                clear();
+            }
+            int rows = append(conn);
+
+            if (size != count) {
+                // Messages below the highest berichtID were deleted or added
+                clear();
+                fromScratch = true;
+                rows = append(conn);
+            }
+
+            if (fromScratch) {
+                // Later refreshes usually add a few rows at most, so the slack of the growth goes
+                trim();
+                reloadCount++;
+            }
+
+            refreshCount++;
+            return rows;
+
+        } catch (SQLException e) {
+            // Half a refresh is worse than none
+            clear();
+            throw e;
+        } finally {
+            if (conn != null && autoCommit) {
+                try {
+                    // Ends the read transaction, nothing was written
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.out.println("Error ending read transaction: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+
+            // Return the connection to the pool
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    private int append(Connection conn) throws SQLException {
+        PreparedStatement stmt = Database.getInstance().prepareStatement(conn, MESSAGES_SQL);
+        stmt.setInt(1, size > 0 ? berichtID[size - 1] : 0);
+
+        int before = size;
+        // Statements are cached by the pool, only the result set is closed
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (size == berichtID.length) {
+                    grow();
+                }
+                berichtID[size] = rs.getInt(1);
+                tijdstip[size] = DateFormatter.getEpochMillis(rs, 2);
+                afzender[size] = afzenders.add(rs.getString(3));
+                sprint[size] = rs.getInt(4);
+
+                // The driver hands out the UTF-8 of a TEXT column as it is stored, no String in between
+                byte[] bytes = rs.getBytes(5);
+                int start = size > 0 ? inhoudEinde[size - 1] : 0;
+                int length = bytes != null ? bytes.length : 0;
+                if (start + length > inhoud.length) {
+                    inhoud = Arrays.copyOf(inhoud, Math.max(start + length, inhoud.length + (inhoud.length >> 1)));
+                }
+                if (length > 0) {
+                    System.arraycopy(bytes, 0, inhoud, start, length);
+                }
+                inhoudEinde[size] = start + length;
+
+                size++;
+            }
+        }
+        return size - before;
+    }
+
+    private void grow() {
+        int capacity = berichtID.length + (berichtID.length >> 1);
+        berichtID = Arrays.copyOf(berichtID, capacity);
+        sprint = Arrays.copyOf(sprint, capacity);
+        tijdstip = Arrays.copyOf(tijdstip, capacity);
+        afzender = Arrays.copyOf(afzender, capacity);
+        inhoudEinde = Arrays.copyOf(inhoudEinde, capacity);
+    }
+
+    private void trim() {
+        int capacity = Math.max(size, 16);
+        berichtID = Arrays.copyOf(berichtID, capacity);
+        sprint = Arrays.copyOf(sprint, capacity);
+        tijdstip = Arrays.copyOf(tijdstip, capacity);
+        afzender = Arrays.copyOf(afzender, capacity);
+        inhoudEinde = Arrays.copyOf(inhoudEinde, capacity);
+        inhoud = Arrays.copyOf(inhoud, Math.max((int) getInhoudBytes(), 16));
+    }
+
+    private void clear() {
+        // The arrays are kept, a reload fills them again
+        size = 0;
+        afzenders = new AfzenderDictionary(Integer.MAX_VALUE);
+    }
+
+    // Rows
+
+    /**
+     * @return the number of messages
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the row of the message, or -1 if it is not in the snapshot
+     */
+    public int rowOf(int id) {
+        int row = Arrays.binarySearch(berichtID, 0, size, id);
+        return row >= 0 ? row : -1;
+    }
+
+    public int getBerichtID(int row) {
+        return berichtID[check(row)];
+    }
+
+    public int getSprintNummer(int row) {
+        return sprint[check(row)];
+    }
+
+    /**
+     * @return the tijdstip as stored, see {@link DateFormatter#fromEpochMillis(long)}
+     */
+    public long getTijdstipMillis(int row) {
+        return tijdstip[check(row)];
+    }
+
+    public LocalDateTime getTijdstip(int row) {
+        return DateFormatter.fromEpochMillis(tijdstip[check(row)]);
+    }
+
+    public String getAfzender(int row) {
+        return afzenders.name(afzender[check(row)]);
+    }
+
+    /**
+     * @return the content, decoded from UTF-8 on every call
+     */
+    public String getInhoud(int row) {
+        int start = inhoudStart(check(row));
+        return new String(inhoud, start, inhoudEinde[row] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the message in the row as a Bericht, a new object on every call
+     */
+    public Bericht getBericht(int row) {
+        return new Bericht(getBerichtID(row), getInhoud(row), getTijdstip(row), getAfzender(row), getSprintNummer(row));
+    }
+
+    /**
+     * @param rows rows, e.g. from {@link #select}
+     * @return the messages in those rows, in that order
+     */
+    public List<Bericht> getBerichten(int[] rows) {
+        List<Bericht> berichten = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            berichten.add(getBericht(row));
+        }
+        return berichten;
+    }
+
+    private int check(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for " + size + " messages");
+        }
+        return row;
+    }
+
+    private int inhoudStart(int row) {
+        return row > 0 ? inhoudEinde[row - 1] : 0;
+    }
+
+    // Scans
+
+    /**
+     * Selects messages, in berichtID order. Every condition is optional.
+     *
+     * @param sprintNummer the sprint, 0 or less for every sprint
+     * @param afzender the sender, null for every sender
+     * @param van the first tijdstip (inclusive), null for no lower bound
+     * @param tot the last tijdstip (exclusive), null for no upper bound
+     * @return the rows of the messages that match
+     */
+    public int[] select(int sprintNummer, String afzender, LocalDateTime van, LocalDateTime tot) {
+        int code = AfzenderDictionary.NONE;
+        if (afzender != null) {
+            code = afzenders.code(afzender);
+            if (code == AfzenderDictionary.NONE) {
+                return new int[0];
+            }
+        }
+        long from = van != null ? DateFormatter.toEpochMillis(van) : Long.MIN_VALUE;
+        long to = tot != null ? DateFormatter.toEpochMillis(tot) : Long.MAX_VALUE;
+
+        int[] rows = new int[16];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if ((sprintNummer <= 0 || sprint[i] == sprintNummer)
+                    && (code < 0 || this.afzender[i] == code)
+                    && tijdstip[i] >= from && tijdstip[i] < to) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Finds the messages that contain a text, by comparing the UTF-8 bytes in place. Case-sensitive.
+     * The content of all messages is searched as one region, a match is then assigned to its row.
+     *
+     * @return the rows of the messages that contain the text, in berichtID order
+     */
+    public int[] rowsContaining(String text) {
+        byte[] needle = text.getBytes(StandardCharsets.UTF_8);
+        if (needle.length == 0) {
+            return select(0, null, null, null);
+        }
+
+        int[] rows = new int[16];
+        int count = 0;
+        int end = (int) getInhoudBytes();
+        int row = 0;
+        int at = indexOf(needle, 0, end);
+        while (at >= 0) {
+            // The rows are in content order, so the row of the match is at or after the previous one
+            while (inhoudEinde[row] <= at) {
+                row++;
+            }
+            if (at + needle.length <= inhoudEinde[row]) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+                // The rest of this message does not matter any more
+                at = indexOf(needle, inhoudEinde[row], end);
+            } else {
+                // The match runs on into the next message
+                at = indexOf(needle, at + 1, end);
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * @return the position of the needle in the content between from and end, or -1
+     */
+    private int indexOf(byte[] needle, int from, int end) {
+        // The first two bytes are looked for together, a pair is far rarer than a single letter
+        byte first = needle[0];
+        long firstPattern = (first & 0xFFL) * ONES;
+        long secondPattern = needle.length > 1 ? (needle[1] & 0xFFL) * ONES : 0;
+        int last = end - needle.length;
+        int i = from;
+        while (i <= last) {
+            if (needle.length > 1 && i + 1 + Long.BYTES <= end) {
+                // Eight positions at a time: XOR turns a matching byte into zero, and (x - 0x01..) & ~x & 0x80..
+                // flags the zero bytes; the lowest flag is exact, a flag above it may be a false positive
+                long word = (long) LONGS.get(inhoud, i) ^ firstPattern;
+                long next = (long) LONGS.get(inhoud, i + 1) ^ secondPattern;
+                long found = (word - ONES) & ~word & (next - ONES) & ~next & HIGH_BITS;
+                if (found == 0) {
+                    i += Long.BYTES;
+                    continue;
+                }
+                i += Long.numberOfTrailingZeros(found) >>> 3;
+                if (i > last) {
+                    return -1;
+                }
+            } else if (inhoud[i] != first) {
+                i++;
+                continue;
+            }
+
+            if (matchesAt(needle, i)) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private boolean matchesAt(byte[] needle, int at) {
+        for (int j = 0; j < needle.length; j++) {
+            if (inhoud[at + j] != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of messages per sprint, by sprint number
+     */
+    public SortedMap<Integer, Integer> countPerSprint() {
+        // Sprint numbers are small, so the counters are an array indexed by sprint
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, sprint[i]);
+        }
+        int[] counts = new int[max + 1];
+        for (int i = 0; i < size; i++) {
+            if (sprint[i] >= 0) {
+                counts[sprint[i]]++;
+            }
+        }
+
+        SortedMap<Integer, Integer> perSprint = new TreeMap<>();
+        for (int s = 0; s <= max; s++) {
+            if (counts[s] > 0) {
+                perSprint.put(s, counts[s]);
+            }
+        }
+        return perSprint;
+    }
+
+    /**
+     * @param sprintNummer the sprint, 0 or less for every sprint
+     * @return the number of messages per sender, most active sender first
+     */
+    public Map<String, Integer> countPerAfzender(int sprintNummer) {
+        int[] counts = new int[afzenders.size()];
+        for (int i = 0; i < size; i++) {
+            if (sprintNummer <= 0 || sprint[i] == sprintNummer) {
+                counts[afzender[i]]++;
+            }
+        }
+
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                entries.add(Map.entry(afzenders.name(code), counts[code]));
+            }
+        }
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        Map<String, Integer> perAfzender = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            perAfzender.put(entry.getKey(), entry.getValue());
+        }
+        return perAfzender;
+    }
+
+    /**
+     * @param sprintNummer the sprint, 0 or less for every sprint
+     * @return the number of messages per day, by date
+     */
+    public SortedMap<LocalDate, Integer> countPerDag(int sprintNummer) {
+        LongIntHashMap perDag = new LongIntHashMap(64);
+        // Messages come in bursts, so the day of the previous message is usually the day of this one
+        long dayStart = 1;
+        long dayEnd = 0;
+        long day = 0;
+        for (int i = 0; i < size; i++) {
+            if (sprintNummer > 0 && sprint[i] != sprintNummer) {
+                continue;
+            }
+            long millis = tijdstip[i];
+            if (millis < dayStart || millis >= dayEnd) {
+                LocalDate date = DateFormatter.fromEpochMillis(millis).toLocalDate();
+                day = date.toEpochDay();
+                dayStart = DateFormatter.toEpochMillis(date.atStartOfDay());
+                dayEnd = DateFormatter.toEpochMillis(date.plusDays(1).atStartOfDay());
+            }
+            perDag.add(day, 1);
+        }
+
+        SortedMap<LocalDate, Integer> result = new TreeMap<>();
+        perDag.forEach((key, count) -> result.put(LocalDate.ofEpochDay(key), count));
+        return result;
+    }
+
+    // Statistics
+
+    /**
+     * @return the highest berichtID in the snapshot, 0 if it is empty
+     */
+    public int getHighestBerichtID() {
+        return size > 0 ? berichtID[size - 1] : 0;
+    }
+
+    /**
+     * @return the number of distinct senders
+     */
+    public int getAfzenderCount() {
+        return afzenders.size();
+    }
+
+    /**
+     * @return the number of UTF-8 bytes of all content
+     */
+    public long getInhoudBytes() {
+        return size > 0 ? inhoudEinde[size - 1] : 0;
+    }
+
+    /**
+     * An estimate of the heap held by the snapshot: the arrays at their current capacity and the sender dictionary.
+     *
+     * @return the size in bytes
+     */
+    public long getMemoryBytes() {
+        long bytes = 5L * ARRAY_HEADER
+                + 4L * (berichtID.length + sprint.length + afzender.length + inhoudEinde.length)
+                + 8L * tijdstip.length
+                + ARRAY_HEADER + inhoud.length;
+        for (int code = 0; code < afzenders.size(); code++) {
+            bytes += STRING_OVERHEAD + afzenders.name(code).length() + MAP_ENTRY + 4;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return {@link #getMemoryBytes()} per message, 0 if the snapshot is empty
+     */
+    public double getBytesPerMessage() {
+        return size > 0 ? getMemoryBytes() / (double) size : 0;
+    }
+
+    /**
+     * @return the number of refreshes, full reloads included
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * @return the number of times the snapshot was read from scratch, the first load included
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "BerichtSnapshot[%d messages, %d senders, %.1f MB, %.1f bytes per message]",
+                size, afzenders.size(), getMemoryBytes() / (1024.0 * 1024.0), getBytesPerMessage());
+    }
+}
@@ -0,0 +1,137 @@
+package database.analytics;
+
+import java.util.Arrays;
+
+/**
+ * A map from long keys to int counters with open addressing over primitive arrays, so counting
+ * a million messages does not box a million keys. The keys pack two ints, e.g. a sprint and a user,
+ * see {@link #key(int, int)}. Not thread-safe: every fork-join task counts in its own map and the maps are merged.
+ */
+class LongIntHashMap {
+    // Marks a free slot, no packed key of two non-negative ints can be negative
+    private static final long FREE = -1L;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    LongIntHashMap() {
+        this(16);
+    }
+
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return the two ints packed into one key, the first in the high half
+     */
+    static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int low(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Adds to the counter of the key, starting from 0 for a new key.
+     */
+    void add(long key, int delta) {
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                values[slot] += delta;
+                return;
+            }
+            if (current == FREE) {
+                keys[slot] = key;
+                values[slot] = delta;
+                if (++size * 2 > keys.length) {
+                    grow();
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the counter of the key, 0 if it was never added to
+     */
+    int get(long key) {
+        int slot = slot(key);
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == FREE) {
+                return 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds every counter of the other map to this one.
+     */
+    void addAll(LongIntHashMap other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != FREE) {
+                add(other.keys[i], other.values[i]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Calls the consumer for every key and its counter, in no particular order.
+     */
+    void forEach(Entry consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    interface Entry {
+        void accept(long key, int value);
+    }
+
+    private int slot(long key) {
+        // Spread the bits, packed keys differ mostly in the low bits of each half
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package database.analytics;
+
+import database.Database;
+import database.model.TrelloUrlIndex;
+import util.DateFormatter;
+import util.TrelloUrlValidator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes the retrospective numbers of every sprint from BERICHT, TAAK and TRELLO: messages per day,
+ * messages per user, the time from the first mention of a Trello card to its task link, and the most linked cards.
+ *
+ * The messages are read once, in a single query, into chunks of primitive columns. Every chunk is counted
+ * by a fork-join task while the next chunk is read, into counters keyed by (sprint, day) and (sprint, user)
+ * in {@link LongIntHashMap}s; the partial counts are merged at the end. Only the Trello cards are read up front,
+ * there is no lookup per message.
+ */
+public class SprintAnalytics {
+    // Rows per chunk handed to the pool, and the rows a task counts without splitting further
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int SPLIT_THRESHOLD = 2 * 1024;
+    private static final int TOP_KAARTEN = 5;
+
+    private static final String CARDS_SQL = "SELECT trelloID, trelloURL FROM TRELLO";
+    private static final String MESSAGES_SQL = "SELECT b.tijdstip, b.afzender, b.sprintNummer, b.inhoud, t.trelloID "
+            + "FROM BERICHT b LEFT JOIN TAAK t ON t.berichtID = b.berichtID";
+
+    private static final String MENTION = "trello.com/";
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Counts on the common fork-join pool.
+     */
+    public SprintAnalytics() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool the pool the chunks are counted on
+     */
+    public SprintAnalytics(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * The numbers of every sprint with messages.
+     */
+    public static class Report {
+        private final SortedMap<Integer, SprintMetrics> sprints;
+        private final long rows;
+        private final long millis;
+
+        Report(SortedMap<Integer, SprintMetrics> sprints, long rows, long millis) {
+            this.sprints = Collections.unmodifiableSortedMap(sprints);
+            this.rows = rows;
+            this.millis = millis;
+        }
+
+        /**
+         * @return the numbers per sprint, by sprint number
+         */
+        public SortedMap<Integer, SprintMetrics> getSprints() {
+            return sprints;
+        }
+
+        /**
+         * @return the numbers of the sprint, or null if it has no messages
+         */
+        public SprintMetrics getSprint(int sprintNummer) {
+            return sprints.get(sprintNummer);
+        }
+
+        /**
+         * @return the number of messages read
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return how long the computation took
+         */
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    /**
+     * Reads the message history once and computes the numbers of every sprint.
+     *
+     * @return the report
+     * @throws SQLException if the messages cannot be read
+     */
+    public Report compute() throws SQLException {
+        long start = System.nanoTime();
+
+        Map<Integer, String> cards = new HashMap<>();
+        List<String> users = new ArrayList<>();
+        Counts total = new Counts();
+        long rows = 0;
+
+        Connection conn = null;
+        ResultSet rs = null;
+
+        try {
+            // Lease a read connection from the pool
+            conn = Database.getInstance().getReadConnection();
+
+            PreparedStatement cardStmt = Database.getInstance().prepareStatement(conn, CARDS_SQL);
+            try (ResultSet cardRs = cardStmt.executeQuery()) {
+                while (cardRs.next()) {
+                    cards.put(cardRs.getInt(1), cardRs.getString(2));
+                }
+            }
+
+            // The user names become small ints on the reading thread, so the tasks never share a map
+            Map<String, Integer> userIds = new HashMap<>();
+            int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+            ArrayDeque<ForkJoinTask<Counts>> inFlight = new ArrayDeque<>();
+
+            PreparedStatement stmt = Database.getInstance().prepareStatement(conn, MESSAGES_SQL);
+            rs = stmt.executeQuery();
+
+            Chunk chunk = new Chunk();
+            while (rs.next()) {
+                int i = chunk.size++;
+                chunk.tijdstip[i] = DateFormatter.getEpochMillis(rs, 1);
+                chunk.afzender[i] = userIds.computeIfAbsent(rs.getString(2), name -> {
+                    users.add(name);
+                    return users.size() - 1;
+                });
+                chunk.sprint[i] = rs.getInt(3);
+                chunk.inhoud[i] = rs.getString(4);
+                chunk.trelloID[i] = rs.getInt(5);
+                rows++;
+
+                if (chunk.size == CHUNK_SIZE) {
+                    inFlight.add(pool.submit(new CountTask(chunk, 0, chunk.size)));
+                    chunk = new Chunk();
+
+                    // Bounds the chunks in memory when counting is slower than reading
+                    if (inFlight.size() >= maxInFlight) {
+                        total.addAll(inFlight.removeFirst().join());
+                    }
+                }
+            }
+            if (chunk.size > 0) {
+                inFlight.add(pool.submit(new CountTask(chunk, 0, chunk.size)));
+            }
+
+            while (!inFlight.isEmpty()) {
+                total.addAll(inFlight.removeFirst().join());
+            }
+        } finally {
+            // Close resources
+            try {
+                if (rs != null) rs.close();
+                // Statements are cached by the pool, so they stay open
+            } catch (SQLException e) {
+                System.out.println("Error closing resources: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            // Return the connection to the pool
+            Database.getInstance().releaseConnection(conn);
+        }
+
+        SortedMap<Integer, SprintMetrics> sprints = buildMetrics(total, cards, users);
+        return new Report(sprints, rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Turns the merged counts into the numbers per sprint. Runs once, over counters and links rather than messages.
+     */
+    private static SortedMap<Integer, SprintMetrics> buildMetrics(Counts total, Map<Integer, String> cards, List<String> users) {
+        Map<Integer, TreeMap<LocalDate, Integer>> perDag = new HashMap<>();
+        total.perDag.forEach((key, count) -> perDag.computeIfAbsent(LongIntHashMap.high(key), s -> new TreeMap<>())
+                .put(LocalDate.ofEpochDay(LongIntHashMap.low(key)), count));
+
+        Map<Integer, List<Map.Entry<String, Integer>>> perGebruiker = new HashMap<>();
+        total.perGebruiker.forEach((key, count) -> perGebruiker.computeIfAbsent(LongIntHashMap.high(key), s -> new ArrayList<>())
+                .add(Map.entry(users.get(LongIntHashMap.low(key)), count)));
+
+        // Task links: count per card, and the time since the card was first mentioned anywhere in the history
+        LongIntHashMap perKaart = new LongIntHashMap();
+        Map<Integer, long[]> doorlooptijd = new HashMap<>(); // sprint -> {links, with mention, total millis, max millis}
+        for (int i = 0; i < total.linkCount; i++) {
+            int sprint = total.linkSprint[i];
+            int trelloID = total.linkTrello[i];
+            perKaart.add(LongIntHashMap.key(sprint, trelloID), 1);
+
+            long[] tijd = doorlooptijd.computeIfAbsent(sprint, s -> new long[4]);
+            tijd[0]++;
+
+            String url = cards.get(trelloID);
+            Long vermeld = url != null ? total.eersteVermelding.get(TrelloUrlIndex.key(url)) : null;
+            if (vermeld != null && vermeld <= total.linkTijdstip[i]) {
+                long millis = total.linkTijdstip[i] - vermeld;
+                tijd[1]++;
+                tijd[2] += millis;
+                tijd[3] = Math.max(tijd[3], millis);
+            }
+        }
+
+        Map<Integer, List<SprintMetrics.KaartTelling>> kaarten = new HashMap<>();
+        perKaart.forEach((key, count) -> {
+            String url = cards.get(LongIntHashMap.low(key));
+            if (url != null) {
+                kaarten.computeIfAbsent(LongIntHashMap.high(key), s -> new ArrayList<>()).add(new SprintMetrics.KaartTelling(url, count));
+            }
+        });
+
+        SortedMap<Integer, SprintMetrics> sprints = new TreeMap<>();
+        for (Map.Entry<Integer, TreeMap<LocalDate, Integer>> entry : perDag.entrySet()) {
+            int sprint = entry.getKey();
+
+            int berichtCount = 0;
+            for (int count : entry.getValue().values()) {
+                berichtCount += count;
+            }
+
+            List<Map.Entry<String, Integer>> gebruikers = perGebruiker.getOrDefault(sprint, new ArrayList<>());
+            gebruikers.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+            Map<String, Integer> gebruikerMap = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> gebruiker : gebruikers) {
+                gebruikerMap.put(gebruiker.getKey(), gebruiker.getValue());
+            }
+
+            List<SprintMetrics.KaartTelling> top = kaarten.getOrDefault(sprint, new ArrayList<>());
+            top.sort(Comparator.comparingInt(SprintMetrics.KaartTelling::getTaken).reversed()
+                    .thenComparing(SprintMetrics.KaartTelling::getTrelloURL));
+            if (top.size() > TOP_KAARTEN) {
+                top = new ArrayList<>(top.subList(0, TOP_KAARTEN));
+            }
+
+            long[] tijd = doorlooptijd.getOrDefault(sprint, new long[4]);
+            Duration gemiddeld = tijd[1] > 0 ? Duration.ofMillis(tijd[2] / tijd[1]) : Duration.ZERO;
+
+            sprints.put(sprint, new SprintMetrics(sprint, berichtCount, entry.getValue(), gebruikerMap,
+                    (int) tijd[0], (int) tijd[1], gemiddeld, Duration.ofMillis(tijd[3]), top));
+        }
+
+        return sprints;
+    }
+
+    /**
+     * A block of messages as primitive columns.
+     */
+    private static class Chunk {
+        final long[] tijdstip = new long[CHUNK_SIZE];
+        final int[] afzender = new int[CHUNK_SIZE];
+        final int[] sprint = new int[CHUNK_SIZE];
+        final String[] inhoud = new String[CHUNK_SIZE];
+        final int[] trelloID = new int[CHUNK_SIZE];
+        int size;
+    }
+
+    /**
+     * Counts a range of a chunk, splitting it in halves until the ranges are small.
+     */
+    private static class CountTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+
+        // Tasks are never serialized, ForkJoinTask is only Serializable by inheritance
+        private final transient Chunk chunk;
+        private final int from;
+        private final int to;
+
+        CountTask(Chunk chunk, int from, int to) {
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                CountTask left = new CountTask(chunk, from, middle);
+                left.fork();
+                Counts counts = new CountTask(chunk, middle, to).compute();
+                counts.addAll(left.join());
+                return counts;
+            }
+
+            Counts counts = new Counts();
+            for (int i = from; i < to; i++) {
+                counts.add(chunk, i);
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * The counts of part of the history. Only touched by one task until it is merged.
+     */
+    private static class Counts {
+        final LongIntHashMap perDag = new LongIntHashMap(64);
+        final LongIntHashMap perGebruiker = new LongIntHashMap(64);
+        // Canonical card link -> the time of the first message that mentions it
+        final Map<String, Long> eersteVermelding = new HashMap<>();
+
+        int[] linkSprint = new int[16];
+        int[] linkTrello = new int[16];
+        long[] linkTijdstip = new long[16];
+        int linkCount;
+
+        void add(Chunk chunk, int i) {
+            int sprint = chunk.sprint[i];
+            long tijdstip = chunk.tijdstip[i];
+
+            long day = DateFormatter.fromEpochMillis(tijdstip).toLocalDate().toEpochDay();
+            perDag.add(LongIntHashMap.key(sprint, (int) day), 1);
+            perGebruiker.add(LongIntHashMap.key(sprint, chunk.afzender[i]), 1);
+
+            String inhoud = chunk.inhoud[i];
+            if (inhoud != null) {
+                addMentions(inhoud, tijdstip);
+            }
+
+            if (chunk.trelloID[i] > 0) {
+                addLink(sprint, chunk.trelloID[i], tijdstip);
+            }
+        }
+
+        /**
+         * Finds every Trello link in a message, a link being the word around "trello.com/".
+         */
+        private void addMentions(String inhoud, long tijdstip) {
+            int at = indexOfMention(inhoud, 0);
+            while (at >= 0) {
+                int start = at;
+                while (start > 0 && !Character.isWhitespace(inhoud.charAt(start - 1))) {
+                    start--;
+                }
+                // And so does punctuation before it
+                while (start < at && "(<[\"'".indexOf(inhoud.charAt(start)) >= 0) {
+                    start++;
+                }
+                int end = at + MENTION.length();
+                while (end < inhoud.length() && !Character.isWhitespace(inhoud.charAt(end))) {
+                    end++;
+                }
+                // Punctuation after a link belongs to the sentence
+                while (end > start && ".,;:!)".indexOf(inhoud.charAt(end - 1)) >= 0) {
+                    end--;
+                }
+
+                String canonical = TrelloUrlValidator.canonicalize(inhoud.subSequence(start, end));
+                if (canonical != null) {
+                    eersteVermelding.merge(canonical, tijdstip, Math::min);
+                }
+                at = indexOfMention(inhoud, Math.max(end, at + MENTION.length()));
+            }
+        }
+
+        /**
+         * Like indexOf, but ignoring case. Most messages hold no link, so only a 't' is looked at closer.
+         */
+        private static int indexOfMention(String inhoud, int from) {
+            int last = inhoud.length() - MENTION.length();
+            for (int i = from; i <= last; i++) {
+                char c = inhoud.charAt(i);
+                if ((c == 't' || c == 'T') && inhoud.regionMatches(true, i, MENTION, 0, MENTION.length())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void addLink(int sprint, int trelloID, long tijdstip) {
+            if (linkCount == linkSprint.length) {
+                int capacity = linkCount * 2;
+                linkSprint = Arrays.copyOf(linkSprint, capacity);
+                linkTrello = Arrays.copyOf(linkTrello, capacity);
+                linkTijdstip = Arrays.copyOf(linkTijdstip, capacity);
+            }
+            linkSprint[linkCount] = sprint;
+            linkTrello[linkCount] = trelloID;
+            linkTijdstip[linkCount] = tijdstip;
+            linkCount++;
+        }
+
+        void addAll(Counts other) {
+            perDag.addAll(other.perDag);
+            perGebruiker.addAll(other.perGebruiker);
+            other.eersteVermelding.forEach((url, tijdstip) -> eersteVermelding.merge(url, tijdstip, Math::min));
+            for (int i = 0; i < other.linkCount; i++) {
+                addLink(other.linkSprint[i], other.linkTrello[i], other.linkTijdstip[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package database.analytics;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * The retrospective numbers of one sprint, computed by {@link SprintAnalytics}. Immutable.
+ */
+public class SprintMetrics {
+    /**
+     * A Trello card and the number of tasks linked to it in the sprint.
+     */
+    public static class KaartTelling {
+        private final String trelloURL;
+        private final int taken;
+
+        public KaartTelling(String trelloURL, int taken) {
+            this.trelloURL = trelloURL;
+            this.taken = taken;
+        }
+
+        public String getTrelloURL() {
+            return trelloURL;
+        }
+
+        public int getTaken() {
+            return taken;
+        }
+
+        @Override
+        public String toString() {
+            return trelloURL + " (" + taken + ")";
+        }
+    }
+
+    private final int sprintNummer;
+    private final int berichtCount;
+    private final SortedMap<LocalDate, Integer> berichtenPerDag;
+    private final Map<String, Integer> berichtenPerGebruiker;
+    private final int gekoppeldeTaken;
+    private final int takenMetVermelding;
+    private final Duration gemiddeldeTijdTotKoppeling;
+    private final Duration langsteTijdTotKoppeling;
+    private final List<KaartTelling> meestGekoppeldeKaarten;
+
+    /**
+     * @param sprintNummer the sprint
+     * @param berichtCount the number of messages in the sprint
+     * @param berichtenPerDag the number of messages per day, by date
+     * @param berichtenPerGebruiker the number of messages per user, most active user first
+     * @param gekoppeldeTaken the number of tasks linked to messages of the sprint
+     * @param takenMetVermelding the linked tasks whose card was mentioned in a message before the link
+     * @param gemiddeldeTijdTotKoppeling the average time from the first mention of a card to its task link,
+     *                                   over the tasks with a mention, zero if there are none
+     * @param langsteTijdTotKoppeling the longest of those times
+     * @param meestGekoppeldeKaarten the cards with the most tasks, most linked first
+     */
+    public SprintMetrics(int sprintNummer, int berichtCount, SortedMap<LocalDate, Integer> berichtenPerDag,
+                         Map<String, Integer> berichtenPerGebruiker, int gekoppeldeTaken, int takenMetVermelding,
+                         Duration gemiddeldeTijdTotKoppeling, Duration langsteTijdTotKoppeling,
+                         List<KaartTelling> meestGekoppeldeKaarten) {
+        this.sprintNummer = sprintNummer;
+        this.berichtCount = berichtCount;
+        this.berichtenPerDag = Collections.unmodifiableSortedMap(berichtenPerDag);
+        this.berichtenPerGebruiker = Collections.unmodifiableMap(berichtenPerGebruiker);
+        this.gekoppeldeTaken = gekoppeldeTaken;
+        this.takenMetVermelding = takenMetVermelding;
+        this.gemiddeldeTijdTotKoppeling = gemiddeldeTijdTotKoppeling;
+        this.langsteTijdTotKoppeling = langsteTijdTotKoppeling;
+        this.meestGekoppeldeKaarten = Collections.unmodifiableList(meestGekoppeldeKaarten);
+    }
+
+    public int getSprintNummer() {
+        return sprintNummer;
+    }
+
+    public int getBerichtCount() {
+        return berichtCount;
+    }
+
+    public SortedMap<LocalDate, Integer> getBerichtenPerDag() {
+        return berichtenPerDag;
+    }
+
+    public Map<String, Integer> getBerichtenPerGebruiker() {
+        return berichtenPerGebruiker;
+    }
+
+    public int getGekoppeldeTaken() {
+        return gekoppeldeTaken;
+    }
+
+    public int getTakenMetVermelding() {
+        return takenMetVermelding;
+    }
+
+    public Duration getGemiddeldeTijdTotKoppeling() {
+        return gemiddeldeTijdTotKoppeling;
+    }
+
+    public Duration getLangsteTijdTotKoppeling() {
+        return langsteTijdTotKoppeling;
+    }
+
+    public List<KaartTelling> getMeestGekoppeldeKaarten() {
+        return meestGekoppeldeKaarten;
+    }
+}
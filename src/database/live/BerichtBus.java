@@ -0,0 +1,121 @@
+package database.live;
+
+import database.model.Bericht;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process publish/subscribe bus for new messages. {@link Bericht#save()} and {@link Bericht#saveAll(java.util.Collection)}
+ * publish every newly inserted message, and every subscription of the same sprint gets it in its own ring buffer,
+ * so sessions see new messages without querying the database again.
+ * Publishing never blocks: a slow subscriber only affects its own buffer, see {@link Subscription.OverflowPolicy}.
+ */
+public class BerichtBus {
+    // Buffer size of a subscription, can be overridden with a system property (e.g. -Dteamflow.bus.bufferSize=1024)
+    private static final int BUFFER_SIZE = Integer.getInteger("teamflow.bus.bufferSize", 256);
+    // DROP_OLDEST or DISCONNECT, see Subscription.OverflowPolicy
+    private static final Subscription.OverflowPolicy POLICY =
+            Subscription.OverflowPolicy.valueOf(System.getProperty("teamflow.bus.overflowPolicy", "DROP_OLDEST"));
+
+    // Single instance of the class
+    private static BerichtBus instance;
+
+    // Sprint number -> subscriptions of that sprint
+    private final Map<Integer, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+
+    // Private constructor to prevent instantiation
+    private BerichtBus() {
+    }
+
+    // Static method to get the singleton instance
+    public static synchronized BerichtBus getInstance() {
+        if (instance == null) {
+            instance = new BerichtBus();
+        }
+        return instance;
+    }
+
+    /**
+     * Subscribes to the new messages of a sprint with the default buffer size and overflow policy.
+     *
+     * @param sprintNummer the sprint to follow
+     * @return the subscription, close it when done
+     */
+    public Subscription subscribe(int sprintNummer) {
+        return subscribe(sprintNummer, BUFFER_SIZE, POLICY);
+    }
+
+    /**
+     * Subscribes to the new messages of a sprint.
+     *
+     * @param sprintNummer the sprint to follow
+     * @param capacity the number of messages the buffer of the subscription holds
+     * @param policy what to do when the buffer is full
+     * @return the subscription, close it when done
+     */
+    public Subscription subscribe(int sprintNummer, int capacity, Subscription.OverflowPolicy policy) {
+        Subscription subscription = new Subscription(sprintNummer, capacity, policy);
+        List<Subscription> sprint = subscriptions.computeIfAbsent(sprintNummer, k -> new CopyOnWriteArrayList<>());
+        sprint.add(subscription);
+
+        // Closing, also by the overflow policy, removes it from the bus
+        subscription.onClose(() -> sprint.remove(subscription));
+        return subscription;
+    }
+
+    /**
+     * Hands a new message to every subscription of its sprint.
+     * All subscribers share the same copy of the message, they must not change it.
+     *
+     * @param bericht the saved message
+     */
+    public void publish(Bericht bericht) {
+        List<Subscription> sprint = subscriptions.get(bericht.getSprintNummer());
+        publishedCount.incrementAndGet();
+
+        if (sprint == null || sprint.isEmpty()) {
+            return;
+        }
+
+        Bericht copy = new Bericht(bericht);
+
+        for (Subscription subscription : sprint) {
+            if (subscription.offer(copy)) {
+                deliveredCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return the number of open subscriptions
+     */
+    public int getSubscriberCount() {
+        int count = 0;
+        for (List<Subscription> sprint : subscriptions.values()) {
+            count += sprint.size();
+        }
+        return count;
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BerichtBus[%d subscribers, %d published, %d delivered]",
+                getSubscriberCount(), getPublishedCount(), getDeliveredCount());
+    }
+}
@@ -0,0 +1,302 @@
+package database.live;
+
+import database.model.Bericht;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The messages waiting for one subscriber, held in a bounded ring buffer.
+ * The publisher never waits for a subscriber: when the buffer is full the {@link OverflowPolicy}
+ * decides whether the oldest message is dropped or the subscriber is disconnected.
+ * A disconnected subscriber has missed messages and should reload the history before subscribing again.
+ * Once closed a subscription delivers nothing more, messages still waiting are dropped.
+ */
+public class Subscription implements AutoCloseable {
+
+    /**
+     * What happens when a message arrives while the buffer is full.
+     */
+    public enum OverflowPolicy {
+        // Overwrite the oldest waiting message, the subscriber keeps going with a gap
+        DROP_OLDEST,
+        // Close the subscription, the subscriber has to resynchronise
+        DISCONNECT
+    }
+
+    private final int sprintNummer;
+    private final OverflowPolicy policy;
+    private final Bericht[] ring;
+    private int head = 0;
+    private int size = 0;
+    private boolean closed = false;
+    private boolean disconnected = false;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Called once when the subscription closes, e.g. to remove it from the bus
+    private volatile Runnable onClose;
+
+    // Statistics
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Creates a subscription. Normally obtained from {@link BerichtBus#subscribe(int)}.
+     *
+     * @param sprintNummer the sprint whose messages are delivered
+     * @param capacity the number of messages the buffer holds
+     * @param policy what to do when the buffer is full
+     */
+    public Subscription(int sprintNummer, int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+
+        this.sprintNummer = sprintNummer;
+        this.policy = policy;
+        this.ring = new Bericht[capacity];
+    }
+
+    /**
+     * Adds a message to the buffer. Never blocks.
+     *
+     * @param bericht the new message
+     * @return false if the subscription is closed, or was closed because it fell behind
+     */
+    public boolean offer(Bericht bericht) {
+        boolean overflow = false;
+
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+
+            if (size == ring.length) {
+                if (policy == OverflowPolicy.DISCONNECT) {
+                    overflow = true;
+                } else {
+                    // Overwrite the oldest message
+                    ring[head] = bericht;
+                    head = (head + 1) % ring.length;
+                    dropped.incrementAndGet();
+                    notEmpty.signalAll();
+                    return true;
+                }
+            } else {
+                ring[(head + size) % ring.length] = bericht;
+                size++;
+                notEmpty.signalAll();
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (overflow) {
+            dropped.incrementAndGet();
+            disconnect();
+        }
+        return false;
+    }
+
+    /**
+     * @return the oldest waiting message, or null if there is none or the subscription is closed
+     */
+    public Bericht poll() {
+        lock.lock();
+        try {
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a message.
+     *
+     * @param timeout how long to wait
+     * @param unit the unit of the timeout
+     * @return the oldest waiting message, or null if none arrived in time or the subscription is closed
+     */
+    public Bericht poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        lock.lock();
+        try {
+            while (size == 0 && !closed) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a message arrives.
+     *
+     * @return the oldest waiting message, or null once the subscription is closed
+     */
+    public Bericht take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (size == 0 && !closed) {
+                notEmpty.await();
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the waiting messages to a list, oldest first.
+     *
+     * @return the number of messages moved
+     */
+    public int drainTo(List<Bericht> berichten, int max) {
+        int moved = 0;
+
+        lock.lock();
+        try {
+            Bericht bericht;
+            while (moved < max && (bericht = removeFirst()) != null) {
+                berichten.add(bericht);
+                moved++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        return moved;
+    }
+
+    private Bericht removeFirst() {
+        if (size == 0) {
+            return null;
+        }
+
+        Bericht bericht = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        delivered.incrementAndGet();
+        return bericht;
+    }
+
+    /**
+     * Closes the subscription because the subscriber fell behind.
+     */
+    public void disconnect() {
+        lock.lock();
+        try {
+            disconnected = true;
+        } finally {
+            lock.unlock();
+        }
+        close();
+    }
+
+    /**
+     * Closes the subscription and drops the messages still waiting, a waiting {@link #take()} returns null.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // A subscriber that stopped must not be handed anything afterwards, e.g. onto the next screen
+            Arrays.fill(ring, null);
+            head = 0;
+            size = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        Runnable callback = onClose;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Sets what to do when the subscription closes.
+     */
+    public void onClose(Runnable callback) {
+        this.onClose = callback;
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the subscription was closed because the subscriber fell behind
+     */
+    public boolean isDisconnected() {
+        lock.lock();
+        try {
+            return disconnected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSprintNummer() {
+        return sprintNummer;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return the number of messages waiting
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Subscription[sprint %d, %d/%d waiting, %d delivered, %d dropped, %s%s]",
+                sprintNummer, size(), ring.length, getDelivered(), getDropped(), policy,
+                isDisconnected() ? ", disconnected" : isClosed() ? ", closed" : "");
+    }
+}
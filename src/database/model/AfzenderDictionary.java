@@ -0,0 +1,108 @@
+package database.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every sender a small int code and one shared String, so millions of messages do not each hold
+ * their own copy of a handful of usernames. {@link Bericht} keeps the shared String, the columnar
+ * {@link database.analytics.BerichtSnapshot} keeps the code.
+ * A dictionary is bounded: once it holds maxSize names a new name gets no code, and the caller keeps its own String.
+ * Codes stay valid for the life of the dictionary. Thread-safe, looking up a known name or code takes no lock.
+ */
+public final class AfzenderDictionary {
+    // The code of a null sender, or of a name that is not in the dictionary
+    public static final int NONE = -1;
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Code -> name. Grows by doubling; a code is only handed out once its name is in the array
+    private volatile String[] names = new String[16];
+    // Guarded by this
+    private int size = 0;
+
+    /**
+     * @param maxSize the maximum number of names
+     */
+    public AfzenderDictionary(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("MaxSize must be greater than 0");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the code of a name that is already in the dictionary, {@link #NONE} for null or an unknown name
+     */
+    public int code(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer code = codes.get(name);
+        return code != null ? code : NONE;
+    }
+
+    /**
+     * @return the code of the name, a new one if it was not seen before,
+     * {@link #NONE} for null or a new name when the dictionary is full
+     */
+    public int add(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Integer code = codes.get(name);
+        return code != null ? code : addNew(name);
+    }
+
+    /**
+     * @return the shared String of a name that is already in the dictionary, otherwise the name itself
+     */
+    public String canonical(String name) {
+        int code = code(name);
+        return code == NONE ? name : names[code];
+    }
+
+    /**
+     * Adds the name like {@link #add(String)}.
+     *
+     * @return the shared String of the name, or the name itself when the dictionary is full
+     */
+    public String intern(String name) {
+        int code = add(name);
+        return code == NONE ? name : names[code];
+    }
+
+    /**
+     * @return the name of the code, null for {@link #NONE}
+     */
+    public String name(int code) {
+        return code == NONE ? null : names[code];
+    }
+
+    /**
+     * @return the number of names
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    private synchronized int addNew(String name) {
+        Integer known = codes.get(name);
+        if (known != null) {
+            return known;
+        }
+        if (size == maxSize) {
+            return NONE;
+        }
+
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, (int) Math.min(maxSize, 2L * current.length));
+        }
+        current[size] = name;
+        // The volatile write publishes the name before the map hands out its code
+        names = current;
+        codes.put(name, size);
+        return size++;
+    }
+}
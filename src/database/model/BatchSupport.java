@@ -0,0 +1,160 @@
+package database.model;
+
+import database.Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Shared plumbing for the saveAll batch methods of the model classes:
+ * running JDBC batches in chunks inside one transaction and working out the generated keys of a batch.
+ */
+final class BatchSupport {
+    // Number of rows sent to SQLite per executeBatch call when no chunk size is given
+    static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Binds the parameters of one row to a statement.
+     */
+    interface Binder<T> {
+        void bind(PreparedStatement stmt, T row) throws SQLException;
+    }
+
+    /**
+     * Work that runs on the write connection inside a transaction.
+     */
+    interface Work<R> {
+        R run(Connection conn) throws SQLException;
+    }
+
+    private BatchSupport() {
+    }
+
+    /**
+     * Runs the work inside one transaction on the write connection.
+     * If the caller already started a transaction on the writer, the work joins it and the caller commits.
+     *
+     * @return the result of the work
+     * @throws SQLException if the work fails, after rolling back a transaction started here
+     */
+    static <R> R inTransaction(Work<R> work) throws SQLException {
+        Connection conn = null;
+        boolean ownTransaction = false;
+
+        try {
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
+
+            ownTransaction = conn.getAutoCommit();
+            if (ownTransaction) {
+                conn.setAutoCommit(false);
+            }
+
+            R result = work.run(conn);
+
+            if (ownTransaction) {
+                conn.commit();
+            }
+            return result;
+
+        } catch (SQLException | RuntimeException e) {
+            if (ownTransaction) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    System.out.println("Error rolling back batch: " + rollbackError.getMessage());
+                    rollbackError.printStackTrace();
+                }
+            }
+            throw e;
+        } finally {
+            if (ownTransaction) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.out.println("Error restoring auto-commit: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+
+            // Return the connection to the pool
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Adds every row to the batch of the statement and executes it every chunkSize rows.
+     *
+     * @return the number of rows written
+     */
+    static <T> int executeChunked(PreparedStatement stmt, List<T> rows, int chunkSize, Binder<T> binder) throws SQLException {
+        int written = 0;
+
+        for (int start = 0; start < rows.size(); start += chunkSize) {
+            int end = Math.min(rows.size(), start + chunkSize);
+
+            for (int i = start; i < end; i++) {
+                binder.bind(stmt, rows.get(i));
+                stmt.addBatch();
+            }
+
+            for (int count : stmt.executeBatch()) {
+                written += Math.max(count, 0);
+            }
+        }
+
+        return written;
+    }
+
+    /**
+     * Inserts rows whose INTEGER PRIMARY KEY is left to SQLite and returns the keys they got, in row order.
+     * While the batch holds the write lock nobody else can insert, so SQLite hands out the keys
+     * MAX(id) + 1, MAX(id) + 2, ... for every chunk. This is checked against last_insert_rowid()
+     * after each chunk, so a batch never returns keys it cannot vouch for.
+     *
+     * @param conn the write connection, inside a transaction
+     * @param stmt the INSERT statement without the key column
+     * @param table the table the rows are inserted into
+     * @param keyColumn the INTEGER PRIMARY KEY column of the table
+     * @return the generated keys, one per row
+     */
+    static <T> int[] insertChunked(Connection conn, PreparedStatement stmt, String table, String keyColumn,
+                                   List<T> rows, int chunkSize, Binder<T> binder) throws SQLException {
+        int[] keys = new int[rows.size()];
+
+        PreparedStatement maxStmt = Database.getInstance().prepareStatement(conn, "SELECT COALESCE(MAX(" + keyColumn + "), 0) FROM " + table);
+        PreparedStatement lastStmt = Database.getInstance().prepareStatement(conn, "SELECT last_insert_rowid()");
+
+        for (int start = 0; start < rows.size(); start += chunkSize) {
+            int end = Math.min(rows.size(), start + chunkSize);
+            long firstKey = queryLong(maxStmt) + 1;
+
+            for (int i = start; i < end; i++) {
+                binder.bind(stmt, rows.get(i));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            long lastKey = queryLong(lastStmt);
+            if (lastKey != firstKey + (end - start) - 1) {
+                throw new SQLException("Generated keys of " + table + " batch are not consecutive, expected "
+                        + (firstKey + (end - start) - 1) + " as last key but got " + lastKey);
+            }
+
+            for (int i = start; i < end; i++) {
+                keys[i] = (int) (firstKey + (i - start));
+            }
+        }
+
+        return keys;
+    }
+
+    private static long queryLong(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
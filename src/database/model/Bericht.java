@@ -1,6 +1,9 @@
 package database.model;
 
 import database.Database;
+import database.live.BerichtBus;
+import database.search.BerichtIndex;
+import util.DateFormatter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -8,18 +11,47 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represents a message in the system with content, timestamp, sender and sprint number.
  * Provides methods for database operations related to message management.
  */
 public class Bericht {
+    private static final String UPSERT_SQL = "INSERT INTO BERICHT (berichtID, inhoud, tijdstip, afzender, sprintNummer) VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT(berichtID) DO UPDATE SET inhoud = excluded.inhoud, tijdstip = excluded.tijdstip, "
+            + "afzender = excluded.afzender, sprintNummer = excluded.sprintNummer";
+    private static final String INSERT_SQL = "INSERT INTO BERICHT (inhoud, tijdstip, afzender, sprintNummer) VALUES (?, ?, ?, ?)";
+
+    // Column order of ROW, every query that decodes its rows with ROW selects these columns in this order
+    private static final String COLUMNS = "berichtID, inhoud, tijdstip, afzender, sprintNummer";
+
+    // The senders of all messages share one String per user, up to teamflow.afzenders.maxSize users
+    private static final AfzenderDictionary AFZENDERS = new AfzenderDictionary(Integer.getInteger("teamflow.afzenders.maxSize", 1024));
+
+    // Decodes a row of COLUMNS by position, straight into the compact fields.
+    // Only senders read from the database join the dictionary, a name from anywhere else is only looked up in it.
+    private static final QuerySupport.RowMapper<Bericht> ROW = rs -> new Bericht(rs.getInt(1), rs.getString(2),
+            DateFormatter.getEpochMillis(rs, 3), AFZENDERS.intern(rs.getString(4)), rs.getInt(5));
+
+    // The value of tijdstip for a message without a timestamp
+    private static final long NO_TIJDSTIP = Long.MIN_VALUE;
+
+    // A message is kept compact, there are millions of them: the timestamp is stored as epoch milliseconds
+    // (see DateFormatter), getTijdstip() makes the LocalDateTime when it is called. The sender is the String
+    // shared through AFZENDERS when the name is in it.
     private int berichtID;
     private String inhoud;
-    private LocalDateTime tijdstip;
+    private long tijdstip;
     private String afzender;
     private int sprintNummer;
 
@@ -33,6 +65,19 @@ public class Bericht {
      * @param sprintNummer the sprint number this message belongs to
      */
     public Bericht(int berichtID, String inhoud, LocalDateTime tijdstip, String afzender, int sprintNummer) {
+        this(berichtID, inhoud, toMillis(tijdstip), AFZENDERS.canonical(afzender), sprintNummer);
+    }
+
+    /**
+     * Creates a copy of a message.
+     *
+     * @param bericht the message to copy
+     */
+    public Bericht(Bericht bericht) {
+        this(bericht.berichtID, bericht.inhoud, bericht.tijdstip, bericht.afzender, bericht.sprintNummer);
+    }
+
+    private Bericht(int berichtID, String inhoud, long tijdstip, String afzender, int sprintNummer) {
         this.berichtID = berichtID;
         this.inhoud = inhoud;
         this.tijdstip = tijdstip;
@@ -51,49 +96,18 @@ public class Bericht {
             return false;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT COUNT(*) FROM BERICHT WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, berichtID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Return true if count > 0, false otherwise
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-
-            return false;
-
+            return QuerySupport.exists("SELECT COUNT(*) FROM BERICHT WHERE berichtID = ?", stmt -> stmt.setInt(1, berichtID));
         } catch (SQLException e) {
             System.out.println("Error checking if message exists: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
     /**
      * Retrieves a message from the database by ID.
-     * Uses the exists method to first check if the message exists.
+     * Runs a single query, a missing row simply yields no result.
      *
      * @param berichtID The message ID to look up
      * @return Bericht object if found, null otherwise
@@ -104,55 +118,13 @@ public class Bericht {
             return null;
         }
 
-        // First check if the message exists using the exists method
-        if (!exists(berichtID)) {
-            return null;
-        }
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT berichtID, inhoud, tijdstip, afzender, sprintNummer FROM BERICHT WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, berichtID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Check if message exists and return it
-            if (rs.next()) {
-                int id = rs.getInt("berichtID");
-                String inhoud = rs.getString("inhoud");
-                LocalDateTime tijdstip = rs.getTimestamp("tijdstip").toLocalDateTime();
-                String afzender = rs.getString("afzender");
-                int sprintNummer = rs.getInt("sprintNummer");
-
-                return new Bericht(id, inhoud, tijdstip, afzender, sprintNummer);
-            }
-
-            // Return null if message not found (shouldn't happen since we checked with exists)
-            return null;
-
+            return QuerySupport.first("SELECT " + COLUMNS + " FROM BERICHT WHERE berichtID = ?",
+                    stmt -> stmt.setInt(1, berichtID), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving message: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
@@ -162,181 +134,336 @@ public class Bericht {
      * @return List of all Bericht objects in the database, empty list if none found or if an error occurs
      */
     public static List<Bericht> getAll() {
-        List<Bericht> berichten = new ArrayList<>();
+        try {
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM BERICHT", QuerySupport.NO_PARAMETERS, ROW);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving all messages: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>(); // Return empty list in case of error
+        }
+    }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+    /**
+     * Retrieves one page of messages, newest first, using keyset pagination on (tijdstip, berichtID).
+     * Pass null as cursor for the newest page, and the last message of a page to get the page before it.
+     * Each page costs one indexed query, however far back in the history it is.
+     *
+     * @param cursor the last message of the previous page, or null to start at the newest message
+     * @param pageSize the maximum number of messages in the page
+     * @return List of at most pageSize Bericht objects older than the cursor, empty list if none found or if an error occurs
+     */
+    public static List<Bericht> getPageBefore(Bericht cursor, int pageSize) {
+        // Validate input
+        if (pageSize <= 0) {
+            return new ArrayList<>();
+        }
 
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select all messages
-            String sql = "SELECT berichtID, inhoud, tijdstip, afzender, sprintNummer FROM BERICHT";
-            stmt = conn.prepareStatement(sql);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of berichten
-            while (rs.next()) {
-                int id = rs.getInt("berichtID");
-                String inhoud = rs.getString("inhoud");
-                LocalDateTime tijdstip = rs.getTimestamp("tijdstip").toLocalDateTime();
-                String afzender = rs.getString("afzender");
-                int sprintNummer = rs.getInt("sprintNummer");
-
-                Bericht bericht = new Bericht(id, inhoud, tijdstip, afzender, sprintNummer);
-                berichten.add(bericht);
+            if (cursor == null) {
+                // First page, start at the newest message
+                return QuerySupport.list("SELECT " + COLUMNS + " FROM BERICHT ORDER BY tijdstip DESC, berichtID DESC LIMIT ?",
+                        stmt -> stmt.setInt(1, pageSize), ROW);
             }
 
-            return berichten;
+            // Continue right after the cursor, ties on tijdstip are broken by berichtID
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM BERICHT "
+                    + "WHERE (tijdstip, berichtID) < (?, ?) ORDER BY tijdstip DESC, berichtID DESC LIMIT ?", stmt -> {
+                stmt.setLong(1, cursor.tijdstip);
+                stmt.setInt(2, cursor.getBerichtID());
+                stmt.setInt(3, pageSize);
+            }, ROW);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving page of messages: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>(); // Return empty list in case of error
+        }
+    }
+
+    /**
+     * Returns all messages as a lazy stream, newest first.
+     * Pages of pageSize messages are fetched with {@link #getPageBefore(Bericht, int)} only when the stream needs them,
+     * so at most one page is held in memory at a time.
+     *
+     * @param pageSize the number of messages fetched per query
+     * @return a sequential stream over all messages, newest first
+     */
+    public static Stream<Bericht> stream(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("PageSize must be greater than 0");
+        }
 
+        Spliterator<Bericht> pages = new Spliterators.AbstractSpliterator<Bericht>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<Bericht> page = Collections.emptyIterator();
+            private Bericht cursor = null;
+            private boolean exhausted = false;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Bericht> action) {
+                if (!page.hasNext()) {
+                    if (exhausted) {
+                        return false;
+                    }
+
+                    List<Bericht> next = getPageBefore(cursor, pageSize);
+                    // A page shorter than pageSize means there is nothing older left
+                    exhausted = next.size() < pageSize;
+                    page = next.iterator();
+
+                    if (!page.hasNext()) {
+                        return false;
+                    }
+                }
+
+                cursor = page.next();
+                action.accept(cursor);
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(pages, false);
+    }
+
+    /**
+     * Searches message content through the BERICHT_FTS full-text index, with the query syntax of
+     * {@link database.search.BerichtIndex}:
+     * - words separated by spaces must all occur, as a whole word or as the start of a word,
+     *   so "data" also finds "database"
+     * - OR (or OF) between words or groups of words means either side may match
+     * - "quoted words" must occur as a phrase, in that order
+     * - sprint:N and van:gebruikersnaam filter on sprint and sender
+     * Accents and case are ignored. Results are ranked by relevance (bm25), best match first;
+     * a query with only filters lists the newest messages.
+     *
+     * @param zoekterm the query
+     * @param limit the maximum number of results
+     * @return List of matching Bericht objects, best match first, empty list if none found or if an error occurs
+     */
+    public static List<Bericht> search(String zoekterm, int limit) {
+        // Validate input
+        FtsQuery query = FtsQuery.parse(zoekterm);
+        if (limit <= 0 || (query.match.isEmpty() && query.sprintNummer <= 0 && query.afzender == null)) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder filters = new StringBuilder();
+        if (query.sprintNummer > 0) {
+            filters.append(" AND b.sprintNummer = ?");
+        }
+        if (query.afzender != null) {
+            filters.append(" AND b.afzender = ?");
+        }
+
+        String sql;
+        if (query.match.isEmpty()) {
+            // Only filters, there is nothing to rank by
+            sql = "SELECT b.berichtID, b.inhoud, b.tijdstip, b.afzender, b.sprintNummer FROM BERICHT b "
+                    + "WHERE " + filters.substring(" AND ".length()) + " ORDER BY b.tijdstip DESC, b.berichtID DESC LIMIT ?";
+        } else {
+            // The rank column of an FTS5 table is its bm25 score, lower is better
+            sql = "SELECT b.berichtID, b.inhoud, b.tijdstip, b.afzender, b.sprintNummer "
+                    + "FROM BERICHT_FTS f JOIN BERICHT b ON b.berichtID = f.rowid "
+                    + "WHERE BERICHT_FTS MATCH ?" + filters + " ORDER BY f.rank LIMIT ?";
+        }
+
+        try {
+            return QuerySupport.list(sql, stmt -> {
+                int index = 1;
+                if (!query.match.isEmpty()) {
+                    stmt.setString(index++, query.match);
+                }
+                if (query.sprintNummer > 0) {
+                    stmt.setInt(index++, query.sprintNummer);
+                }
+                if (query.afzender != null) {
+                    stmt.setString(index++, query.afzender);
+                }
+                stmt.setInt(index, limit);
+            }, ROW);
         } catch (SQLException e) {
-            System.out.println("Error retrieving all messages: " + e.getMessage());
+            System.out.println("Error searching messages: " + e.getMessage());
             e.printStackTrace();
-            return berichten; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
+            return new ArrayList<>(); // Return empty list in case of error
+        }
+    }
+
+    /**
+     * A search query taken apart: an FTS5 match expression and the filters, which become SQL conditions.
+     */
+    private static final class FtsQuery {
+        final String match;
+        final int sprintNummer;
+        final String afzender;
+
+        private FtsQuery(String match, int sprintNummer, String afzender) {
+            this.match = match;
+            this.sprintNummer = sprintNummer;
+            this.afzender = afzender;
+        }
+
+        /**
+         * Turns the query typed by the user into an FTS5 match expression: words become quoted prefix queries
+         * ("word"*), quoted words a quoted phrase and OR joins the groups around it. Only letters and digits
+         * end up inside the quotes, so user input can never be interpreted as FTS5 query syntax.
+         */
+        static FtsQuery parse(String zoekterm) {
+            int sprintNummer = 0;
+            String afzender = null;
+            List<String> groups = new ArrayList<>();
+            StringBuilder group = new StringBuilder();
+
+            if (zoekterm == null) {
+                return new FtsQuery("", 0, null);
             }
+
+            int i = 0;
+            while (i < zoekterm.length()) {
+                char c = zoekterm.charAt(i);
+
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '"') {
+                    int end = zoekterm.indexOf('"', i + 1);
+                    if (end < 0) {
+                        end = zoekterm.length();
+                    }
+                    appendPhrase(group, words(zoekterm.substring(i + 1, end)), false);
+                    i = end + 1;
+                } else {
+                    int end = i;
+                    while (end < zoekterm.length() && !Character.isWhitespace(zoekterm.charAt(end)) && zoekterm.charAt(end) != '"') {
+                        end++;
+                    }
+                    String word = zoekterm.substring(i, end);
+                    i = end;
+
+                    if (word.equals("OR") || word.equals("OF")) {
+                        addGroup(groups, group);
+                        group.setLength(0);
+                    } else if (word.startsWith("sprint:") && isSprintNummer(word.substring(7))) {
+                        sprintNummer = Integer.parseInt(word.substring(7));
+                    } else if (word.startsWith("van:") && word.length() > 4) {
+                        afzender = word.substring(4);
+                    } else {
+                        // Punctuation inside a word (e.g. "front-end") makes it a phrase
+                        appendPhrase(group, words(word), true);
+                    }
+                }
+            }
+            addGroup(groups, group);
+
+            String match = groups.size() <= 1 ? String.join("", groups) : "(" + String.join(") OR (", groups) + ")";
+            return new FtsQuery(match, sprintNummer, afzender);
+        }
+
+        private static void addGroup(List<String> groups, StringBuilder group) {
+            if (group.length() > 0) {
+                groups.add(group.toString());
+            }
+        }
+
+        private static void appendPhrase(StringBuilder group, List<String> words, boolean prefix) {
+            if (words.isEmpty()) {
+                return;
+            }
+            if (group.length() > 0) {
+                group.append(' ');
+            }
+            group.append('"').append(String.join(" ", words)).append('"');
+            if (prefix) {
+                group.append('*');
+            }
+        }
+
+        /**
+         * @return the runs of letters and digits in the text, everything else separates them
+         */
+        private static List<String> words(String text) {
+            List<String> words = new ArrayList<>();
+            int i = 0;
+            while (i < text.length()) {
+                // Skip everything that is not part of a word
+                while (i < text.length() && !Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+
+                int start = i;
+                while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+
+                if (i > start) {
+                    words.add(text.substring(start, i));
+                }
+            }
+            return words;
+        }
+
+        private static boolean isSprintNummer(String text) {
+            // Longer numbers cannot be a sprint number
+            if (text.isEmpty() || text.length() > 9) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (!Character.isDigit(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return Integer.parseInt(text) > 0;
         }
     }
 
     /**
-     * Retrieves all messages from a specific sender.
+     * Retrieves all messages from a specific sender, oldest first.
      *
      * @param afzender The username of the sender
      * @return List of Bericht objects from the specified sender, empty list if none found or if an error occurs
      */
     public static List<Bericht> getByAfzender(String afzender) {
-        List<Bericht> berichten = new ArrayList<>();
-
         // Validate input
         if (afzender == null || afzender.isEmpty()) {
-            return berichten;
+            return new ArrayList<>();
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select messages by sender
-            String sql = "SELECT berichtID, inhoud, tijdstip, afzender, sprintNummer FROM BERICHT WHERE afzender = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, afzender);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of berichten
-            while (rs.next()) {
-                int id = rs.getInt("berichtID");
-                String inhoud = rs.getString("inhoud");
-                LocalDateTime tijdstip = rs.getTimestamp("tijdstip").toLocalDateTime();
-                String sender = rs.getString("afzender");
-                int sprintNummer = rs.getInt("sprintNummer");
-
-                Bericht bericht = new Bericht(id, inhoud, tijdstip, sender, sprintNummer);
-                berichten.add(bericht);
-            }
-
-            return berichten;
-
+            // idx_bericht_afzender_tijdstip returns them in time order
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM BERICHT WHERE afzender = ? ORDER BY tijdstip, berichtID",
+                    stmt -> stmt.setString(1, afzender), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving messages by sender: " + e.getMessage());
             e.printStackTrace();
-            return berichten; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
     /**
-     * Retrieves all messages from a specific sprint.
+     * Retrieves all messages from a specific sprint, oldest first.
      *
      * @param sprintNummer The sprint number
      * @return List of Bericht objects from the specified sprint, empty list if none found or if an error occurs
      */
     public static List<Bericht> getBySprint(int sprintNummer) {
-        List<Bericht> berichten = new ArrayList<>();
-
         // Validate input
         if (sprintNummer <= 0) {
-            return berichten;
+            return new ArrayList<>();
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select messages by sprint
-            String sql = "SELECT berichtID, inhoud, tijdstip, afzender, sprintNummer FROM BERICHT WHERE sprintNummer = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, sprintNummer);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of berichten
-            while (rs.next()) {
-                int id = rs.getInt("berichtID");
-                String inhoud = rs.getString("inhoud");
-                LocalDateTime tijdstip = rs.getTimestamp("tijdstip").toLocalDateTime();
-                String afzender = rs.getString("afzender");
-                int sprint = rs.getInt("sprintNummer");
-
-                Bericht bericht = new Bericht(id, inhoud, tijdstip, afzender, sprint);
-                berichten.add(bericht);
-            }
-
-            return berichten;
-
+            // idx_bericht_sprint_tijdstip returns them in time order
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM BERICHT WHERE sprintNummer = ? ORDER BY tijdstip, berichtID",
+                    stmt -> stmt.setInt(1, sprintNummer), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving messages by sprint: " + e.getMessage());
             e.printStackTrace();
-            return berichten; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
     /**
      * Saves the current message to the database.
-     * If the message already exists (berichtID > 0 and exists in DB), updates its content, timestamp, sender and sprint number.
-     * If the message doesn't exist, creates a new record.
-     * After insert, updates the object with any database-assigned values.
+     * If the message has an ID (berichtID > 0) it is written with a single upsert:
+     * an existing message gets its content, timestamp, sender and sprint number updated, otherwise it is inserted with that ID.
+     * If the message has no ID yet, a new record is created and the object is updated with the database-assigned ID,
+     * and the new message is published on the {@link BerichtBus}.
      *
      * @throws IllegalArgumentException if inhoud is null or empty, or if afzender is null or empty
      * @throws SQLException if a database error occurs
@@ -344,108 +471,190 @@ public class Bericht {
      */
     public boolean save() throws IllegalArgumentException, SQLException {
         // Validate input
-        if (this.getInhoud() == null || this.getInhoud().isEmpty()) {
-            throw new IllegalArgumentException("Inhoud cannot be empty or null");
-        }
-
-        if (this.getAfzender() == null || this.getAfzender().isEmpty()) {
-            throw new IllegalArgumentException("Afzender cannot be empty or null");
-        }
-
-        if (this.getSprintNummer() <= 0) {
-            throw new IllegalArgumentException("SprintNummer must be greater than 0");
-        }
-
-        if (this.getTijdstip() == null) {
-            this.setTijdstip(LocalDateTime.now()); // Set current time if not provided
-        }
+        validateForSave();
 
         Connection conn = null;
-        PreparedStatement insertStmt = null;
-        PreparedStatement updateStmt = null;
+        PreparedStatement stmt = null;
         ResultSet generatedKeys = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
-            // Check if the object has a valid ID already (update case)
-            boolean isUpdate = this.getBerichtID() > 0 && exists(this.getBerichtID());
+            if (this.getBerichtID() > 0) {
+                // Insert or update the message with the provided ID in one statement
+                stmt = Database.getInstance().prepareStatement(conn, UPSERT_SQL);
+                bindUpsert(stmt, this);
 
-            if (isUpdate) {
-                // Update existing message
-                String updateSql = "UPDATE BERICHT SET inhoud = ?, tijdstip = ?, afzender = ?, sprintNummer = ? WHERE berichtID = ?";
-                updateStmt = conn.prepareStatement(updateSql);
-                updateStmt.setString(1, this.getInhoud());
-                updateStmt.setTimestamp(2, Timestamp.valueOf(this.getTijdstip()));
-                updateStmt.setString(3, this.getAfzender());
-                updateStmt.setInt(4, this.getSprintNummer());
-                updateStmt.setInt(5, this.getBerichtID());
-
-                int rowsAffected = updateStmt.executeUpdate();
+                int rowsAffected = stmt.executeUpdate();
 
                 // Update any related Trello boards
                 updateRelatedTrelloBoards();
 
-                return rowsAffected > 0;
-            } else {
-                // Insert new message
-                // Determine if we need to let the database generate the ID
-                boolean useGeneratedId = this.getBerichtID() <= 0;
-
-                String insertSql;
-                if (useGeneratedId) {
-                    // Let the database generate the ID
-                    insertSql = "INSERT INTO BERICHT (inhoud, tijdstip, afzender, sprintNummer) VALUES (?, ?, ?, ?)";
-                    insertStmt = conn.prepareStatement(insertSql, java.sql.Statement.RETURN_GENERATED_KEYS);
-                    insertStmt.setString(1, this.getInhoud());
-                    insertStmt.setTimestamp(2, Timestamp.valueOf(this.getTijdstip()));
-                    insertStmt.setString(3, this.getAfzender());
-                    insertStmt.setInt(4, this.getSprintNummer());
-                } else {
-                    // Use the provided ID
-                    insertSql = "INSERT INTO BERICHT (berichtID, inhoud, tijdstip, afzender, sprintNummer) VALUES (?, ?, ?, ?, ?)";
-                    insertStmt = conn.prepareStatement(insertSql, java.sql.Statement.RETURN_GENERATED_KEYS);
-                    insertStmt.setInt(1, this.getBerichtID());
-                    insertStmt.setString(2, this.getInhoud());
-                    insertStmt.setTimestamp(3, Timestamp.valueOf(this.getTijdstip()));
-                    insertStmt.setString(4, this.getAfzender());
-                    insertStmt.setInt(5, this.getSprintNummer());
+                // Keep the in-memory search index up to date
+                if (rowsAffected > 0) {
+                    BerichtIndex.getInstance().index(this);
                 }
 
-                int rowsAffected = insertStmt.executeUpdate();
+                return rowsAffected > 0;
+            }
 
-                if (rowsAffected > 0) {
-                    // Get the generated keys
-                    generatedKeys = insertStmt.getGeneratedKeys();
+            // Insert new message and let the database generate the ID
+            stmt = Database.getInstance().prepareStatement(conn, INSERT_SQL, java.sql.Statement.RETURN_GENERATED_KEYS);
+            bindInsert(stmt, this);
 
-                    if (generatedKeys.next()) {
-                        // Update the object with the generated ID if we didn't specify one
-                        if (useGeneratedId) {
-                            this.setBerichtID(generatedKeys.getInt(1));
-                        }
+            int rowsAffected = stmt.executeUpdate();
 
-                        // Update any related Trello boards that might reference this berichtID
-                        updateRelatedTrelloBoards();
+            if (rowsAffected > 0) {
+                // Get the generated keys
+                generatedKeys = stmt.getGeneratedKeys();
 
-                        return true;
-                    }
-                }
+                if (generatedKeys.next()) {
+                    // Update the object with the generated ID
+                    this.setBerichtID(generatedKeys.getInt(1));
 
-                return false;
+                    // Update any related Trello boards that might reference this berichtID
+                    updateRelatedTrelloBoards();
+
+                    // Keep the in-memory search index up to date
+                    BerichtIndex.getInstance().index(this);
+
+                    // Push the new message to the sessions following its sprint
+                    BerichtBus.getInstance().publish(this);
+
+                    return true;
+                }
             }
+
+            return false;
         } finally {
             // Close resources
             try {
                 if (generatedKeys != null) generatedKeys.close();
-                if (insertStmt != null) insertStmt.close();
-                if (updateStmt != null) updateStmt.close();
-                // Don't close connection as it's managed by the Database singleton
+                // Statements are cached by the pool, so they stay open
             } catch (SQLException e) {
                 System.out.println("Error closing resources: " + e.getMessage());
                 e.printStackTrace();
             }
+
+            // Return the connection to the pool
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Saves a collection of messages in one transaction, sending them to the database in JDBC batches.
+     * Messages with an ID (berichtID > 0) are upserted like {@link #save()},
+     * messages without one are inserted and get their database-assigned ID set.
+     * Either all messages are saved or, on an error, none of them.
+     *
+     * @param berichten the messages to save
+     * @param chunkSize the number of rows sent to the database per batch
+     * @throws IllegalArgumentException if chunkSize is not positive or one of the messages is invalid (see {@link #save()})
+     * @throws SQLException if a database error occurs
+     * @return the IDs of the saved messages, in the order of the collection
+     */
+    public static int[] saveAll(Collection<Bericht> berichten, int chunkSize) throws IllegalArgumentException, SQLException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("ChunkSize must be greater than 0");
+        }
+
+        List<Bericht> alle = new ArrayList<>(berichten);
+        List<Bericht> metID = new ArrayList<>();
+        List<Bericht> zonderID = new ArrayList<>();
+
+        // Validate everything before anything is written
+        for (Bericht bericht : alle) {
+            bericht.validateForSave();
+            if (bericht.getBerichtID() > 0) {
+                metID.add(bericht);
+            } else {
+                zonderID.add(bericht);
+            }
+        }
+
+        int[] generatedIds = BatchSupport.inTransaction(conn -> {
+            PreparedStatement upsertStmt = Database.getInstance().prepareStatement(conn, UPSERT_SQL);
+            BatchSupport.executeChunked(upsertStmt, metID, chunkSize, Bericht::bindUpsert);
+
+            PreparedStatement insertStmt = Database.getInstance().prepareStatement(conn, INSERT_SQL);
+            return BatchSupport.insertChunked(conn, insertStmt, "BERICHT", "berichtID", zonderID, chunkSize, Bericht::bindInsert);
+        });
+
+        // Only hand out the IDs once the transaction went through
+        for (int i = 0; i < zonderID.size(); i++) {
+            zonderID.get(i).setBerichtID(generatedIds[i]);
+        }
+
+        int[] ids = new int[alle.size()];
+        for (int i = 0; i < alle.size(); i++) {
+            ids[i] = alle.get(i).getBerichtID();
+
+            // Keep the in-memory search index up to date
+            BerichtIndex.getInstance().index(alle.get(i));
+        }
+
+        // Push the new messages to the sessions following their sprint
+        for (Bericht bericht : zonderID) {
+            BerichtBus.getInstance().publish(bericht);
         }
+
+        return ids;
+    }
+
+    /**
+     * Saves a collection of messages in one transaction, in batches of {@value BatchSupport#DEFAULT_CHUNK_SIZE} rows.
+     *
+     * @param berichten the messages to save
+     * @throws IllegalArgumentException if one of the messages is invalid (see {@link #save()})
+     * @throws SQLException if a database error occurs
+     * @return the IDs of the saved messages, in the order of the collection
+     */
+    public static int[] saveAll(Collection<Bericht> berichten) throws IllegalArgumentException, SQLException {
+        return saveAll(berichten, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Checks the fields that are required to save this message and fills in the current time if there is no timestamp.
+     *
+     * @throws IllegalArgumentException if inhoud or afzender is null or empty, or sprintNummer is not positive
+     */
+    private void validateForSave() throws IllegalArgumentException {
+        if (this.getInhoud() == null || this.getInhoud().isEmpty()) {
+            throw new IllegalArgumentException("Inhoud cannot be empty or null");
+        }
+
+        if (this.getAfzender() == null || this.getAfzender().isEmpty()) {
+            throw new IllegalArgumentException("Afzender cannot be empty or null");
+        }
+
+        if (this.getSprintNummer() <= 0) {
+            throw new IllegalArgumentException("SprintNummer must be greater than 0");
+        }
+
+        if (this.tijdstip == NO_TIJDSTIP) {
+            this.setTijdstip(LocalDateTime.now()); // Set current time if not provided
+        }
+    }
+
+    private static void bindUpsert(PreparedStatement stmt, Bericht bericht) throws SQLException {
+        stmt.setInt(1, bericht.getBerichtID());
+        stmt.setString(2, bericht.getInhoud());
+        // Stored as it is kept, epoch milliseconds
+        stmt.setLong(3, bericht.tijdstip);
+        stmt.setString(4, bericht.getAfzender());
+        stmt.setInt(5, bericht.getSprintNummer());
+    }
+
+    private static void bindInsert(PreparedStatement stmt, Bericht bericht) throws SQLException {
+        stmt.setString(1, bericht.getInhoud());
+        stmt.setLong(2, bericht.tijdstip);
+        stmt.setString(3, bericht.getAfzender());
+        stmt.setInt(4, bericht.getSprintNummer());
+    }
+
+    private static long toMillis(LocalDateTime tijdstip) {
+        return tijdstip != null ? DateFormatter.toEpochMillis(tijdstip) : NO_TIJDSTIP;
     }
 
     /**
@@ -476,26 +685,26 @@ public class Bericht {
             return false;
         }
 
-        // Only attempt to delete if the message exists
-        if (!exists(this.getBerichtID())) {
-            return false;
-        }
-
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
             // Prepare delete statement
             String sql = "DELETE FROM BERICHT WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
+            stmt = Database.getInstance().prepareStatement(conn, sql);
             stmt.setInt(1, this.getBerichtID());
 
             // Execute delete operation
             int rowsAffected = stmt.executeUpdate();
 
+            // Keep the in-memory search index up to date
+            if (rowsAffected > 0) {
+                BerichtIndex.getInstance().remove(this.getBerichtID());
+            }
+
             // Return true if at least one row was deleted
             return rowsAffected > 0;
 
@@ -504,14 +713,8 @@ public class Bericht {
             e.printStackTrace();
             return false;
         } finally {
-            // Close resources
-            try {
-                if (stmt != null) stmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
         }
     }
 
@@ -532,12 +735,15 @@ public class Bericht {
         this.inhoud = inhoud;
     }
 
+    /**
+     * @return the timestamp, to the millisecond like in the database, or null if there is none; a new object on every call
+     */
     public LocalDateTime getTijdstip() {
-        return tijdstip;
+        return tijdstip != NO_TIJDSTIP ? DateFormatter.fromEpochMillis(tijdstip) : null;
     }
 
     public void setTijdstip(LocalDateTime tijdstip) {
-        this.tijdstip = tijdstip;
+        this.tijdstip = toMillis(tijdstip);
     }
 
     public String getAfzender() {
@@ -545,7 +751,7 @@ public class Bericht {
     }
 
     public void setAfzender(String afzender) {
-        this.afzender = afzender;
+        this.afzender = AFZENDERS.canonical(afzender);
     }
 
     public int getSprintNummer() {
@@ -6,16 +6,30 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a user in the system with username and display name.
  * Provides methods for database operations related to user management.
  */
 public class Gebruiker {
+    // Cache settings, can be overridden with system properties (e.g. -Dteamflow.cache.gebruiker.size=5000)
+    private static final int CACHE_SIZE = Integer.getInteger("teamflow.cache.gebruiker.size", 1000);
+    private static final long CACHE_TTL_SECONDS = Long.getLong("teamflow.cache.gebruiker.ttlSeconds", 300L);
+
+    // Users almost never change, so lookups are answered from memory where possible
+    private static final LookupCache<String, Gebruiker> CACHE = new LookupCache<>("Gebruiker", CACHE_SIZE,
+            CACHE_TTL_SECONDS, TimeUnit.SECONDS, g -> new Gebruiker(g.gebruikersnaam, g.weergavenaam));
+
+    // Column order of ROW, every query that decodes its rows with ROW selects these columns in this order
+    private static final String COLUMNS = "gebruikersnaam, weergavenaam";
+
+    // Decodes a row of COLUMNS by position
+    private static final QuerySupport.RowMapper<Gebruiker> ROW = rs -> new Gebruiker(rs.getString(1), rs.getString(2));
+
     private String gebruikersnaam;
     private String weergavenaam;
 
@@ -30,49 +44,23 @@ public class Gebruiker {
             return false;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        // A cached user is known to exist
+        if (CACHE.contains(gebruikersnaam)) {
+            return true;
+        }
 
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT COUNT(*) FROM GEBRUIKER WHERE gebruikersnaam = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, gebruikersnaam);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Return true if count > 0, false otherwise
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-
-            return false;
-
+            return QuerySupport.exists("SELECT COUNT(*) FROM GEBRUIKER WHERE gebruikersnaam = ?",
+                    stmt -> stmt.setString(1, gebruikersnaam));
         } catch (SQLException e) {
             System.out.println("Error checking if user exists: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
     /**
-     * Retrieves a user from the database by username.
-     * Uses the exists method to first check if the user exists.
+     * Retrieves a user by username, from the cache if possible and otherwise from the database.
      *
      * @param gebruikersnaam The username to look up
      * @return Gebruiker object if found, null otherwise
@@ -83,51 +71,24 @@ public class Gebruiker {
             return null;
         }
 
-        // First check if the user exists using the exists method
-        if (!exists(gebruikersnaam)) {
-            return null;
-        }
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        return CACHE.get(gebruikersnaam, Gebruiker::load);
+    }
 
+    /**
+     * Loads a user from the database by username.
+     * Runs a single query, a missing row simply yields no result.
+     *
+     * @param gebruikersnaam The username to look up
+     * @return Gebruiker object if found, null otherwise
+     */
+    private static Gebruiker load(String gebruikersnaam) {
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT gebruikersnaam, weergavenaam FROM GEBRUIKER WHERE gebruikersnaam = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setString(1, gebruikersnaam);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Check if user exists and return it
-            if (rs.next()) {
-                String username = rs.getString("gebruikersnaam");
-                String displayName = rs.getString("weergavenaam");
-                return new Gebruiker(username, displayName);
-            }
-
-            // Return null if user not found (shouldn't happen since we checked with bestaat)
-            return null;
-
+            return QuerySupport.first("SELECT " + COLUMNS + " FROM GEBRUIKER WHERE gebruikersnaam = ?",
+                    stmt -> stmt.setString(1, gebruikersnaam), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving user: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
@@ -137,56 +98,19 @@ public class Gebruiker {
      * @return List of all Gebruiker objects in the database, empty list if none found or if an error occurs
      */
     public static List<Gebruiker> getAll() {
-        List<Gebruiker> gebruikers = new ArrayList<>();
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select all users
-            String sql = "SELECT gebruikersnaam, weergavenaam FROM GEBRUIKER";
-            stmt = conn.prepareStatement(sql);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of gebruikers
-            while (rs.next()) {
-                String username = rs.getString("gebruikersnaam");
-                String displayName = rs.getString("weergavenaam");
-
-                Gebruiker gebruiker = new Gebruiker(username, displayName);
-                gebruikers.add(gebruiker);
-            }
-
-            return gebruikers;
-
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM GEBRUIKER", QuerySupport.NO_PARAMETERS, ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving all users: " + e.getMessage());
             e.printStackTrace();
-            return gebruikers; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
     /**
-     * Saves the current user to the database.
+     * Saves the current user to the database with a single upsert.
      * If the user already exists, updates the display name.
      * If the user doesn't exist, creates a new record.
-     * Uses the exists method to check existence.
      *
      * @throws IllegalArgumentException if gebruikersnaam is null or empty
      * @throws SQLException if a database error occurs
@@ -198,43 +122,26 @@ public class Gebruiker {
         }
 
         Connection conn = null;
-        PreparedStatement insertStmt = null;
-        PreparedStatement updateStmt = null;
+        PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
-
-            // Check if user already exists using the exists method
-            boolean userExists = exists(this.getGebruikersnaam());
-
-            // Update or insert based on existence
-            if (userExists) {
-                // Update existing user
-                String updateSql = "UPDATE GEBRUIKER SET weergavenaam = ? WHERE gebruikersnaam = ?";
-                updateStmt = conn.prepareStatement(updateSql);
-                updateStmt.setString(1, this.getWeergavenaam());
-                updateStmt.setString(2, this.getGebruikersnaam());
-                updateStmt.executeUpdate();
-            } else {
-                // Insert new user
-                String insertSql = "INSERT INTO GEBRUIKER (gebruikersnaam, weergavenaam) VALUES (?, ?)";
-                insertStmt = conn.prepareStatement(insertSql);
-                insertStmt.setString(1, this.getGebruikersnaam());
-                insertStmt.setString(2, this.getWeergavenaam());
-                insertStmt.executeUpdate();
-            }
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
+
+            // Insert the user, or update the display name if the username is already taken
+            String upsertSql = "INSERT INTO GEBRUIKER (gebruikersnaam, weergavenaam) VALUES (?, ?) "
+                    + "ON CONFLICT(gebruikersnaam) DO UPDATE SET weergavenaam = excluded.weergavenaam";
+            stmt = Database.getInstance().prepareStatement(conn, upsertSql);
+            stmt.setString(1, this.getGebruikersnaam());
+            stmt.setString(2, this.getWeergavenaam());
+            stmt.executeUpdate();
 
         } finally {
-            // Close resources
-            try {
-                if (insertStmt != null) insertStmt.close();
-                if (updateStmt != null) updateStmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // The cached copy may be outdated now
+            CACHE.invalidate(this.getGebruikersnaam());
+
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
         }
     }
 
@@ -259,21 +166,16 @@ public class Gebruiker {
             return false;
         }
 
-        // Only attempt to delete if the user exists
-        if (!exists(this.getGebruikersnaam())) {
-            return false;
-        }
-
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
             // Prepare delete statement
             String sql = "DELETE FROM GEBRUIKER WHERE gebruikersnaam = ?";
-            stmt = conn.prepareStatement(sql);
+            stmt = Database.getInstance().prepareStatement(conn, sql);
             stmt.setString(1, this.getGebruikersnaam());
 
             // Execute delete operation
@@ -287,17 +189,21 @@ public class Gebruiker {
             e.printStackTrace();
             return false;
         } finally {
-            // Close resources
-            try {
-                if (stmt != null) stmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // Drop the cached copy, whether or not the row existed
+            CACHE.invalidate(this.getGebruikersnaam());
+
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
         }
     }
 
+    /**
+     * @return the lookup cache, e.g. for its hit rate statistics
+     */
+    public static LookupCache<String, Gebruiker> getCache() {
+        return CACHE;
+    }
+
     public String getGebruikersnaam() {
         return gebruikersnaam;
     }
@@ -0,0 +1,189 @@
+package database.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * A bounded read-through cache for rows that rarely change, used in front of the lookup methods of the model classes.
+ * Entries expire after a fixed time to live, and when the cache is full the least recently used entry is dropped.
+ * The model classes invalidate an entry themselves when they save or delete the row.
+ * Values are copied on the way in and out, so changing a returned object never changes the cached one.
+ * Missing rows (a null from the loader) are not cached.
+ *
+ * @param <K> the key type, e.g. the primary key of the row
+ * @param <V> the model class
+ */
+public class LookupCache<K, V> {
+    private final String name;
+    private final int capacity;
+    private final long ttlNanos;
+    private final UnaryOperator<V> copier;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    // Bumped on every invalidation, so a load that raced with a save or delete is not cached
+    private long generation;
+
+    // Cache statistics
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * A cached value with the moment it stops being valid.
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param name the name used in the statistics line
+     * @param capacity the maximum number of entries
+     * @param ttl how long an entry stays valid
+     * @param unit the unit of the time to live
+     * @param copier makes an independent copy of a value
+     */
+    public LookupCache(String name, int capacity, long ttl, TimeUnit unit, UnaryOperator<V> copier) {
+        if (capacity <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException("Capacity and time to live must be greater than 0");
+        }
+
+        this.name = name;
+        this.capacity = capacity;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.copier = copier;
+        // Access order makes the first entry the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the value for the key, calling the loader on a miss or when the entry has expired.
+     * The loader runs outside the lock, so a slow query never blocks other lookups.
+     *
+     * @param key the key to look up
+     * @param loader loads the value from the database, returns null if there is no such row
+     * @return a copy of the value, or null if the loader found nothing
+     */
+    public V get(K key, Function<K, V> loader) {
+        long loadGeneration;
+
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - System.nanoTime() > 0) {
+                    hits.incrementAndGet();
+                    return copier.apply(entry.value);
+                }
+
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+
+            misses.incrementAndGet();
+            loadGeneration = generation;
+        }
+
+        V value = loader.apply(key);
+        if (value == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            // Only cache the value if nothing was invalidated while it was loading
+            if (loadGeneration == generation) {
+                entries.put(key, new Entry<>(copier.apply(value), System.nanoTime() + ttlNanos));
+
+                if (entries.size() > capacity) {
+                    evictEldest();
+                }
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * @return true if the key has a valid entry, without loading it or counting a hit
+     */
+    public synchronized boolean contains(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && entry.expiresAt - System.nanoTime() > 0;
+    }
+
+    /**
+     * Drops the entry for the key, called after the row is saved or deleted.
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    /**
+     * @return the fraction of lookups answered from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s cache[%d/%d entries, hit rate %.1f%% (%d hits, %d misses), %d evictions, %d expirations]",
+                name, size(), capacity, getHitRate() * 100, getHits(), getMisses(), getEvictions(), getExpirations());
+    }
+}
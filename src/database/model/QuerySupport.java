@@ -0,0 +1,106 @@
+package database.model;
+
+import database.Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared plumbing for the read methods of the model classes: one query executor that leases a read connection,
+ * binds the parameters, decodes the rows and hands the connection back.
+ * Every model class has a column list and a {@link RowMapper} written against it, which reads the columns
+ * by position, so a row costs no column name lookups.
+ */
+final class QuerySupport {
+    /**
+     * Binds the parameters of a query.
+     */
+    interface Parameters {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * Decodes the current row of a result set, reading the columns by position.
+     */
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Reads a whole result set.
+     */
+    interface ResultHandler<R> {
+        R handle(ResultSet rs) throws SQLException;
+    }
+
+    static final Parameters NO_PARAMETERS = stmt -> {
+    };
+
+    private QuerySupport() {
+    }
+
+    /**
+     * @return every row of the query, empty if there are none
+     */
+    static <T> List<T> list(String sql, Parameters parameters, RowMapper<T> mapper) throws SQLException {
+        return query(sql, parameters, rs -> {
+            List<T> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(mapper.map(rs));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * @return the first row of the query, null if there is none
+     */
+    static <T> T first(String sql, Parameters parameters, RowMapper<T> mapper) throws SQLException {
+        return query(sql, parameters, rs -> rs.next() ? mapper.map(rs) : null);
+    }
+
+    /**
+     * @param sql a query for a single count, e.g. SELECT COUNT(*)
+     * @return true if the count is above 0
+     */
+    static boolean exists(String sql, Parameters parameters) throws SQLException {
+        return query(sql, parameters, rs -> rs.next() && rs.getInt(1) > 0);
+    }
+
+    /**
+     * Runs a query on a read connection. The statement is cached by the pool,
+     * the result set is closed and the connection is handed back before this returns.
+     */
+    static <R> R query(String sql, Parameters parameters, ResultHandler<R> handler) throws SQLException {
+        Connection conn = null;
+        ResultSet rs = null;
+
+        try {
+            // Lease a read connection from the pool
+            conn = Database.getInstance().getReadConnection();
+
+            PreparedStatement stmt = Database.getInstance().prepareStatement(conn, sql);
+            parameters.bind(stmt);
+
+            rs = stmt.executeQuery();
+            return handler.handle(rs);
+
+        } finally {
+            // Close resources
+            try {
+                if (rs != null) rs.close();
+                // Statements are cached by the pool, so they stay open
+            } catch (SQLException e) {
+                System.out.println("Error closing resources: " + e.getMessage());
+                e.printStackTrace();
+            }
+
+            // Return the connection to the pool
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+}
@@ -7,14 +7,43 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import util.DateFormatter;
 
 /**
  * Represents a sprint in the system with sprint number, begin date, and end date.
  * Provides methods for database operations related to sprint management.
  */
 public class Sprint {
+    // Cache settings, can be overridden with system properties (e.g. -Dteamflow.cache.sprint.size=512)
+    private static final int CACHE_SIZE = Integer.getInteger("teamflow.cache.sprint.size", 256);
+    private static final long CACHE_TTL_SECONDS = Long.getLong("teamflow.cache.sprint.ttlSeconds", 300L);
+
+    // Sprints almost never change, so lookups are answered from memory where possible
+    private static final LookupCache<Integer, Sprint> CACHE = new LookupCache<>("Sprint", CACHE_SIZE,
+            CACHE_TTL_SECONDS, TimeUnit.SECONDS, s -> new Sprint(s.sprintNummer, s.beginDatum, s.eindDatum));
+
+    // Column order of ROW, every query that decodes its rows with ROW selects these columns in this order
+    private static final String COLUMNS = "sprintNummer, beginDatum, eindDatum";
+
+    // Decodes a row of COLUMNS by position
+    private static final QuerySupport.RowMapper<Sprint> ROW = rs -> new Sprint(rs.getInt(1),
+            DateFormatter.getDate(rs, 2), DateFormatter.getDate(rs, 3));
+
+    // Column order of STATS_ROW, as in SPRINT_STATS
+    private static final String STATS_COLUMNS = "sprintNummer, berichtCount, afzenderCount, taakCount, eersteTijdstip, laatsteTijdstip";
+
+    // Decodes a row of STATS_COLUMNS by position
+    private static final QuerySupport.RowMapper<SprintStats> STATS_ROW = rs -> new SprintStats(rs.getInt(1), rs.getInt(2),
+            rs.getInt(3), rs.getInt(4), DateFormatter.getTimestamp(rs, 5), DateFormatter.getTimestamp(rs, 6));
+
     private int sprintNummer;
     private LocalDate beginDatum;
     private LocalDate eindDatum;
@@ -30,49 +59,22 @@ public class Sprint {
             return false;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        // A cached sprint is known to exist
+        if (CACHE.contains(sprintNummer)) {
+            return true;
+        }
 
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT COUNT(*) FROM SPRINT WHERE sprintNummer = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, sprintNummer);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Return true if count > 0, false otherwise
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-
-            return false;
-
+            return QuerySupport.exists("SELECT COUNT(*) FROM SPRINT WHERE sprintNummer = ?", stmt -> stmt.setInt(1, sprintNummer));
         } catch (SQLException e) {
             System.out.println("Error checking if sprint exists: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
     /**
-     * Retrieves a sprint from the database by sprint number.
-     * Uses the exists method to first check if the sprint exists.
+     * Retrieves a sprint by sprint number, from the cache if possible and otherwise from the database.
      *
      * @param sprintNummer The sprint number to look up
      * @return Sprint object if found, null otherwise
@@ -83,52 +85,24 @@ public class Sprint {
             return null;
         }
 
-        // First check if the sprint exists using the exists method
-        if (!exists(sprintNummer)) {
-            return null;
-        }
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        return CACHE.get(sprintNummer, Sprint::load);
+    }
 
+    /**
+     * Loads a sprint from the database by sprint number.
+     * Runs a single query, a missing row simply yields no result.
+     *
+     * @param sprintNummer The sprint number to look up
+     * @return Sprint object if found, null otherwise
+     */
+    private static Sprint load(int sprintNummer) {
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT sprintNummer, beginDatum, eindDatum FROM SPRINT WHERE sprintNummer = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, sprintNummer);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Check if sprint exists and return it
-            if (rs.next()) {
-                int nummer = rs.getInt("sprintNummer");
-                LocalDate beginDatum = rs.getDate("beginDatum").toLocalDate();
-                LocalDate eindDatum = rs.getDate("eindDatum").toLocalDate();
-                return new Sprint(nummer, beginDatum, eindDatum);
-            }
-
-            // Return null if sprint not found (shouldn't happen since we checked with exists)
-            return null;
-
+            return QuerySupport.first("SELECT " + COLUMNS + " FROM SPRINT WHERE sprintNummer = ?",
+                    stmt -> stmt.setInt(1, sprintNummer), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving sprint: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
@@ -138,57 +112,19 @@ public class Sprint {
      * @return List of all Sprint objects in the database, empty list if none found or if an error occurs
      */
     public static List<Sprint> getAll() {
-        List<Sprint> sprints = new ArrayList<>();
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select all sprints
-            String sql = "SELECT sprintNummer, beginDatum, eindDatum FROM SPRINT";
-            stmt = conn.prepareStatement(sql);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of sprints
-            while (rs.next()) {
-                int nummer = rs.getInt("sprintNummer");
-                LocalDate beginDatum = rs.getDate("beginDatum").toLocalDate();
-                LocalDate eindDatum = rs.getDate("eindDatum").toLocalDate();
-
-                Sprint sprint = new Sprint(nummer, beginDatum, eindDatum);
-                sprints.add(sprint);
-            }
-
-            return sprints;
-
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM SPRINT", QuerySupport.NO_PARAMETERS, ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving all sprints: " + e.getMessage());
             e.printStackTrace();
-            return sprints; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
     /**
-     * Saves the current sprint to the database.
+     * Saves the current sprint to the database with a single upsert.
      * If the sprint already exists, updates the begin and end dates.
      * If the sprint doesn't exist, creates a new record.
-     * Uses the exists method to check existence.
      *
      * @throws IllegalArgumentException if sprintNummer is less than or equal to 0
      * @throws SQLException if a database error occurs
@@ -200,45 +136,27 @@ public class Sprint {
         }
 
         Connection conn = null;
-        PreparedStatement insertStmt = null;
-        PreparedStatement updateStmt = null;
+        PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
-
-            // Check if sprint already exists using the exists method
-            boolean sprintExists = exists(this.getSprintNummer());
-
-            // Update or insert based on existence
-            if (sprintExists) {
-                // Update existing sprint
-                String updateSql = "UPDATE SPRINT SET beginDatum = ?, eindDatum = ? WHERE sprintNummer = ?";
-                updateStmt = conn.prepareStatement(updateSql);
-                updateStmt.setDate(1, java.sql.Date.valueOf(this.getBeginDatum()));
-                updateStmt.setDate(2, java.sql.Date.valueOf(this.getEindDatum()));
-                updateStmt.setInt(3, this.getSprintNummer());
-                updateStmt.executeUpdate();
-            } else {
-                // Insert new sprint
-                String insertSql = "INSERT INTO SPRINT (sprintNummer, beginDatum, eindDatum) VALUES (?, ?, ?)";
-                insertStmt = conn.prepareStatement(insertSql);
-                insertStmt.setInt(1, this.getSprintNummer());
-                insertStmt.setDate(2, java.sql.Date.valueOf(this.getBeginDatum()));
-                insertStmt.setDate(3, java.sql.Date.valueOf(this.getEindDatum()));
-                insertStmt.executeUpdate();
-            }
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
+
+            // Insert the sprint, or update its dates if the sprint number is already taken
+            String upsertSql = "INSERT INTO SPRINT (sprintNummer, beginDatum, eindDatum) VALUES (?, ?, ?) "
+                    + "ON CONFLICT(sprintNummer) DO UPDATE SET beginDatum = excluded.beginDatum, eindDatum = excluded.eindDatum";
+            stmt = Database.getInstance().prepareStatement(conn, upsertSql);
+            stmt.setInt(1, this.getSprintNummer());
+            stmt.setDate(2, java.sql.Date.valueOf(this.getBeginDatum()));
+            stmt.setDate(3, java.sql.Date.valueOf(this.getEindDatum()));
+            stmt.executeUpdate();
 
         } finally {
-            // Close resources
-            try {
-                if (insertStmt != null) insertStmt.close();
-                if (updateStmt != null) updateStmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // The cached copy may be outdated now
+            CACHE.invalidate(this.getSprintNummer());
+
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
         }
     }
 
@@ -265,21 +183,16 @@ public class Sprint {
             return false;
         }
 
-        // Only attempt to delete if the sprint exists
-        if (!exists(this.getSprintNummer())) {
-            return false;
-        }
-
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
             // Prepare delete statement
             String sql = "DELETE FROM SPRINT WHERE sprintNummer = ?";
-            stmt = conn.prepareStatement(sql);
+            stmt = Database.getInstance().prepareStatement(conn, sql);
             stmt.setInt(1, this.getSprintNummer());
 
             // Execute delete operation
@@ -293,15 +206,92 @@ public class Sprint {
             e.printStackTrace();
             return false;
         } finally {
-            // Close resources
-            try {
-                if (stmt != null) stmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
+            // Drop the cached copy, whether or not the row existed
+            CACHE.invalidate(this.getSprintNummer());
+
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Retrieves the numbers of a sprint: messages, senders, tasks and the time of the first and last message.
+     * They are kept up to date by triggers in SPRINT_STATS, so this is a single primary key lookup
+     * however many messages the sprint has.
+     *
+     * @param sprintNummer the sprint to look up
+     * @return the numbers of the sprint, all zero if it has no messages (or does not exist), null if an error occurs
+     */
+    public static SprintStats getStats(int sprintNummer) {
+        try {
+            SprintStats stats = QuerySupport.first("SELECT " + STATS_COLUMNS + " FROM SPRINT_STATS WHERE sprintNummer = ?",
+                    stmt -> stmt.setInt(1, sprintNummer), STATS_ROW);
+            return stats != null ? stats : SprintStats.empty(sprintNummer);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving sprint statistics: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Recomputes SPRINT_STATS (and the senders per sprint behind it) from BERICHT and TAAK in one transaction,
+     * and reports which sprints had numbers that did not match. With the triggers in place that list is empty;
+     * anything in it means the statistics had drifted, e.g. after the tables were changed with the triggers off.
+     *
+     * @return the sprints whose numbers were corrected, in increasing order
+     * @throws SQLException if a database error occurs, nothing is changed then
+     */
+    public static List<Integer> rebuildStats() throws SQLException {
+        return BatchSupport.inTransaction(conn -> {
+            Map<Integer, SprintStats> before = readAllStats(conn);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM SPRINT_AFZENDER");
+                stmt.executeUpdate("DELETE FROM SPRINT_STATS");
+                stmt.executeUpdate("INSERT INTO SPRINT_AFZENDER (sprintNummer, afzender, berichtCount) "
+                        + "SELECT sprintNummer, afzender, COUNT(*) FROM BERICHT GROUP BY sprintNummer, afzender");
+                stmt.executeUpdate("INSERT INTO SPRINT_STATS (sprintNummer, berichtCount, afzenderCount, taakCount, eersteTijdstip, laatsteTijdstip) "
+                        + "SELECT b.sprintNummer, COUNT(*), COUNT(DISTINCT b.afzender), "
+                        + "SUM((SELECT COUNT(*) FROM TAAK t WHERE t.berichtID = b.berichtID)), MIN(b.tijdstip), MAX(b.tijdstip) "
+                        + "FROM BERICHT b GROUP BY b.sprintNummer");
+            }
+
+            Map<Integer, SprintStats> after = readAllStats(conn);
+
+            TreeSet<Integer> corrected = new TreeSet<>();
+            for (Map.Entry<Integer, SprintStats> entry : after.entrySet()) {
+                if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                    corrected.add(entry.getKey());
+                }
+            }
+            for (Integer sprint : before.keySet()) {
+                if (!after.containsKey(sprint)) {
+                    corrected.add(sprint);
+                }
+            }
+
+            return new ArrayList<>(corrected);
+        });
+    }
+
+    private static Map<Integer, SprintStats> readAllStats(Connection conn) throws SQLException {
+        Map<Integer, SprintStats> stats = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + STATS_COLUMNS + " FROM SPRINT_STATS")) {
+            while (rs.next()) {
+                SprintStats s = STATS_ROW.map(rs);
+                stats.put(s.getSprintNummer(), s);
             }
         }
+        return stats;
+    }
+
+    /**
+     * @return the lookup cache, e.g. for its hit rate statistics
+     */
+    public static LookupCache<Integer, Sprint> getCache() {
+        return CACHE;
     }
 
     public int getSprintNummer() {
@@ -0,0 +1,90 @@
+package database.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The numbers of one sprint, read from SPRINT_STATS. Immutable.
+ */
+public class SprintStats {
+    private final int sprintNummer;
+    private final int berichtCount;
+    private final int afzenderCount;
+    private final int taakCount;
+    private final LocalDateTime eersteTijdstip;
+    private final LocalDateTime laatsteTijdstip;
+
+    /**
+     * @param sprintNummer the sprint
+     * @param berichtCount the number of messages in the sprint
+     * @param afzenderCount the number of users that sent a message in the sprint
+     * @param taakCount the number of messages in the sprint with a task
+     * @param eersteTijdstip the time of the first message, null without messages
+     * @param laatsteTijdstip the time of the last message, null without messages
+     */
+    public SprintStats(int sprintNummer, int berichtCount, int afzenderCount, int taakCount,
+                       LocalDateTime eersteTijdstip, LocalDateTime laatsteTijdstip) {
+        this.sprintNummer = sprintNummer;
+        this.berichtCount = berichtCount;
+        this.afzenderCount = afzenderCount;
+        this.taakCount = taakCount;
+        this.eersteTijdstip = eersteTijdstip;
+        this.laatsteTijdstip = laatsteTijdstip;
+    }
+
+    /**
+     * @return the numbers of a sprint without messages
+     */
+    public static SprintStats empty(int sprintNummer) {
+        return new SprintStats(sprintNummer, 0, 0, 0, null, null);
+    }
+
+    public int getSprintNummer() {
+        return sprintNummer;
+    }
+
+    public int getBerichtCount() {
+        return berichtCount;
+    }
+
+    public int getAfzenderCount() {
+        return afzenderCount;
+    }
+
+    public int getTaakCount() {
+        return taakCount;
+    }
+
+    public LocalDateTime getEersteTijdstip() {
+        return eersteTijdstip;
+    }
+
+    public LocalDateTime getLaatsteTijdstip() {
+        return laatsteTijdstip;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SprintStats other)) {
+            return false;
+        }
+        return sprintNummer == other.sprintNummer && berichtCount == other.berichtCount
+                && afzenderCount == other.afzenderCount && taakCount == other.taakCount
+                && Objects.equals(eersteTijdstip, other.eersteTijdstip)
+                && Objects.equals(laatsteTijdstip, other.laatsteTijdstip);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sprintNummer, berichtCount, afzenderCount, taakCount, eersteTijdstip, laatsteTijdstip);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Sprint %d[%d berichten, %d afzenders, %d taken, %s - %s]",
+                sprintNummer, berichtCount, afzenderCount, taakCount, eersteTijdstip, laatsteTijdstip);
+    }
+}
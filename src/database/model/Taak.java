@@ -4,9 +4,9 @@ import database.Database;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,6 +14,15 @@ import java.util.List;
  * Provides methods for database operations related to task management.
  */
 public class Taak {
+    private static final String UPSERT_SQL = "INSERT INTO TAAK (berichtID, trelloID, beschrijving) VALUES (?, ?, ?) "
+            + "ON CONFLICT(berichtID) DO UPDATE SET trelloID = excluded.trelloID, beschrijving = excluded.beschrijving";
+
+    // Column order of ROW, every query that decodes its rows with ROW selects these columns in this order
+    private static final String COLUMNS = "berichtID, trelloID, beschrijving";
+
+    // Decodes a row of COLUMNS by position
+    private static final QuerySupport.RowMapper<Taak> ROW = rs -> new Taak(rs.getInt(1), rs.getInt(2), rs.getString(3));
+
     private int berichtID;
     private int trelloID;
     private String beschrijving;
@@ -29,49 +38,18 @@ public class Taak {
             return false;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT COUNT(*) FROM TAAK WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, berichtID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Return true if count > 0, false otherwise
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-
-            return false;
-
+            return QuerySupport.exists("SELECT COUNT(*) FROM TAAK WHERE berichtID = ?", stmt -> stmt.setInt(1, berichtID));
         } catch (SQLException e) {
             System.out.println("Error checking if task exists: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
     /**
      * Retrieves a task from the database by message ID.
-     * Uses the exists method to first check if the task exists.
+     * Runs a single query, a missing row simply yields no result.
      *
      * @param berichtID The message ID to look up
      * @return Taak object if found, null otherwise
@@ -82,52 +60,13 @@ public class Taak {
             return null;
         }
 
-        // First check if the task exists using the exists method
-        if (!exists(berichtID)) {
-            return null;
-        }
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT berichtID, trelloID, beschrijving FROM TAAK WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, berichtID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Check if task exists and return it
-            if (rs.next()) {
-                int msgId = rs.getInt("berichtID");
-                int trelId = rs.getInt("trelloID");
-                String description = rs.getString("beschrijving");
-                return new Taak(msgId, trelId, description);
-            }
-
-            // Return null if task not found (shouldn't happen since we checked with exists)
-            return null;
-
+            return QuerySupport.first("SELECT " + COLUMNS + " FROM TAAK WHERE berichtID = ?",
+                    stmt -> stmt.setInt(1, berichtID), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving task: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
@@ -137,49 +76,12 @@ public class Taak {
      * @return List of all Taak objects in the database, empty list if none found or if an error occurs
      */
     public static List<Taak> getAll() {
-        List<Taak> taken = new ArrayList<>();
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select all tasks
-            String sql = "SELECT berichtID, trelloID, beschrijving FROM TAAK";
-            stmt = conn.prepareStatement(sql);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of tasks
-            while (rs.next()) {
-                int msgId = rs.getInt("berichtID");
-                int trelId = rs.getInt("trelloID");
-                String description = rs.getString("beschrijving");
-
-                Taak taak = new Taak(msgId, trelId, description);
-                taken.add(taak);
-            }
-
-            return taken;
-
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM TAAK", QuerySupport.NO_PARAMETERS, ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving all tasks: " + e.getMessage());
             e.printStackTrace();
-            return taken; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
@@ -190,68 +92,93 @@ public class Taak {
      * @return List of all Taak objects linked to the specified Trello board, empty list if none found or if an error occurs
      */
     public static List<Taak> getByTrelloID(int trelloID) {
-        List<Taak> taken = new ArrayList<>();
-
         // Validate input
         if (trelloID <= 0) {
-            return taken;
+            return new ArrayList<>();
+        }
+
+        try {
+            return QuerySupport.list("SELECT " + COLUMNS + " FROM TAAK WHERE trelloID = ?",
+                    stmt -> stmt.setInt(1, trelloID), ROW);
+        } catch (SQLException e) {
+            System.out.println("Error retrieving tasks by Trello ID: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>(); // Return empty list in case of error
         }
+    }
+
+    /**
+     * Saves the current task to the database with a single upsert.
+     * A message has at most one task, so if the message already has a task its trelloID and description are updated.
+     * If the task doesn't exist, creates a new record.
+     *
+     * @throws IllegalArgumentException if berichtID or trelloID is invalid
+     * @throws SQLException if a database error occurs
+     */
+    public void save() throws IllegalArgumentException, SQLException {
+        // Validate berichtID, trelloID and beschrijving
+        validateForSave();
 
         Connection conn = null;
         PreparedStatement stmt = null;
-        ResultSet rs = null;
 
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
-            // Prepare SQL query to select tasks by trelloID
-            String sql = "SELECT berichtID, trelloID, beschrijving FROM TAAK WHERE trelloID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, trelloID);
+            // Insert the task, or update it if the message already has one (unique index idx_taak_bericht)
+            stmt = Database.getInstance().prepareStatement(conn, UPSERT_SQL);
+            bindUpsert(stmt, this);
+            stmt.executeUpdate();
 
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of tasks
-            while (rs.next()) {
-                int msgId = rs.getInt("berichtID");
-                int trelId = rs.getInt("trelloID");
-                String description = rs.getString("beschrijving");
+        } finally {
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
 
-                Taak taak = new Taak(msgId, trelId, description);
-                taken.add(taak);
-            }
+    /**
+     * Saves a collection of tasks in one transaction, sending them to the database in JDBC batches.
+     * Every task is upserted like {@link #save()}. Tasks have no generated keys, their key is the berichtID.
+     * Either all tasks are saved or, on an error, none of them.
+     *
+     * @param taken the tasks to save
+     * @param chunkSize the number of rows sent to the database per batch
+     * @throws IllegalArgumentException if chunkSize is not positive or one of the tasks is invalid (see {@link #save()})
+     * @throws SQLException if a database error occurs
+     * @return the number of rows written
+     */
+    public static int saveAll(Collection<Taak> taken, int chunkSize) throws IllegalArgumentException, SQLException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("ChunkSize must be greater than 0");
+        }
 
-            return taken;
+        List<Taak> alle = new ArrayList<>(taken);
 
-        } catch (SQLException e) {
-            System.out.println("Error retrieving tasks by Trello ID: " + e.getMessage());
-            e.printStackTrace();
-            return taken; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+        // Validate everything before anything is written
+        for (Taak taak : alle) {
+            taak.validateForSave();
         }
+
+        return BatchSupport.inTransaction(conn -> {
+            PreparedStatement upsertStmt = Database.getInstance().prepareStatement(conn, UPSERT_SQL);
+            return BatchSupport.executeChunked(upsertStmt, alle, chunkSize, Taak::bindUpsert);
+        });
     }
 
     /**
-     * Saves the current task to the database.
-     * If the task already exists, updates the trelloID and description.
-     * If the task doesn't exist, creates a new record.
-     * Uses the exists method to check existence.
+     * Saves a collection of tasks in one transaction, in batches of {@value BatchSupport#DEFAULT_CHUNK_SIZE} rows.
      *
-     * @throws IllegalArgumentException if berichtID or trelloID is invalid
+     * @param taken the tasks to save
+     * @throws IllegalArgumentException if one of the tasks is invalid (see {@link #save()})
      * @throws SQLException if a database error occurs
+     * @return the number of rows written
      */
-    public void save() throws IllegalArgumentException, SQLException {
+    public static int saveAll(Collection<Taak> taken) throws IllegalArgumentException, SQLException {
+        return saveAll(taken, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    private void validateForSave() throws IllegalArgumentException {
         // Validate berichtID
         if (this.getBerichtID() <= 0) {
             throw new IllegalArgumentException("BerichtID must be greater than 0");
@@ -266,48 +193,12 @@ public class Taak {
         if (this.getBeschrijving() == null) {
             throw new IllegalArgumentException("Beschrijving cannot be null");
         }
+    }
 
-        Connection conn = null;
-        PreparedStatement insertStmt = null;
-        PreparedStatement updateStmt = null;
-
-        try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
-
-            // Check if task already exists using the exists method
-            boolean taskExists = exists(this.getBerichtID());
-
-            // Update or insert based on existence
-            if (taskExists) {
-                // Update existing task
-                String updateSql = "UPDATE TAAK SET trelloID = ?, beschrijving = ? WHERE berichtID = ?";
-                updateStmt = conn.prepareStatement(updateSql);
-                updateStmt.setInt(1, this.getTrelloID());
-                updateStmt.setString(2, this.getBeschrijving());
-                updateStmt.setInt(3, this.getBerichtID());
-                updateStmt.executeUpdate();
-            } else {
-                // Insert new task
-                String insertSql = "INSERT INTO TAAK (berichtID, trelloID, beschrijving) VALUES (?, ?, ?)";
-                insertStmt = conn.prepareStatement(insertSql);
-                insertStmt.setInt(1, this.getBerichtID());
-                insertStmt.setInt(2, this.getTrelloID());
-                insertStmt.setString(3, this.getBeschrijving());
-                insertStmt.executeUpdate();
-            }
-
-        } finally {
-            // Close resources
-            try {
-                if (insertStmt != null) insertStmt.close();
-                if (updateStmt != null) updateStmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
-        }
+    private static void bindUpsert(PreparedStatement stmt, Taak taak) throws SQLException {
+        stmt.setInt(1, taak.getBerichtID());
+        stmt.setInt(2, taak.getTrelloID());
+        stmt.setString(3, taak.getBeschrijving());
     }
 
     /**
@@ -333,21 +224,16 @@ public class Taak {
             return false;
         }
 
-        // Only attempt to delete if the task exists
-        if (!exists(this.getBerichtID())) {
-            return false;
-        }
-
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
             // Prepare delete statement
             String sql = "DELETE FROM TAAK WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
+            stmt = Database.getInstance().prepareStatement(conn, sql);
             stmt.setInt(1, this.getBerichtID());
 
             // Execute delete operation
@@ -361,14 +247,8 @@ public class Taak {
             e.printStackTrace();
             return false;
         } finally {
-            // Close resources
-            try {
-                if (stmt != null) stmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
         }
     }
 
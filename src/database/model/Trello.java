@@ -6,14 +6,34 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import util.TrelloUrlValidator;
 
 /**
  * Represents a Trello board in the system.
  * Provides methods for database operations related to Trello boards.
+ * Trello links are stored in their canonical form (see {@link TrelloUrlValidator}), and a link that is already taken
+ * is refused by the {@link TrelloUrlIndex} before anything is sent to the database.
  */
 public class Trello {
+    private static final String UPSERT_SQL = "INSERT INTO TRELLO (trelloID, berichtID, trelloURL) VALUES (?, ?, ?) "
+            + "ON CONFLICT(trelloID) DO UPDATE SET berichtID = excluded.berichtID, trelloURL = excluded.trelloURL";
+    private static final String INSERT_SQL = "INSERT INTO TRELLO (berichtID, trelloURL) VALUES (?, ?)";
+
+    // Column order of ROW, every query that decodes its rows with ROW selects these columns in this order
+    private static final String COLUMNS = "trelloID, berichtID, trelloURL";
+
+    // Decodes a row of COLUMNS by position
+    private static final QuerySupport.RowMapper<Trello> ROW = rs -> new Trello(rs.getInt(1), rs.getInt(2), rs.getString(3));
+
+    private static final TrelloUrlIndex URL_INDEX = new TrelloUrlIndex(Trello::loadAll);
+
     private int trelloID;
     private int berichtID;
     private String trelloURL;
@@ -29,49 +49,18 @@ public class Trello {
             return false;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT COUNT(*) FROM TRELLO WHERE trelloID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, trelloID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Return true if count > 0, false otherwise
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
-
-            return false;
-
+            return QuerySupport.exists("SELECT COUNT(*) FROM TRELLO WHERE trelloID = ?", stmt -> stmt.setInt(1, trelloID));
         } catch (SQLException e) {
             System.out.println("Error checking if Trello board exists: " + e.getMessage());
             e.printStackTrace();
             return false;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
     /**
      * Retrieves a Trello board from the database by ID.
-     * Uses the exists method to first check if the board exists.
+     * Runs a single query, a missing row simply yields no result.
      *
      * @param trelloID The ID to look up
      * @return Trello object if found, null otherwise
@@ -82,52 +71,13 @@ public class Trello {
             return null;
         }
 
-        // First check if the board exists using the exists method
-        if (!exists(trelloID)) {
-            return null;
-        }
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT trelloID, berichtID, trelloURL FROM TRELLO WHERE trelloID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, trelloID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Check if board exists and return it
-            if (rs.next()) {
-                int id = rs.getInt("trelloID");
-                int berichtId = rs.getInt("berichtID");
-                String url = rs.getString("trelloURL");
-                return new Trello(id, berichtId, url);
-            }
-
-            // Return null if board not found (shouldn't happen since we checked with exists)
-            return null;
-
+            return QuerySupport.first("SELECT " + COLUMNS + " FROM TRELLO WHERE trelloID = ?",
+                    stmt -> stmt.setInt(1, trelloID), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving Trello board: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
@@ -143,47 +93,13 @@ public class Trello {
             return null;
         }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query with parameter
-            String sql = "SELECT trelloID, berichtID, trelloURL FROM TRELLO WHERE berichtID = ?";
-            stmt = conn.prepareStatement(sql);
-            stmt.setInt(1, berichtID);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Check if board exists and return it
-            if (rs.next()) {
-                int id = rs.getInt("trelloID");
-                int berichtId = rs.getInt("berichtID");
-                String url = rs.getString("trelloURL");
-                return new Trello(id, berichtId, url);
-            }
-
-            // Return null if no board found with this berichtID
-            return null;
-
+            return QuerySupport.first("SELECT " + COLUMNS + " FROM TRELLO WHERE berichtID = ?",
+                    stmt -> stmt.setInt(1, berichtID), ROW);
         } catch (SQLException e) {
             System.out.println("Error retrieving Trello board by berichtID: " + e.getMessage());
             e.printStackTrace();
             return null;
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
         }
     }
 
@@ -193,151 +109,229 @@ public class Trello {
      * @return List of all Trello objects in the database, empty list if none found or if an error occurs
      */
     public static List<Trello> getAll() {
-        List<Trello> trelloBoards = new ArrayList<>();
-
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
-
         try {
-            // Get database connection from singleton
-            conn = Database.getInstance().getConnection();
-
-            // Prepare SQL query to select all Trello boards
-            String sql = "SELECT trelloID, berichtID, trelloURL FROM TRELLO";
-            stmt = conn.prepareStatement(sql);
-
-            // Execute query
-            rs = stmt.executeQuery();
-
-            // Process result set and build list of Trello boards
-            while (rs.next()) {
-                int id = rs.getInt("trelloID");
-                int berichtId = rs.getInt("berichtID");
-                String url = rs.getString("trelloURL");
-
-                Trello trello = new Trello(id, berichtId, url);
-                trelloBoards.add(trello);
-            }
-
-            return trelloBoards;
-
+            return loadAll();
         } catch (SQLException e) {
             System.out.println("Error retrieving all Trello boards: " + e.getMessage());
             e.printStackTrace();
-            return trelloBoards; // Return empty list in case of error
-        } finally {
-            // Close resources
-            try {
-                if (rs != null) rs.close();
-                if (stmt != null) stmt.close();
-                // Don't close connection here as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
+    /**
+     * Like {@link #getAll()}, but a database error is thrown instead of giving an empty list.
+     */
+    private static List<Trello> loadAll() throws SQLException {
+        return QuerySupport.list("SELECT " + COLUMNS + " FROM TRELLO", QuerySupport.NO_PARAMETERS, ROW);
+    }
+
     /**
      * Saves the current Trello board to the database.
-     * If the board already exists, updates the URL and berichtID.
-     * If the board doesn't exist, creates a new record.
-     * Uses the exists method to check existence.
-     * After insert, updates the object with any database-assigned values.
+     * If the board has an ID (trelloID > 0) it is written with a single upsert:
+     * an existing board gets its URL and berichtID updated, otherwise it is inserted with that ID.
+     * If the board has no ID yet, a new record is created and the object is updated with the database-assigned ID.
+     * A Trello link is rewritten to its canonical form first.
      *
      * @throws IllegalArgumentException if trelloID is invalid or if required data is missing
+     * @throws SQLIntegrityConstraintViolationException if another board already has the link
      * @throws SQLException if a database error occurs
      * @return true if save was successful, false otherwise
      */
     public boolean save() throws IllegalArgumentException, SQLException {
         // Check trelloURL (required field)
-        if (this.getTrelloURL() == null || this.getTrelloURL().isEmpty()) {
-            throw new IllegalArgumentException("TrelloURL cannot be empty or null");
-        }
+        validateForSave();
 
         Connection conn = null;
-        PreparedStatement insertStmt = null;
-        PreparedStatement updateStmt = null;
+        PreparedStatement stmt = null;
         ResultSet generatedKeys = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
-            // Check if the object has a valid ID already (update case)
-            boolean isUpdate = this.getTrelloID() > 0 && exists(this.getTrelloID());
+            // Checked while holding the write connection, so no other save can take the link in between
+            checkUnique(this);
 
-            if (isUpdate) {
-                // Update existing board
-                String updateSql = "UPDATE TRELLO SET trelloURL = ?, berichtID = ? WHERE trelloID = ?";
-                updateStmt = conn.prepareStatement(updateSql);
-                updateStmt.setString(1, this.getTrelloURL());
-                updateStmt.setInt(2, this.getBerichtID());
-                updateStmt.setInt(3, this.getTrelloID());
+            if (this.getTrelloID() > 0) {
+                // Insert or update the board with the provided ID in one statement
+                stmt = Database.getInstance().prepareStatement(conn, UPSERT_SQL);
+                bindUpsert(stmt, this);
 
-                int rowsAffected = updateStmt.executeUpdate();
-                return rowsAffected > 0;
-            } else {
-                // Insert new board
-                // Check if we need to use database-generated ID
-                boolean useGeneratedId = this.getTrelloID() <= 0;
-
-                String insertSql;
-                if (useGeneratedId) {
-                    // Let the database generate the ID
-                    insertSql = "INSERT INTO TRELLO (berichtID, trelloURL) VALUES (?, ?)";
-                    insertStmt = conn.prepareStatement(insertSql, java.sql.Statement.RETURN_GENERATED_KEYS);
-                    insertStmt.setInt(1, this.getBerichtID());
-                    insertStmt.setString(2, this.getTrelloURL());
-                } else {
-                    // Use the provided ID
-                    insertSql = "INSERT INTO TRELLO (trelloID, berichtID, trelloURL) VALUES (?, ?, ?)";
-                    insertStmt = conn.prepareStatement(insertSql, java.sql.Statement.RETURN_GENERATED_KEYS);
-                    insertStmt.setInt(1, this.getTrelloID());
-                    insertStmt.setInt(2, this.getBerichtID());
-                    insertStmt.setString(3, this.getTrelloURL());
+                int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    URL_INDEX.put(this.getTrelloID(), this.getTrelloURL());
                 }
+                return rowsAffected > 0;
+            }
 
-                int rowsAffected = insertStmt.executeUpdate();
+            // Insert new board and let the database generate the ID
+            stmt = Database.getInstance().prepareStatement(conn, INSERT_SQL, java.sql.Statement.RETURN_GENERATED_KEYS);
+            bindInsert(stmt, this);
 
-                if (rowsAffected > 0) {
-                    // Get the generated keys
-                    generatedKeys = insertStmt.getGeneratedKeys();
-
-                    if (generatedKeys.next()) {
-                        // Update the object with the generated ID if we didn't specify one
-                        if (useGeneratedId) {
-                            this.setTrelloID(generatedKeys.getInt(1));
-                        }
-
-                        // If berichtID was 0 and the database assigned a value, update it
-                        if (this.getBerichtID() <= 0) {
-                            // We need to fetch the newly inserted record to get any default values
-                            Trello updated = lookup(this.getTrelloID());
-                            if (updated != null) {
-                                this.setBerichtID(updated.getBerichtID());
-                            }
-                        }
-
-                        return true;
-                    }
-                }
+            int rowsAffected = stmt.executeUpdate();
+
+            if (rowsAffected > 0) {
+                // Get the generated keys
+                generatedKeys = stmt.getGeneratedKeys();
 
-                return false;
+                if (generatedKeys.next()) {
+                    // Update the object with the generated ID
+                    this.setTrelloID(generatedKeys.getInt(1));
+                    URL_INDEX.put(this.getTrelloID(), this.getTrelloURL());
+                    return true;
+                }
             }
+
+            return false;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw e;
+        } catch (SQLException e) {
+            // The database may know links the index does not, read them again next time
+            URL_INDEX.clear();
+            throw e;
         } finally {
             // Close resources
             try {
                 if (generatedKeys != null) generatedKeys.close();
-                if (insertStmt != null) insertStmt.close();
-                if (updateStmt != null) updateStmt.close();
-                // Don't close connection as it's managed by the Database singleton
+                // Statements are cached by the pool, so they stay open
             } catch (SQLException e) {
                 System.out.println("Error closing resources: " + e.getMessage());
                 e.printStackTrace();
             }
+
+            // Return the connection to the pool
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Saves a collection of Trello boards in one transaction, sending them to the database in JDBC batches.
+     * Boards with an ID (trelloID > 0) are upserted like {@link #save()},
+     * boards without one are inserted and get their database-assigned ID set.
+     * Either all boards are saved or, on an error, none of them.
+     *
+     * @param boards the Trello boards to save
+     * @param chunkSize the number of rows sent to the database per batch
+     * @throws IllegalArgumentException if chunkSize is not positive or one of the boards has no URL
+     * @throws SQLIntegrityConstraintViolationException if a link is already taken, or appears twice in the collection
+     * @throws SQLException if a database error occurs
+     * @return the IDs of the saved boards, in the order of the collection
+     */
+    public static int[] saveAll(Collection<Trello> boards, int chunkSize) throws IllegalArgumentException, SQLException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("ChunkSize must be greater than 0");
+        }
+
+        List<Trello> alle = new ArrayList<>(boards);
+        List<Trello> metID = new ArrayList<>();
+        List<Trello> zonderID = new ArrayList<>();
+
+        // Validate everything before anything is written
+        for (Trello trello : alle) {
+            trello.validateForSave();
+            if (trello.getTrelloID() > 0) {
+                metID.add(trello);
+            } else {
+                zonderID.add(trello);
+            }
+        }
+
+        int[] generatedIds;
+        try {
+            generatedIds = BatchSupport.inTransaction(conn -> {
+                checkUnique(alle);
+
+                PreparedStatement upsertStmt = Database.getInstance().prepareStatement(conn, UPSERT_SQL);
+                BatchSupport.executeChunked(upsertStmt, metID, chunkSize, Trello::bindUpsert);
+
+                PreparedStatement insertStmt = Database.getInstance().prepareStatement(conn, INSERT_SQL);
+                return BatchSupport.insertChunked(conn, insertStmt, "TRELLO", "trelloID", zonderID, chunkSize, Trello::bindInsert);
+            });
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw e;
+        } catch (SQLException e) {
+            URL_INDEX.clear();
+            throw e;
+        }
+
+        // Only hand out the IDs once the transaction went through
+        for (int i = 0; i < zonderID.size(); i++) {
+            zonderID.get(i).setTrelloID(generatedIds[i]);
+        }
+        for (Trello trello : alle) {
+            URL_INDEX.put(trello.getTrelloID(), trello.getTrelloURL());
+        }
+
+        int[] ids = new int[alle.size()];
+        for (int i = 0; i < alle.size(); i++) {
+            ids[i] = alle.get(i).getTrelloID();
         }
+
+        return ids;
+    }
+
+    /**
+     * Saves a collection of Trello boards in one transaction, in batches of {@value BatchSupport#DEFAULT_CHUNK_SIZE} rows.
+     *
+     * @param boards the Trello boards to save
+     * @throws IllegalArgumentException if one of the boards has no URL
+     * @throws SQLException if a database error occurs
+     * @return the IDs of the saved boards, in the order of the collection
+     */
+    public static int[] saveAll(Collection<Trello> boards) throws IllegalArgumentException, SQLException {
+        return saveAll(boards, BatchSupport.DEFAULT_CHUNK_SIZE);
+    }
+
+    private void validateForSave() throws IllegalArgumentException {
+        if (this.getTrelloURL() == null || this.getTrelloURL().isEmpty()) {
+            throw new IllegalArgumentException("TrelloURL cannot be empty or null");
+        }
+
+        // Other links are still accepted as they are, like before
+        String canonical = TrelloUrlValidator.canonicalize(this.getTrelloURL());
+        if (canonical != null) {
+            this.setTrelloURL(canonical);
+        }
+    }
+
+    /**
+     * Refuses a link another board already has, the same check as the UNIQUE constraint on trelloURL.
+     */
+    private static void checkUnique(Trello trello) throws SQLException {
+        int other = URL_INDEX.findOther(trello.getTrelloURL(), trello.getTrelloID());
+        if (other > 0) {
+            throw new SQLIntegrityConstraintViolationException("TrelloURL " + trello.getTrelloURL() + " is already linked to Trello board " + other);
+        }
+    }
+
+    private static void checkUnique(List<Trello> boards) throws SQLException {
+        Map<String, Trello> inBatch = new HashMap<>();
+        for (Trello trello : boards) {
+            checkUnique(trello);
+
+            Trello previous = inBatch.put(TrelloUrlIndex.key(trello.getTrelloURL()), trello);
+            if (previous != null && (previous.getTrelloID() <= 0 || previous.getTrelloID() != trello.getTrelloID())) {
+                throw new SQLIntegrityConstraintViolationException("TrelloURL " + trello.getTrelloURL() + " appears more than once");
+            }
+        }
+    }
+
+    /**
+     * @return the index of the links in use, e.g. for its statistics
+     */
+    public static TrelloUrlIndex getUrlIndex() {
+        return URL_INDEX;
+    }
+
+    private static void bindUpsert(PreparedStatement stmt, Trello trello) throws SQLException {
+        stmt.setInt(1, trello.getTrelloID());
+        stmt.setInt(2, trello.getBerichtID());
+        stmt.setString(3, trello.getTrelloURL());
+    }
+
+    private static void bindInsert(PreparedStatement stmt, Trello trello) throws SQLException {
+        stmt.setInt(1, trello.getBerichtID());
+        stmt.setString(2, trello.getTrelloURL());
     }
 
     /**
@@ -376,26 +370,25 @@ public class Trello {
             return false;
         }
 
-        // Only attempt to delete if the board exists
-        if (!exists(this.getTrelloID())) {
-            return false;
-        }
-
         Connection conn = null;
         PreparedStatement stmt = null;
 
         try {
-            // Get database connection
-            conn = Database.getInstance().getConnection();
+            // Lease the write connection from the pool
+            conn = Database.getInstance().getWriteConnection();
 
             // Prepare delete statement
             String sql = "DELETE FROM TRELLO WHERE trelloID = ?";
-            stmt = conn.prepareStatement(sql);
+            stmt = Database.getInstance().prepareStatement(conn, sql);
             stmt.setInt(1, this.getTrelloID());
 
             // Execute delete operation
             int rowsAffected = stmt.executeUpdate();
 
+            if (rowsAffected > 0) {
+                URL_INDEX.remove(this.getTrelloID());
+            }
+
             // Return true if at least one row was deleted
             return rowsAffected > 0;
 
@@ -404,14 +397,8 @@ public class Trello {
             e.printStackTrace();
             return false;
         } finally {
-            // Close resources
-            try {
-                if (stmt != null) stmt.close();
-                // Don't close connection as it's managed by the Database singleton
-            } catch (SQLException e) {
-                System.out.println("Error closing resources: " + e.getMessage());
-                e.printStackTrace();
-            }
+            // Statements are cached by the pool, only the connection is returned
+            Database.getInstance().releaseConnection(conn);
         }
     }
 
@@ -0,0 +1,170 @@
+package database.model;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import util.TrelloUrlValidator;
+
+/**
+ * The trelloURLs in the database by their canonical form, so {@link Trello} can check the UNIQUE constraint
+ * on TRELLO.trelloURL in memory instead of finding out from a failing INSERT. Loaded from the database on first use
+ * and kept up to date by the saves and deletes of Trello; a write that fails drops everything, the next check reloads.
+ * A load that fails fails the check, the index stays unloaded so the next check tries again.
+ * The constraint in the database stays, the index only answers the common case early.
+ *
+ * Links that are not Trello links (older rows) are indexed as they are, like the database compares them.
+ */
+public class TrelloUrlIndex {
+    /**
+     * Reads every board from the database.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Trello> load() throws SQLException;
+    }
+
+    private final Loader loader;
+    private final Map<String, Integer> idsByUrl = new HashMap<>();
+    private final Map<Integer, String> urlsById = new HashMap<>();
+    private boolean loaded = false;
+    // A lock rather than synchronized, the first check loads from the database on a possibly virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Statistics
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * @param loader reads every board from the database
+     */
+    public TrelloUrlIndex(Loader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return the key a link is indexed by: its canonical form, or the link itself if it is not a Trello link
+     */
+    public static String key(String url) {
+        String canonical = TrelloUrlValidator.canonicalize(url);
+        return canonical != null ? canonical : url;
+    }
+
+    /**
+     * @param url the link to look up
+     * @param trelloID the board that wants the link, 0 for a new board
+     * @return the ID of another board that already has the link, or 0 if none has
+     * @throws SQLException if the links could not be read from the database
+     */
+    public int findOther(String url, int trelloID) throws SQLException {
+        String key = key(url);
+        lock.lock();
+        try {
+            ensureLoaded();
+            checks.incrementAndGet();
+
+            Integer id = idsByUrl.get(key);
+            if (id == null || id == trelloID) {
+                return 0;
+            }
+            duplicates.incrementAndGet();
+            return id;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the link of a saved board, replacing the link it had before.
+     */
+    public void put(int trelloID, String url) {
+        String key = key(url);
+        lock.lock();
+        try {
+            if (!loaded) {
+                // Picked up by the load
+                return;
+            }
+
+            String previous = urlsById.put(trelloID, key);
+            if (previous != null && !previous.equals(key)) {
+                idsByUrl.remove(previous);
+            }
+            idsByUrl.put(key, trelloID);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forgets the link of a deleted board.
+     */
+    public void remove(int trelloID) {
+        lock.lock();
+        try {
+            String key = urlsById.remove(trelloID);
+            if (key != null) {
+                idsByUrl.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops everything, the next lookup reads the links from the database again.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            idsByUrl.clear();
+            urlsById.clear();
+            loaded = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+
+        // Read everything before touching the maps, a failed load leaves them empty
+        List<Trello> boards = loader.load();
+        for (Trello trello : boards) {
+            String key = key(trello.getTrelloURL());
+            idsByUrl.put(key, trello.getTrelloID());
+            urlsById.put(trello.getTrelloID(), key);
+        }
+        loaded = true;
+        loads.incrementAndGet();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return idsByUrl.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getChecks() {
+        return checks.get();
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Trello URL index[%d links, %d checks, %d duplicates, %d loads]",
+                size(), getChecks(), getDuplicates(), loads.get());
+    }
+}
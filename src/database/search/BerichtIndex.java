@@ -0,0 +1,545 @@
+package database.search;
+
+import database.model.Bericht;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-process inverted index over the content of all messages.
+ * Every word maps to a sorted int posting list of berichtIDs, and every indexed message keeps its
+ * own word sequence for phrase matching, so searches are answered without any SQL.
+ * The index is built once from the database with {@link #build()} and afterwards kept up to date
+ * by {@link Bericht#save()} and {@link Bericht#delete()}.
+ *
+ * Query syntax:
+ * - words separated by spaces must all occur (AND)
+ * - OR (or OF) between words or groups of words means either side may match
+ * - "quoted words" must occur as a phrase, in that order
+ * - a word ending in * matches every word starting with it
+ * - sprint:N and van:gebruikersnaam filter on sprint and sender
+ */
+public class BerichtIndex {
+    private static final int BUILD_PAGE_SIZE = 1000;
+
+    // Single instance of the class
+    private static BerichtIndex instance;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Word -> term ID, sorted so prefix queries are a range lookup
+    private final TreeMap<String, Integer> termIds = new TreeMap<>();
+    // Term ID -> sorted berichtIDs containing the word
+    private final List<PostingList> postings = new ArrayList<>();
+    // berichtID -> indexed message
+    private final Map<Integer, IndexedBericht> documents = new HashMap<>();
+    // All indexed berichtIDs, used for filter-only queries
+    private PostingList allIds = new PostingList();
+
+    private volatile boolean loaded = false;
+
+    // Saves and deletes that arrive while the first build runs, applied when it ends. Guarded by itself.
+    private final List<Runnable> pendingUpdates = new ArrayList<>();
+    private boolean building = false;
+
+    /**
+     * A message as held by the index: a copy of the message and its words as term IDs, in order.
+     */
+    private static class IndexedBericht {
+        private final Bericht bericht;
+        private final int[] terms;
+
+        private IndexedBericht(Bericht bericht, int[] terms) {
+            this.bericht = bericht;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * One part of a query: a single word, a prefix or a phrase.
+     */
+    private static class Clause {
+        private final List<String> words;
+        private final boolean prefix;
+
+        private Clause(List<String> words, boolean prefix) {
+            this.words = words;
+            this.prefix = prefix;
+        }
+    }
+
+    // Private constructor to prevent instantiation
+    private BerichtIndex() {
+    }
+
+    // Static method to get the singleton instance
+    public static synchronized BerichtIndex getInstance() {
+        if (instance == null) {
+            instance = new BerichtIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * @return true once the index has been built and is being kept up to date
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Builds the index if that has not happened yet. Concurrent first callers wait for one build.
+     */
+    public void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    build();
+                }
+            }
+        }
+    }
+
+    /**
+     * (Re)builds the index from all messages in the database, streaming them page by page.
+     * Messages saved or deleted while the first build runs are applied after it, so none are lost.
+     */
+    public synchronized void build() {
+        synchronized (pendingUpdates) {
+            building = true;
+        }
+
+        lock.writeLock().lock();
+        try {
+            termIds.clear();
+            postings.clear();
+            documents.clear();
+            allIds = new PostingList();
+
+            // The stream is newest first, so the IDs are appended unsorted and sorted once at the end
+            Bericht.stream(BUILD_PAGE_SIZE).forEach(bericht -> add(bericht, true));
+
+            for (PostingList list : postings) {
+                list.sortAndTrim();
+            }
+            allIds.sortAndTrim();
+
+            synchronized (pendingUpdates) {
+                // In the order they were committed; a message the stream already saw is simply replaced
+                for (Runnable update : pendingUpdates) {
+                    update.run();
+                }
+                loaded = true;
+            }
+        } finally {
+            synchronized (pendingUpdates) {
+                pendingUpdates.clear();
+                building = false;
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces a message in the index. Before the index is loaded the message is left to
+     * the build, which reads it from the database or applies it when it ends.
+     *
+     * @param bericht the saved message
+     */
+    public void index(Bericht bericht) {
+        if (bericht == null || bericht.getBerichtID() <= 0 || deferred(bericht)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            replace(bericht);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a message from the index.
+     *
+     * @param berichtID the ID of the deleted message
+     */
+    public void remove(int berichtID) {
+        if (deferred(berichtID)) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            remove(berichtID, documents.get(berichtID));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Decides what happens to a save before the index is loaded: during the first build it is kept
+     * for the end of the build, otherwise it is dropped because the build will read it.
+     *
+     * @return true if the caller must not apply the save now
+     */
+    private boolean deferred(Bericht bericht) {
+        if (loaded) {
+            return false;
+        }
+        // The caller may change its message afterwards
+        Bericht saved = new Bericht(bericht);
+        return defer(() -> replace(saved));
+    }
+
+    private boolean deferred(int berichtID) {
+        return !loaded && defer(() -> remove(berichtID, documents.get(berichtID)));
+    }
+
+    private boolean defer(Runnable update) {
+        synchronized (pendingUpdates) {
+            if (loaded) {
+                return false;
+            }
+            if (building) {
+                pendingUpdates.add(update);
+            }
+            return true;
+        }
+    }
+
+    // Caller holds the write lock
+    private void replace(Bericht bericht) {
+        remove(bericht.getBerichtID(), documents.get(bericht.getBerichtID()));
+        add(bericht, false);
+    }
+
+    /**
+     * Searches the index.
+     *
+     * @param query the query, see the class documentation for the syntax
+     * @param sprintNummer only return messages of this sprint, 0 for all sprints
+     * @param afzender only return messages of this sender, null for all senders
+     * @param limit the maximum number of results
+     * @return the matching messages, newest first
+     */
+    public List<Bericht> search(String query, int sprintNummer, String afzender, int limit) {
+        List<Bericht> berichten = new ArrayList<>();
+
+        if (query == null || limit <= 0) {
+            return berichten;
+        }
+
+        // Filters can also be given inside the query
+        List<List<Clause>> groups = new ArrayList<>();
+        List<Clause> group = new ArrayList<>();
+        groups.add(group);
+
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                List<String> words = tokenize(query.substring(i + 1, end));
+                if (!words.isEmpty()) {
+                    group.add(new Clause(words, false));
+                }
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                i = end;
+
+                if (word.equals("OR") || word.equals("OF")) {
+                    group = new ArrayList<>();
+                    groups.add(group);
+                } else if (word.startsWith("sprint:") && isNumber(word.substring(7))) {
+                    sprintNummer = Integer.parseInt(word.substring(7));
+                } else if (word.startsWith("van:") && word.length() > 4) {
+                    afzender = word.substring(4);
+                } else {
+                    boolean prefix = word.endsWith("*");
+                    List<String> words = tokenize(word);
+                    // Punctuation inside a word (e.g. "front-end") makes it a phrase
+                    if (!words.isEmpty()) {
+                        group.add(new Clause(words, prefix && words.size() == 1));
+                    }
+                }
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            PostingList matches = null;
+            boolean hasTerms = false;
+
+            for (List<Clause> clauses : groups) {
+                if (clauses.isEmpty()) {
+                    continue;
+                }
+                hasTerms = true;
+
+                PostingList groupMatches = null;
+                for (Clause clause : clauses) {
+                    PostingList clauseMatches = evaluate(clause);
+                    groupMatches = groupMatches == null ? clauseMatches : groupMatches.and(clauseMatches);
+                }
+
+                matches = matches == null ? groupMatches : matches.or(groupMatches);
+            }
+
+            // A query with only filters matches every message
+            if (!hasTerms) {
+                matches = allIds;
+            }
+
+            // Highest IDs are the newest messages
+            for (int j = matches.size() - 1; j >= 0 && berichten.size() < limit; j--) {
+                Bericht bericht = documents.get(matches.get(j)).bericht;
+
+                if (sprintNummer > 0 && bericht.getSprintNummer() != sprintNummer) {
+                    continue;
+                }
+                if (afzender != null && !afzender.equals(bericht.getAfzender())) {
+                    continue;
+                }
+
+                berichten.add(copy(bericht));
+            }
+
+            return berichten;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed messages
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct words in the index
+     */
+    public int getTermCount() {
+        lock.readLock().lock();
+        try {
+            return termIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap used by the index, including the copies of the messages it answers with.
+     * Assumes a 64-bit JVM with compressed references and compact (Latin-1) strings.
+     *
+     * @return the estimated memory footprint in bytes
+     */
+    public long getMemoryFootprint() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+
+            // Dictionary: TreeMap entry, String and boxed term ID per word
+            for (String term : termIds.keySet()) {
+                bytes += 40 + stringBytes(term) + 16;
+            }
+
+            // Posting lists
+            for (PostingList list : postings) {
+                bytes += 16 + list.memoryBytes();
+            }
+            bytes += allIds.memoryBytes();
+
+            // Documents: HashMap entry, boxed key, IndexedBericht, term array and the message copy
+            for (IndexedBericht document : documents.values()) {
+                Bericht bericht = document.bericht;
+                bytes += 32 + 16 + 24 + 16 + 4L * document.terms.length;
+                // The sender is a shared String and the timestamp a long, only the content is per message
+                bytes += 40 + stringBytes(bericht.getInhoud());
+            }
+
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Splits text into lowercase words without accents. Everything that is not a letter or digit separates words.
+     *
+     * @param text the text to split
+     * @return the words in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+
+        int i = 0;
+        while (i < text.length()) {
+            while (i < text.length() && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+
+            int start = i;
+            boolean ascii = true;
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                if (text.charAt(i) > 127) {
+                    ascii = false;
+                }
+                i++;
+            }
+
+            if (i > start) {
+                String word = text.substring(start, i).toLowerCase();
+                if (!ascii) {
+                    // Strip accents so "café" and "cafe" are the same word
+                    word = Normalizer.normalize(word, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+                }
+                words.add(word);
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * Adds a message to the posting lists. During a bulk build the IDs are only appended,
+     * otherwise they are inserted in order.
+     */
+    private void add(Bericht bericht, boolean bulk) {
+        List<String> words = tokenize(bericht.getInhoud());
+        int[] terms = new int[words.size()];
+
+        for (int i = 0; i < terms.length; i++) {
+            Integer termId = termIds.get(words.get(i));
+            if (termId == null) {
+                termId = postings.size();
+                termIds.put(words.get(i), termId);
+                postings.add(new PostingList());
+            }
+
+            terms[i] = termId;
+            if (bulk) {
+                postings.get(termId).append(bericht.getBerichtID());
+            } else {
+                postings.get(termId).add(bericht.getBerichtID());
+            }
+        }
+
+        documents.put(bericht.getBerichtID(), new IndexedBericht(copy(bericht), terms));
+        if (bulk) {
+            allIds.append(bericht.getBerichtID());
+        } else {
+            allIds.add(bericht.getBerichtID());
+        }
+    }
+
+    private void remove(int berichtID, IndexedBericht document) {
+        if (document == null) {
+            return;
+        }
+
+        for (int termId : document.terms) {
+            postings.get(termId).remove(berichtID);
+        }
+
+        documents.remove(berichtID);
+        allIds.remove(berichtID);
+    }
+
+    private PostingList evaluate(Clause clause) {
+        if (clause.prefix) {
+            String prefix = clause.words.get(0);
+            PostingList result = new PostingList();
+            SortedMap<String, Integer> range = termIds.subMap(prefix, prefix + Character.MAX_VALUE);
+            for (int termId : range.values()) {
+                result = result.or(postings.get(termId));
+            }
+            return result;
+        }
+
+        int[] phrase = new int[clause.words.size()];
+        PostingList result = null;
+
+        for (int i = 0; i < phrase.length; i++) {
+            Integer termId = termIds.get(clause.words.get(i));
+            if (termId == null) {
+                return new PostingList();
+            }
+
+            phrase[i] = termId;
+            result = result == null ? postings.get(termId) : result.and(postings.get(termId));
+        }
+
+        if (phrase.length == 1) {
+            return result;
+        }
+
+        // The words all occur, now check that they occur next to each other
+        PostingList verified = new PostingList();
+        for (int i = 0; i < result.size(); i++) {
+            int berichtID = result.get(i);
+            if (containsPhrase(documents.get(berichtID).terms, phrase)) {
+                verified.add(berichtID);
+            }
+        }
+        return verified;
+    }
+
+    private static boolean containsPhrase(int[] terms, int[] phrase) {
+        for (int start = 0; start + phrase.length <= terms.length; start++) {
+            if (Arrays.equals(terms, start, start + phrase.length, phrase, 0, phrase.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Bericht copy(Bericht bericht) {
+        return new Bericht(bericht);
+    }
+
+    private static boolean isNumber(String text) {
+        // Longer numbers cannot be a sprint number
+        if (text.isEmpty() || text.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long stringBytes(String text) {
+        return text == null ? 0 : 24 + 16 + text.length();
+    }
+}
@@ -0,0 +1,174 @@
+package database.search;
+
+import java.util.Arrays;
+
+/**
+ * A sorted list of berichtIDs backed by a primitive int array.
+ * New messages get increasing IDs, so adding is normally an append.
+ */
+class PostingList {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids;
+    private int size;
+
+    PostingList() {
+        this.ids = EMPTY;
+        this.size = 0;
+    }
+
+    private PostingList(int[] ids, int size) {
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Adds an ID, keeping the list sorted. Adding an ID that is already present does nothing.
+     */
+    void add(int id) {
+        // Fast path: IDs are handed out in increasing order
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity(size + 1);
+            ids[size++] = id;
+            return;
+        }
+
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+
+        int insertAt = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        size++;
+    }
+
+    /**
+     * Appends an ID without keeping the list sorted, for bulk builds that read the messages in any order.
+     * The list must be sorted with {@link #sortAndTrim()} before it is used.
+     */
+    void append(int id) {
+        // The same word often occurs more than once in a message
+        if (size > 0 && ids[size - 1] == id) {
+            return;
+        }
+
+        ensureCapacity(size + 1);
+        ids[size++] = id;
+    }
+
+    /**
+     * Sorts the list after a bulk build with {@link #append(int)}, drops duplicate IDs
+     * and shrinks the backing array to the number of IDs.
+     */
+    void sortAndTrim() {
+        Arrays.sort(ids, 0, size);
+
+        int unique = 0;
+        for (int i = 0; i < size; i++) {
+            if (unique == 0 || ids[unique - 1] != ids[i]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        size = unique;
+
+        trim();
+    }
+
+    /**
+     * Removes an ID if it is present.
+     */
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @return the IDs present in both lists
+     */
+    PostingList and(PostingList other) {
+        int[] result = new int[Math.min(size, other.size)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < size && j < other.size) {
+            if (ids[i] < other.ids[j]) {
+                i++;
+            } else if (ids[i] > other.ids[j]) {
+                j++;
+            } else {
+                result[count++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+
+        return new PostingList(result, count);
+    }
+
+    /**
+     * @return the IDs present in either list
+     */
+    PostingList or(PostingList other) {
+        int[] result = new int[size + other.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && ids[i] < other.ids[j])) {
+                result[count++] = ids[i++];
+            } else if (i >= size || ids[i] > other.ids[j]) {
+                result[count++] = other.ids[j++];
+            } else {
+                result[count++] = ids[i];
+                i++;
+                j++;
+            }
+        }
+
+        return new PostingList(result, count);
+    }
+
+    /**
+     * @return the number of bytes held by the backing array
+     */
+    long memoryBytes() {
+        return 16L + 4L * ids.length;
+    }
+
+    /**
+     * Shrinks the backing array to the number of IDs.
+     */
+    void trim() {
+        if (ids.length != size) {
+            ids = size == 0 ? EMPTY : Arrays.copyOf(ids, size);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (ids.length < capacity) {
+            ids = Arrays.copyOf(ids, Math.max(capacity, ids.length + (ids.length >> 1) + 4));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package server;
+
+import database.live.Subscription;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The server side of one client connection. Incoming bytes are cut into frames on the selector thread,
+ * the requests of one connection run one after another on the worker executor (so a client always sees
+ * its own writes), and responses wait in an outbound queue until the channel can take them.
+ * Pushed messages wait in a bounded queue of their own, so a client that does not read cannot grow the heap.
+ */
+class ClientConnection {
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * A request frame waiting to be handled.
+     */
+    static class Request {
+        final byte operation;
+        final int requestId;
+        final byte[] payload;
+
+        private Request(byte operation, int requestId, byte[] payload) {
+            this.operation = operation;
+            this.requestId = requestId;
+            this.payload = payload;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private final Queue<Request> requests = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean handling = new AtomicBoolean(false);
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<ByteBuffer> pushes;
+    // The frame the channel took part of, finished before any other frame is started. Selector thread only.
+    private ByteBuffer writing;
+    private volatile boolean closed = false;
+
+    // New messages pushed to this client, if it subscribed
+    private Subscription subscription;
+
+    /**
+     * @param maxPendingPushes the number of pushed frames that may wait to be written
+     */
+    ClientConnection(SocketChannel channel, SelectionKey key, int maxPendingPushes) {
+        this.channel = channel;
+        this.key = key;
+        this.pushes = new ArrayBlockingQueue<>(maxPendingPushes);
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Reads what the channel has and queues every complete frame. Only called on the selector thread.
+     *
+     * @return false if the client closed the connection
+     * @throws IOException if reading fails or the client sends an invalid frame
+     */
+    boolean read() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            return false;
+        }
+
+        readBuffer.flip();
+        while (readBuffer.remaining() >= Protocol.LENGTH_SIZE) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < Protocol.HEADER_SIZE || length > Protocol.MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame length " + length);
+            }
+
+            if (readBuffer.remaining() < Protocol.LENGTH_SIZE + length) {
+                // Make room for the rest of a frame that is larger than the buffer
+                if (readBuffer.capacity() < Protocol.LENGTH_SIZE + length) {
+                    ByteBuffer larger = ByteBuffer.allocate(Protocol.LENGTH_SIZE + length);
+                    larger.put(readBuffer);
+                    larger.flip();
+                    readBuffer = larger;
+                }
+                break;
+            }
+
+            readBuffer.getInt();
+            byte operation = readBuffer.get();
+            int requestId = readBuffer.getInt();
+            byte[] payload = new byte[length - Protocol.HEADER_SIZE];
+            readBuffer.get(payload);
+            requests.add(new Request(operation, requestId, payload));
+        }
+        readBuffer.compact();
+
+        return true;
+    }
+
+    /**
+     * Starts handling the queued requests on the executor, unless that is already going on.
+     *
+     * @param executor runs the requests
+     * @param handler handles one request and queues its response
+     */
+    void handleRequests(Executor executor, Consumer<Request> handler) {
+        if (requests.isEmpty() || !handling.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                Request request;
+                while (!closed && (request = requests.poll()) != null) {
+                    handler.accept(request);
+                }
+            } finally {
+                handling.set(false);
+            }
+
+            // A request may have arrived after the loop found the queue empty
+            handleRequests(executor, handler);
+        });
+    }
+
+    /**
+     * Queues a frame to be written to the client.
+     */
+    void send(ByteBuffer frame) {
+        if (!closed) {
+            outbound.add(frame);
+        }
+    }
+
+    /**
+     * Queues a pushed frame, waiting while the client has the maximum number of pushes still to read.
+     * Room is made as soon as the selector thread writes a push.
+     *
+     * @return false if there was no room within the timeout, or the connection is closed
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    boolean offerPush(ByteBuffer frame, long timeout, TimeUnit unit) throws InterruptedException {
+        return !closed && pushes.offer(frame, timeout, unit);
+    }
+
+    boolean hasOutbound() {
+        return writing != null || !outbound.isEmpty() || !pushes.isEmpty();
+    }
+
+    /**
+     * Replaces the subscription of this client, closing the previous one.
+     *
+     * @param subscription the new subscription, or null to unsubscribe
+     */
+    synchronized void setSubscription(Subscription subscription) {
+        if (this.subscription != null) {
+            this.subscription.close();
+        }
+        this.subscription = subscription;
+
+        if (closed && subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Writes queued frames until the channel cannot take more, responses before pushes.
+     * Only called on the selector thread.
+     *
+     * @return true if everything queued has been written
+     * @throws IOException if writing fails
+     */
+    boolean write() throws IOException {
+        while (true) {
+            if (writing == null) {
+                writing = outbound.poll();
+                if (writing == null) {
+                    writing = pushes.poll();
+                }
+                if (writing == null) {
+                    return true;
+                }
+            }
+
+            channel.write(writing);
+            if (writing.hasRemaining()) {
+                return false;
+            }
+            writing = null;
+        }
+    }
+
+    void close() {
+        closed = true;
+        requests.clear();
+        outbound.clear();
+        // Also lets a push that waits for room go on and find the connection closed
+        pushes.clear();
+        key.cancel();
+        setSubscription(null);
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Error closing client connection: " + e.getMessage());
+        }
+    }
+}
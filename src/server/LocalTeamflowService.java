@@ -0,0 +1,113 @@
+package server;
+
+import database.BerichtWriteQueue;
+import database.Database;
+import database.live.BerichtBus;
+import database.live.Subscription;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+import database.search.BerichtIndex;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the Teamflow operations against the database in this process.
+ * New messages go through the {@link BerichtWriteQueue}, so any number of sessions share the single writer.
+ */
+public class LocalTeamflowService implements TeamflowService {
+    // "fts" answers searches from the FTS5 table in the database, "index" (opt-in) from the in-memory BerichtIndex,
+    // which holds a copy of every message and is built on the first search
+    private static final String SEARCH_ENGINE = System.getProperty("teamflow.search.engine", "fts");
+
+    @Override
+    public CompletableFuture<Bericht> sendBericht(Bericht bericht) {
+        try {
+            return BerichtWriteQueue.getInstance().submit(bericht);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public List<Bericht> getPageBefore(Bericht cursor, int pageSize) {
+        return Bericht.getPageBefore(cursor, pageSize);
+    }
+
+    @Override
+    public List<Bericht> search(String zoekterm, int limit) {
+        if (SEARCH_ENGINE.equals("index")) {
+            // Search the in-memory index, newest matches first, built on first use
+            BerichtIndex index = BerichtIndex.getInstance();
+            index.ensureLoaded();
+            return index.search(zoekterm, 0, null, limit);
+        }
+
+        // Search the full-text index in the database, best matches first
+        return Bericht.search(zoekterm, limit);
+    }
+
+    @Override
+    public Subscription subscribe(int sprintNummer) {
+        return BerichtBus.getInstance().subscribe(sprintNummer);
+    }
+
+    @Override
+    public List<Bericht> getBySprint(int sprintNummer) {
+        return Bericht.getBySprint(sprintNummer);
+    }
+
+    @Override
+    public Gebruiker lookupGebruiker(String gebruikersnaam) {
+        return Gebruiker.lookup(gebruikersnaam);
+    }
+
+    @Override
+    public void saveGebruiker(Gebruiker gebruiker) throws SQLException {
+        gebruiker.save();
+    }
+
+    @Override
+    public Sprint lookupSprint(int sprintNummer) {
+        return Sprint.lookup(sprintNummer);
+    }
+
+    @Override
+    public void saveSprint(Sprint sprint) throws SQLException {
+        sprint.save();
+    }
+
+    @Override
+    public Trello lookupTrelloByBerichtID(int berichtID) {
+        return Trello.lookupByBerichtID(berichtID);
+    }
+
+    @Override
+    public Trello saveTrello(Trello trello) throws SQLException {
+        trello.save();
+        return trello;
+    }
+
+    @Override
+    public Taak lookupTaak(int berichtID) {
+        return Taak.lookup(berichtID);
+    }
+
+    @Override
+    public void saveTaak(Taak taak) throws SQLException {
+        taak.save();
+    }
+
+    @Override
+    public void close() {
+        // Flushes the write queue before the connections are closed
+        Database.getInstance().closeConnection();
+    }
+}
@@ -0,0 +1,292 @@
+package server;
+
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The wire protocol between {@link TeamflowServer} and {@link RemoteTeamflowService}.
+ *
+ * Every message is one frame: a 4-byte length, followed by that many bytes holding
+ * a 1-byte type, a 4-byte request ID and the payload. A request has an operation as its type,
+ * the response to it carries the same request ID and has {@link #OK} or {@link #ERROR} as its type.
+ * After {@link #SUBSCRIBE} the server also pushes new messages ({@link #PUSH_BERICHT}) with request ID 0,
+ * and {@link #SUBSCRIPTION_CLOSED} with the sprint number when the client fell too far behind and has to reload.
+ * Both name their sprint, so a client that subscribed to another sprint in the meantime can drop them.
+ * Numbers are big-endian, strings are a 4-byte byte count (-1 for null) followed by UTF-8,
+ * timestamps are epoch milliseconds of the local date and time, dates are epoch days,
+ * and a null timestamp or date is {@link #NO_TIME} (Long.MIN_VALUE) in their place.
+ * Nullable objects start with a boolean that tells whether they are present.
+ */
+public final class Protocol {
+    public static final int DEFAULT_PORT = 7070;
+
+    // Frames larger than this are refused, the largest real frames are pages of search results
+    public static final int MAX_FRAME_SIZE = 4 * 1024 * 1024;
+
+    // Size of the length field in front of every frame
+    public static final int LENGTH_SIZE = 4;
+    // Size of the type and request ID at the start of every frame
+    public static final int HEADER_SIZE = 5;
+
+    // Operations
+    public static final byte SEND_BERICHT = 1;
+    public static final byte PAGE_BEFORE = 2;
+    public static final byte SEARCH = 3;
+    public static final byte BY_SPRINT = 4;
+    public static final byte LOOKUP_GEBRUIKER = 5;
+    public static final byte SAVE_GEBRUIKER = 6;
+    public static final byte LOOKUP_SPRINT = 7;
+    public static final byte SAVE_SPRINT = 8;
+    public static final byte LOOKUP_TRELLO = 9;
+    public static final byte SAVE_TRELLO = 10;
+    public static final byte LOOKUP_TAAK = 11;
+    public static final byte SAVE_TAAK = 12;
+    public static final byte SUBSCRIBE = 13;
+    public static final byte UNSUBSCRIBE = 14;
+
+    // Response types
+    public static final byte OK = 0;
+    public static final byte ERROR = -1;
+
+    // Frames the server pushes on its own, with request ID 0
+    public static final byte PUSH_BERICHT = 1;
+    public static final byte SUBSCRIPTION_CLOSED = 2;
+    public static final int PUSH_REQUEST_ID = 0;
+
+    // Written in place of a null timestamp or date; no real one is this far back
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    private Protocol() {
+    }
+
+    /**
+     * Builds a complete frame, ready to be written to a channel.
+     *
+     * @param type the operation or response type
+     * @param requestId the ID that ties a response to its request
+     * @param payload the encoded payload
+     * @return a buffer positioned at the start of the frame
+     */
+    public static ByteBuffer frame(byte type, int requestId, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH_SIZE + HEADER_SIZE + payload.length);
+        buffer.putInt(HEADER_SIZE + payload.length);
+        buffer.put(type);
+        buffer.putInt(requestId);
+        buffer.put(payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * A growable buffer to encode a payload into.
+     */
+    public static class Payload extends DataOutputStream {
+        public Payload() {
+            super(new ByteArrayOutputStream(128));
+        }
+
+        public byte[] toByteArray() {
+            return ((ByteArrayOutputStream) out).toByteArray();
+        }
+    }
+
+    // Strings
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > MAX_FRAME_SIZE) {
+            throw new IOException("String of " + length + " bytes does not fit in a frame");
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Dates and times
+
+    public static void writeTimestamp(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeLong(value != null ? value.toInstant(ZoneOffset.UTC).toEpochMilli() : NO_TIME);
+    }
+
+    public static LocalDateTime readTimestamp(DataInput in) throws IOException {
+        long millis = in.readLong();
+        if (millis == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public static void writeDate(DataOutput out, LocalDate value) throws IOException {
+        out.writeLong(value != null ? value.toEpochDay() : NO_TIME);
+    }
+
+    public static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay != NO_TIME ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    // Model classes
+
+    public static void writeBericht(DataOutput out, Bericht bericht) throws IOException {
+        out.writeBoolean(bericht != null);
+        if (bericht == null) {
+            return;
+        }
+
+        out.writeInt(bericht.getBerichtID());
+        writeString(out, bericht.getInhoud());
+        writeTimestamp(out, bericht.getTijdstip());
+        writeString(out, bericht.getAfzender());
+        out.writeInt(bericht.getSprintNummer());
+    }
+
+    public static Bericht readBericht(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int berichtID = in.readInt();
+        String inhoud = readString(in);
+        LocalDateTime tijdstip = readTimestamp(in);
+        String afzender = readString(in);
+        int sprintNummer = in.readInt();
+        return new Bericht(berichtID, inhoud, tijdstip, afzender, sprintNummer);
+    }
+
+    public static void writeBerichten(DataOutput out, List<Bericht> berichten) throws IOException {
+        out.writeInt(berichten.size());
+        for (Bericht bericht : berichten) {
+            writeBericht(out, bericht);
+        }
+    }
+
+    public static List<Bericht> readBerichten(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid message count " + count);
+        }
+
+        List<Bericht> berichten = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            berichten.add(readBericht(in));
+        }
+        return berichten;
+    }
+
+    public static void writeGebruiker(DataOutput out, Gebruiker gebruiker) throws IOException {
+        out.writeBoolean(gebruiker != null);
+        if (gebruiker == null) {
+            return;
+        }
+
+        writeString(out, gebruiker.getGebruikersnaam());
+        writeString(out, gebruiker.getWeergavenaam());
+    }
+
+    public static Gebruiker readGebruiker(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        String gebruikersnaam = readString(in);
+        String weergavenaam = readString(in);
+        return new Gebruiker(gebruikersnaam, weergavenaam);
+    }
+
+    public static void writeSprint(DataOutput out, Sprint sprint) throws IOException {
+        out.writeBoolean(sprint != null);
+        if (sprint == null) {
+            return;
+        }
+
+        out.writeInt(sprint.getSprintNummer());
+        writeDate(out, sprint.getBeginDatum());
+        writeDate(out, sprint.getEindDatum());
+    }
+
+    public static Sprint readSprint(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int sprintNummer = in.readInt();
+        LocalDate beginDatum = readDate(in);
+        LocalDate eindDatum = readDate(in);
+        return new Sprint(sprintNummer, beginDatum, eindDatum);
+    }
+
+    public static void writeTrello(DataOutput out, Trello trello) throws IOException {
+        out.writeBoolean(trello != null);
+        if (trello == null) {
+            return;
+        }
+
+        out.writeInt(trello.getTrelloID());
+        out.writeInt(trello.getBerichtID());
+        writeString(out, trello.getTrelloURL());
+    }
+
+    public static Trello readTrello(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int trelloID = in.readInt();
+        int berichtID = in.readInt();
+        String trelloURL = readString(in);
+        return new Trello(trelloID, berichtID, trelloURL);
+    }
+
+    public static void writeTaak(DataOutput out, Taak taak) throws IOException {
+        out.writeBoolean(taak != null);
+        if (taak == null) {
+            return;
+        }
+
+        out.writeInt(taak.getBerichtID());
+        out.writeInt(taak.getTrelloID());
+        writeString(out, taak.getBeschrijving());
+    }
+
+    public static Taak readTaak(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        int berichtID = in.readInt();
+        int trelloID = in.readInt();
+        String beschrijving = readString(in);
+        return new Taak(berichtID, trelloID, beschrijving);
+    }
+}
@@ -0,0 +1,387 @@
+package server;
+
+import database.live.Subscription;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thin client: runs the Teamflow operations on a {@link TeamflowServer} instead of a local database.
+ * Requests share a single connection; a reader thread hands every response to the request waiting for it
+ * and puts the messages the server pushes into the subscription.
+ */
+public class RemoteTeamflowService implements TeamflowService {
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    // Pushed messages the client has not taken yet, more than this drops the oldest
+    private static final int SUBSCRIPTION_BUFFER_SIZE = Integer.getInteger("teamflow.bus.bufferSize", 256);
+
+    /**
+     * A response frame, handed from the reader thread to the waiting request.
+     */
+    private static class Response {
+        final byte type;
+        final byte[] body;
+
+        Response(byte type, byte[] body) {
+            this.type = type;
+            this.body = body;
+        }
+    }
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    // A lock rather than synchronized, so a virtual thread writing to the server does not pin its carrier thread
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicInteger nextRequestId = new AtomicInteger(1);
+    private final Map<Integer, CompletableFuture<Response>> pending = new ConcurrentHashMap<>();
+    private final Thread reader;
+    private volatile boolean closed = false;
+
+    // The messages pushed by the server, if subscribed
+    private volatile Subscription subscription;
+
+    /**
+     * Connects to a server.
+     *
+     * @param host the host name or address of the server
+     * @param port the port of the server
+     * @throws IOException if the server cannot be reached
+     */
+    public RemoteTeamflowService(String host, int port) throws IOException {
+        this.socket = new Socket();
+        this.socket.setTcpNoDelay(true);
+        this.socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        this.reader = new Thread(this::read, "teamflow-client-reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Reads frames until the connection closes, completing the waiting requests.
+     */
+    private void read() {
+        IOException failure = null;
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < Protocol.HEADER_SIZE || length > Protocol.MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+
+                byte type = in.readByte();
+                int requestId = in.readInt();
+                byte[] body = new byte[length - Protocol.HEADER_SIZE];
+                in.readFully(body);
+
+                if (requestId == Protocol.PUSH_REQUEST_ID) {
+                    receivePush(type, body);
+                    continue;
+                }
+
+                CompletableFuture<Response> response = pending.remove(requestId);
+                if (response != null) {
+                    response.complete(new Response(type, body));
+                }
+            }
+        } catch (IOException e) {
+            failure = closed ? new IOException("Connection closed") : e;
+        }
+
+        // Nothing more will arrive
+        closed = true;
+        for (CompletableFuture<Response> response : pending.values()) {
+            response.completeExceptionally(failure);
+        }
+        pending.clear();
+
+        Subscription current = subscription;
+        subscription = null;
+        if (current != null) {
+            current.disconnect();
+        }
+    }
+
+    private void receivePush(byte type, byte[] body) throws IOException {
+        Subscription current = subscription;
+        if (current == null) {
+            return;
+        }
+
+        // Frames of a previous subscription can still arrive after subscribe() replaced it, they name their sprint
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body));
+        if (type == Protocol.PUSH_BERICHT) {
+            Bericht bericht = Protocol.readBericht(payload);
+            if (bericht != null && bericht.getSprintNummer() == current.getSprintNummer()) {
+                current.offer(bericht);
+            }
+        } else if (type == Protocol.SUBSCRIPTION_CLOSED && payload.readInt() == current.getSprintNummer()) {
+            // The server already dropped it, so closing must not unsubscribe (and cannot wait on this thread)
+            subscription = null;
+            current.disconnect();
+        }
+    }
+
+    /**
+     * Sends a request and waits for its response.
+     *
+     * @return the payload of the response
+     * @throws IOException if the connection fails
+     * @throws SQLException if the server reports an error
+     */
+    private DataInputStream call(byte operation, Protocol.Payload payload) throws IOException, SQLException {
+        payload.flush();
+
+        int requestId = nextRequestId.getAndIncrement();
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        pending.put(requestId, future);
+
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            ByteBuffer frame = Protocol.frame(operation, requestId, payload.toByteArray());
+            out.write(frame.array(), 0, frame.limit());
+            out.flush();
+        } catch (IOException e) {
+            pending.remove(requestId);
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+
+        Response response;
+        try {
+            response = future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            pending.remove(requestId);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the server", e);
+        }
+
+        DataInputStream result = new DataInputStream(new ByteArrayInputStream(response.body));
+        if (response.type == Protocol.ERROR) {
+            throw new SQLException(Protocol.readString(result));
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Bericht> sendBericht(Bericht bericht) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeBericht(payload, bericht);
+            return CompletableFuture.completedFuture(Protocol.readBericht(call(Protocol.SEND_BERICHT, payload)));
+        } catch (IOException | SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public List<Bericht> getPageBefore(Bericht cursor, int pageSize) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeBericht(payload, cursor);
+            payload.writeInt(pageSize);
+            return Protocol.readBerichten(call(Protocol.PAGE_BEFORE, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error retrieving messages from server: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<Bericht> search(String zoekterm, int limit) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeString(payload, zoekterm);
+            payload.writeInt(limit);
+            return Protocol.readBerichten(call(Protocol.SEARCH, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error searching messages on server: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Subscribes on the server; the connection has one subscription, subscribing again replaces it.
+     * Pushes for the previous sprint that are still on their way are dropped, not put in the new subscription.
+     * Returns a subscription that is already disconnected when the server cannot be reached.
+     */
+    @Override
+    public Subscription subscribe(int sprintNummer) {
+        Subscription nieuw = new Subscription(sprintNummer, SUBSCRIPTION_BUFFER_SIZE, Subscription.OverflowPolicy.DROP_OLDEST);
+        Subscription vorige = subscription;
+        subscription = nieuw;
+        if (vorige != null) {
+            vorige.close();
+        }
+
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            payload.writeInt(sprintNummer);
+            call(Protocol.SUBSCRIBE, payload);
+        } catch (IOException | SQLException e) {
+            System.out.println("Error subscribing to messages on server: " + e.getMessage());
+            subscription = null;
+            nieuw.disconnect();
+            return nieuw;
+        }
+
+        nieuw.onClose(() -> {
+            // Only unsubscribe on the server if no newer subscription replaced this one
+            if (subscription == nieuw) {
+                subscription = null;
+                if (!closed) {
+                    try {
+                        call(Protocol.UNSUBSCRIBE, new Protocol.Payload());
+                    } catch (IOException | SQLException e) {
+                        System.out.println("Error unsubscribing from messages on server: " + e.getMessage());
+                    }
+                }
+            }
+        });
+        return nieuw;
+    }
+
+    @Override
+    public List<Bericht> getBySprint(int sprintNummer) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            payload.writeInt(sprintNummer);
+            return Protocol.readBerichten(call(Protocol.BY_SPRINT, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error retrieving messages from server: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public Gebruiker lookupGebruiker(String gebruikersnaam) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeString(payload, gebruikersnaam);
+            return Protocol.readGebruiker(call(Protocol.LOOKUP_GEBRUIKER, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error retrieving user from server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void saveGebruiker(Gebruiker gebruiker) throws SQLException {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeGebruiker(payload, gebruiker);
+            call(Protocol.SAVE_GEBRUIKER, payload);
+        } catch (IOException e) {
+            throw new SQLException("Connection to server failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Sprint lookupSprint(int sprintNummer) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            payload.writeInt(sprintNummer);
+            return Protocol.readSprint(call(Protocol.LOOKUP_SPRINT, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error retrieving sprint from server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void saveSprint(Sprint sprint) throws SQLException {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeSprint(payload, sprint);
+            call(Protocol.SAVE_SPRINT, payload);
+        } catch (IOException e) {
+            throw new SQLException("Connection to server failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Trello lookupTrelloByBerichtID(int berichtID) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            payload.writeInt(berichtID);
+            return Protocol.readTrello(call(Protocol.LOOKUP_TRELLO, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error retrieving Trello board from server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Trello saveTrello(Trello trello) throws SQLException {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeTrello(payload, trello);
+            return Protocol.readTrello(call(Protocol.SAVE_TRELLO, payload));
+        } catch (IOException e) {
+            throw new SQLException("Connection to server failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Taak lookupTaak(int berichtID) {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            payload.writeInt(berichtID);
+            return Protocol.readTaak(call(Protocol.LOOKUP_TAAK, payload));
+        } catch (IOException | SQLException e) {
+            System.out.println("Error retrieving task from server: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void saveTaak(Taak taak) throws SQLException {
+        try {
+            Protocol.Payload payload = new Protocol.Payload();
+            Protocol.writeTaak(payload, taak);
+            call(Protocol.SAVE_TAAK, payload);
+        } catch (IOException e) {
+            throw new SQLException("Connection to server failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.out.println("Error closing connection to server: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package server;
+
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Decodes a request frame, runs the operation on the service and encodes the result.
+ */
+class RequestDispatcher {
+    private final TeamflowService service;
+
+    RequestDispatcher(TeamflowService service) {
+        this.service = service;
+    }
+
+    /**
+     * Runs one request.
+     *
+     * @param operation the operation from the frame, see {@link Protocol}
+     * @param payload the encoded arguments
+     * @return the encoded result
+     * @throws IOException if the arguments cannot be decoded or the operation is unknown
+     * @throws SQLException if saving fails
+     */
+    byte[] dispatch(byte operation, byte[] payload) throws IOException, SQLException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Protocol.Payload out = new Protocol.Payload();
+
+        switch (operation) {
+            case Protocol.SEND_BERICHT: {
+                Bericht bericht = Protocol.readBericht(in);
+                if (bericht == null) {
+                    throw new IllegalArgumentException("Bericht cannot be null");
+                }
+                // Wait for the group commit, sessions run on virtual threads so this does not hold up others
+                Protocol.writeBericht(out, join(service.sendBericht(bericht)));
+                break;
+            }
+            case Protocol.PAGE_BEFORE: {
+                Bericht cursor = Protocol.readBericht(in);
+                int pageSize = in.readInt();
+                Protocol.writeBerichten(out, service.getPageBefore(cursor, pageSize));
+                break;
+            }
+            case Protocol.SEARCH: {
+                String zoekterm = Protocol.readString(in);
+                int limit = in.readInt();
+                Protocol.writeBerichten(out, service.search(zoekterm, limit));
+                break;
+            }
+            case Protocol.BY_SPRINT:
+                Protocol.writeBerichten(out, service.getBySprint(in.readInt()));
+                break;
+            case Protocol.LOOKUP_GEBRUIKER:
+                Protocol.writeGebruiker(out, service.lookupGebruiker(Protocol.readString(in)));
+                break;
+            case Protocol.SAVE_GEBRUIKER:
+                service.saveGebruiker(required(Protocol.readGebruiker(in)));
+                break;
+            case Protocol.LOOKUP_SPRINT:
+                Protocol.writeSprint(out, service.lookupSprint(in.readInt()));
+                break;
+            case Protocol.SAVE_SPRINT:
+                service.saveSprint(required(Protocol.readSprint(in)));
+                break;
+            case Protocol.LOOKUP_TRELLO:
+                Protocol.writeTrello(out, service.lookupTrelloByBerichtID(in.readInt()));
+                break;
+            case Protocol.SAVE_TRELLO:
+                Protocol.writeTrello(out, service.saveTrello(required(Protocol.readTrello(in))));
+                break;
+            case Protocol.LOOKUP_TAAK:
+                Protocol.writeTaak(out, service.lookupTaak(in.readInt()));
+                break;
+            case Protocol.SAVE_TAAK:
+                service.saveTaak(required(Protocol.readTaak(in)));
+                break;
+            default:
+                throw new IOException("Unknown operation " + operation);
+        }
+
+        out.flush();
+        return out.toByteArray();
+    }
+
+    private static <T> T required(T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing object in request");
+        }
+        return value;
+    }
+
+    private static Bericht join(CompletableFuture<Bericht> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Saving message failed: " + cause.getMessage(), cause);
+        }
+    }
+}
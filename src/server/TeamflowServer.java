@@ -0,0 +1,346 @@
+package server;
+
+import database.live.Subscription;
+import database.model.Bericht;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teamflow server mode: one process owns the database and serves many console clients over TCP.
+ * A single selector thread does all socket I/O without blocking, requests run on virtual threads,
+ * so thousands of idle or waiting sessions cost no platform threads. Writes still go through
+ * the single writer connection, new messages are group-committed by the write queue.
+ * See {@link Protocol} for the wire format.
+ */
+public class TeamflowServer implements Closeable {
+    // A subscriber with this many pushes still to be written gets no new ones until it catches up,
+    // so its subscription buffer fills up and its overflow policy applies
+    private static final int MAX_PENDING_PUSHES = 64;
+    // How long a push waits for room before it checks whether the subscription was closed
+    private static final long PUSH_WAIT_MS = 1_000;
+
+    private final TeamflowService service;
+    private final RequestDispatcher dispatcher;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    // Connections with new outbound frames, picked up by the selector thread
+    private final Queue<ClientConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    // Statistics
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong pushCount = new AtomicLong();
+
+    /**
+     * Opens the server socket and starts serving.
+     *
+     * @param service runs the operations, normally a {@link LocalTeamflowService}
+     * @param port the TCP port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be opened
+     */
+    public TeamflowServer(TeamflowService service, int port) throws IOException {
+        this.service = service;
+        this.dispatcher = new RequestDispatcher(service);
+
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port), 1024);
+        this.serverChannel.configureBlocking(false);
+        this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        this.selectorThread = new Thread(this::run, "teamflow-server-selector");
+        this.selectorThread.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Blocks until the server is closed.
+     */
+    public void awaitTermination() throws InterruptedException {
+        selectorThread.join();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+
+                registerPendingWrites();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+
+                    ClientConnection connection = (ClientConnection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            if (!connection.read()) {
+                                disconnect(connection);
+                                continue;
+                            }
+                            connection.handleRequests(workers, request -> handle(connection, request));
+                        }
+
+                        if (key.isValid() && key.isWritable() && connection.write()) {
+                            // Everything is written, stop waiting for the channel to become writable
+                            key.interestOps(SelectionKey.OP_READ);
+                        }
+                    } catch (IOException e) {
+                        disconnect(connection);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.out.println("Server stopped unexpectedly: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new ClientConnection(channel, key, MAX_PENDING_PUSHES));
+
+        connectionCount.incrementAndGet();
+        acceptedCount.incrementAndGet();
+    }
+
+    private void disconnect(ClientConnection connection) {
+        if (!connection.isClosed()) {
+            connection.close();
+            connectionCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs one request on a worker thread and queues the response.
+     */
+    private void handle(ClientConnection connection, ClientConnection.Request request) {
+        requestCount.incrementAndGet();
+
+        byte type;
+        byte[] payload;
+        try {
+            payload = switch (request.operation) {
+                // These belong to the connection, not to the service
+                case Protocol.SUBSCRIBE -> subscribe(connection, request.payload);
+                case Protocol.UNSUBSCRIBE -> {
+                    connection.setSubscription(null);
+                    yield new byte[0];
+                }
+                default -> dispatcher.dispatch(request.operation, request.payload);
+            };
+            type = Protocol.OK;
+        } catch (IOException | SQLException | RuntimeException e) {
+            errorCount.incrementAndGet();
+            type = Protocol.ERROR;
+            payload = encodeError(e);
+        }
+
+        send(connection, Protocol.frame(type, request.requestId, payload));
+    }
+
+    private void send(ClientConnection connection, ByteBuffer frame) {
+        connection.send(frame);
+        requestWrite(connection);
+    }
+
+    // Has the selector thread write the queued frames of the connection
+    private void requestWrite(ClientConnection connection) {
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    /**
+     * Subscribes the connection to the new messages of a sprint, replacing its previous subscription,
+     * and starts pushing them to the client on a virtual thread.
+     */
+    private byte[] subscribe(ClientConnection connection, byte[] request) throws IOException {
+        int sprintNummer = new DataInputStream(new ByteArrayInputStream(request)).readInt();
+
+        Subscription subscription = service.subscribe(sprintNummer);
+        connection.setSubscription(subscription);
+        workers.execute(() -> push(connection, subscription));
+
+        return new byte[0];
+    }
+
+    private void push(ClientConnection connection, Subscription subscription) {
+        try {
+            Bericht bericht;
+            pushing:
+            while ((bericht = subscription.take()) != null) {
+                Protocol.Payload payload = new Protocol.Payload();
+                Protocol.writeBericht(payload, bericht);
+                payload.flush();
+                ByteBuffer frame = Protocol.frame(Protocol.PUSH_BERICHT, Protocol.PUSH_REQUEST_ID, payload.toByteArray());
+
+                // Wait for a slow client instead of queueing frames for it without limit
+                while (!connection.offerPush(frame, PUSH_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    if (subscription.isClosed() || connection.isClosed()) {
+                        break pushing;
+                    }
+                }
+                requestWrite(connection);
+                pushCount.incrementAndGet();
+            }
+
+            // The client fell too far behind, tell it to reload instead of silently missing messages
+            if (subscription.isDisconnected()) {
+                Protocol.Payload payload = new Protocol.Payload();
+                payload.writeInt(subscription.getSprintNummer());
+                payload.flush();
+                send(connection, Protocol.frame(Protocol.SUBSCRIPTION_CLOSED, Protocol.PUSH_REQUEST_ID, payload.toByteArray()));
+            }
+        } catch (IOException e) {
+            // Writing to memory does not fail
+        } catch (InterruptedException e) {
+            subscription.close();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] encodeError(Exception e) {
+        Protocol.Payload out = new Protocol.Payload();
+        try {
+            Protocol.writeString(out, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            out.flush();
+        } catch (IOException ignored) {
+            // Writing to memory does not fail
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Starts waiting for the channels of connections with new outbound frames to become writable.
+     * Only called on the selector thread.
+     */
+    private void registerPendingWrites() {
+        ClientConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            SelectionKey key = connection.getKey();
+            if (key.isValid() && connection.hasOutbound()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    // Statistics
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    public long getPushCount() {
+        return pushCount.get();
+    }
+
+    /**
+     * Stops accepting connections, disconnects every client and closes the service.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof ClientConnection) {
+                disconnect((ClientConnection) key.attachment());
+            }
+        }
+
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            System.out.println("Error closing server socket: " + e.getMessage());
+        }
+
+        // Let running requests finish before the database goes away
+        workers.shutdown();
+        try {
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        service.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TeamflowServer[port %d, %d connections (%d accepted), %d requests, %d errors, %d messages pushed]",
+                getPort(), getConnectionCount(), getAcceptedCount(), getRequestCount(), getErrorCount(), getPushCount());
+    }
+}
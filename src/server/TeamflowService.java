@@ -0,0 +1,86 @@
+package server;
+
+import database.live.Subscription;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The operations the console UI needs from Teamflow. {@link LocalTeamflowService} runs them
+ * against the database in this process, {@link RemoteTeamflowService} sends them to a {@link TeamflowServer}.
+ * Like the model classes, lookups return null or an empty list when something goes wrong,
+ * while saving reports errors with an exception.
+ */
+public interface TeamflowService {
+
+    /**
+     * Saves a new message. The future completes once the message is committed, with its berichtID set.
+     *
+     * @param bericht the message to send
+     * @return a future for the saved message
+     */
+    CompletableFuture<Bericht> sendBericht(Bericht bericht);
+
+    /**
+     * Returns one page of the chat history, newest first.
+     *
+     * @param cursor the last message of the previous page, or null for the newest page
+     * @param pageSize the maximum number of messages on the page
+     * @return the messages on the page
+     */
+    List<Bericht> getPageBefore(Bericht cursor, int pageSize);
+
+    /**
+     * Searches the messages.
+     *
+     * @param zoekterm the query as typed by the user
+     * @param limit the maximum number of results
+     * @return the matching messages
+     */
+    List<Bericht> search(String zoekterm, int limit);
+
+    /**
+     * Follows the new messages of a sprint as they are saved, by anyone.
+     *
+     * @param sprintNummer the sprint to follow
+     * @return the subscription the new messages arrive in, close it when done
+     */
+    Subscription subscribe(int sprintNummer);
+
+    /**
+     * @return all messages of the sprint
+     */
+    List<Bericht> getBySprint(int sprintNummer);
+
+    Gebruiker lookupGebruiker(String gebruikersnaam);
+
+    void saveGebruiker(Gebruiker gebruiker) throws SQLException;
+
+    Sprint lookupSprint(int sprintNummer);
+
+    void saveSprint(Sprint sprint) throws SQLException;
+
+    Trello lookupTrelloByBerichtID(int berichtID);
+
+    /**
+     * Saves a Trello board link.
+     *
+     * @return the saved board, with its trelloID set
+     */
+    Trello saveTrello(Trello trello) throws SQLException;
+
+    Taak lookupTaak(int berichtID);
+
+    void saveTaak(Taak taak) throws SQLException;
+
+    /**
+     * Releases what the service holds, e.g. the database connections or the connection to the server.
+     */
+    void close();
+}
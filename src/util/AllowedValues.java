@@ -0,0 +1,39 @@
+package util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A fixed set of accepted answers, e.g. the options of a menu. Looked up by hash instead of a scan,
+ * and the list for the error message is built once. Create it once and keep it in a constant.
+ */
+public final class AllowedValues {
+    private final Set<String> values;
+    private final String display;
+
+    private AllowedValues(String[] values) {
+        this.values = new HashSet<>(Arrays.asList(values));
+        this.display = String.join(", ", values);
+    }
+
+    /**
+     * @param values the accepted answers, in the order they are listed in the error message
+     */
+    public static AllowedValues of(String... values) {
+        return new AllowedValues(values);
+    }
+
+    public boolean contains(String value) {
+        return values.contains(value);
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return display;
+    }
+}
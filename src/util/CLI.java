@@ -1,128 +1,261 @@
 package util;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.Reader;
-import java.util.Arrays;
-import java.util.Scanner;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * Reads and validates the input of one console session. Every session has its own CLI,
+ * so many sessions can run next to each other, each on its own input and output.
+ */
 public class CLI {
-    private static Scanner scanner = new Scanner(System.in);
+    private final BufferedReader reader;
+    private final PrintStream out;
 
-    public enum SanitizationType
+    /**
+     * The built-in input formats. The checks walk the characters by hand instead of running a regex,
+     * so validating a line allocates nothing.
+     */
+    public enum SanitizationType implements InputValidator
     {
-        None,
-        Number,
-        PositiveNumber,
-        YesNo,
-        Alphabetic,
-        Alphanumeric,
-        AlphanumericWithSpaces
+        None("Fout: Invoer komt niet overeen met het vereiste formaat.") {
+            @Override
+            public boolean isValid(String input) {
+                return true;
+            }
+        },
+        Number("Fout: Invoer komt niet overeen met het vereiste formaat (alleen cijfers zijn toegestaan).") {
+            @Override
+            public boolean isValid(String input) {
+                return allMatch(input, CHAR_DIGIT);
+            }
+        },
+        // Also refuses numbers too large for an int, which the screens parse the input into
+        PositiveNumber("Fout: Invoer komt niet overeen met het vereiste formaat (alleen positieve getallen groter dan 0 zijn toegestaan).") {
+            @Override
+            public boolean isValid(String input) {
+                if (!allMatch(input, CHAR_DIGIT)) {
+                    return false;
+                }
+
+                long value = 0;
+                for (int i = 0; i < input.length(); i++) {
+                    value = value * 10 + (input.charAt(i) - '0');
+                    if (value > Integer.MAX_VALUE) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        },
+        YesNo("Fout: Invoer komt niet overeen met het vereiste formaat.") {
+            @Override
+            public boolean isValid(String input) {
+                return input.equals("J") || input.equals("N");
+            }
+
+            @Override
+            public String normalize(String input) {
+                return input.toUpperCase(); //Make sure to accept uncapitalized letters too
+            }
+        },
+        Alphabetic("Fout: Invoer komt niet overeen met het vereiste formaat (alleen letters zijn toegestaan).") {
+            @Override
+            public boolean isValid(String input) {
+                return allMatch(input, CHAR_LETTER);
+            }
+        },
+        Alphanumeric("Fout: Invoer komt niet overeen met het vereiste formaat (alleen letters en cijfers zijn toegestaan).") {
+            @Override
+            public boolean isValid(String input) {
+                return allMatch(input, CHAR_LETTER | CHAR_DIGIT);
+            }
+        },
+        AlphanumericWithSpaces("Fout: Invoer komt niet overeen met het vereiste formaat (alleen letters, cijfers en spaties zijn toegestaan).") {
+            @Override
+            public boolean isValid(String input) {
+                return allMatch(input, CHAR_LETTER | CHAR_DIGIT | CHAR_SPACE);
+            }
+        };
+
+        private final String errorMessage;
+
+        SanitizationType(String errorMessage) {
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+
+    // Character classes of the ASCII characters, the same as [0-9], [a-zA-Z] and \s in a regex
+    private static final byte CHAR_DIGIT = 1;
+    private static final byte CHAR_LETTER = 2;
+    private static final byte CHAR_SPACE = 4;
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            CHAR_CLASSES[c] = CHAR_DIGIT;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASSES[c] = CHAR_LETTER;
+            CHAR_CLASSES[c - 'a' + 'A'] = CHAR_LETTER;
+        }
+        for (char c : new char[]{' ', '\t', '\n', '\u000B', '\f', '\r'}) {
+            CHAR_CLASSES[c] = CHAR_SPACE;
+        }
+    }
+
+    /**
+     * @return true if the input is not empty and every character is in one of the classes
+     */
+    private static boolean allMatch(String input, int classes) {
+        int length = input.length();
+        if (length == 0) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c >= CHAR_CLASSES.length || (CHAR_CLASSES[c] & classes) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a CLI on the console of this process. The output is buffered rather than flushed on every line,
+     * it is flushed whenever the CLI waits for input.
+     */
+    public CLI() {
+        this(System.in, new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), false, StandardCharsets.UTF_8));
     }
 
     /**
-     * Reads a single key from the console and returns its ASCII code.
-     * @return The ASCII code of the pressed key, or -1 if an error occurs
+     * Creates a CLI on the given streams, e.g. those of a socket.
+     *
+     * @param in where the input is read from
+     * @param out where prompts and errors are printed to
      */
-    public static int readSingleKey() {
+    public CLI(InputStream in, PrintStream out) {
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    /**
+     * Reads one line of input.
+     *
+     * Flushes the output first, so the whole screen is visible.
+     *
+     * @return the line without the line terminator
+     * @throws SessionClosedException if the input has ended
+     */
+    public String readLine() {
+        out.flush();
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new SessionClosedException();
+            }
+            return line;
+        } catch (IOException e) {
+            throw new SessionClosedException(e);
+        }
+    }
+
+    /**
+     * Reads a single key and returns its ASCII code. Input is line buffered, so the rest of the line
+     * is skipped: the next read starts on a fresh line.
+     * @return The ASCII code of the pressed key, or 10 when only [ENTER] was pressed
+     * @throws SessionClosedException if the input has ended
+     */
+    public int readSingleKey() {
+        out.flush();
         try {
-            Reader reader = System.console().reader();
             int key = reader.read();
+            if (key < 0) {
+                throw new SessionClosedException();
+            }
+            if (key == '\r') {
+                key = '\n';
+            }
+            if (key != '\n') {
+                reader.readLine();
+            } else {
+                skipLineFeed();
+            }
             return key;
         } catch (IOException e) {
-            e.printStackTrace();
-            return -1;
-        } catch (NullPointerException e) {
-            // This happens if System.console() returns null (e.g., when running in some IDEs)
-            System.err.println("Console is not available in this environment");
-            e.printStackTrace();
-            return -1;
+            throw new SessionClosedException(e);
         }
     }
 
-    public static String acceptUserInput(String query, SanitizationType sanitizationType)
-    {
-        return acceptUserInput(query, sanitizationType, null);
+    // A \r\n line ending (e.g. from telnet) would otherwise leave an empty line behind
+    private void skipLineFeed() throws IOException {
+        if (reader.ready()) {
+            reader.mark(1);
+            if (reader.read() != '\n') {
+                reader.reset();
+            }
+        }
     }
 
-    public static String acceptUserInput(String query, SanitizationType sanitizationType, String[] validValues)
+    public String acceptUserInput(String query, InputValidator validator)
     {
-        System.out.print(query);
-        String response = scanner.nextLine();
+        return acceptUserInput(query, validator, (AllowedValues) null);
+    }
 
-        //check if input satisfies sanitization type
-        // if not, print error and restate query
-        //if yes return user input
+    /**
+     * Prefer {@link #acceptUserInput(String, InputValidator, AllowedValues)} with a constant set of values.
+     */
+    public String acceptUserInput(String query, InputValidator validator, String[] validValues)
+    {
+        return acceptUserInput(query, validator, validValues != null ? AllowedValues.of(validValues) : null);
+    }
 
-        boolean isValid = false;
+    /**
+     * Asks for input until it is one of the allowed values (if given) and passes the validator.
+     *
+     * @param query the prompt
+     * @param validator the format the input must have
+     * @param validValues the accepted answers, or null to accept anything valid
+     * @return the normalized input
+     */
+    public String acceptUserInput(String query, InputValidator validator, AllowedValues validValues)
+    {
+        out.print(query);
+        out.flush();
+        String response = readLine();
 
-        while (!isValid) {
+        while (true) {
             // First check if validValues is specified and if the response matches any value
-            if (validValues != null && validValues.length > 0) {
-                isValid = Arrays.asList(validValues).contains(response);
-                if (!isValid) {
-                    System.out.println("Fout: Invoer komt niet overeen met de toegestane waarden: " +
-                            String.join(", ", validValues));
-                    System.out.print(query);
-                    response = scanner.nextLine();
-                    continue;
-                }
-            }
-
-            // If validValues check passes or is not required, check sanitization type
-            switch (sanitizationType) {
-                case None:
-                    isValid = true;
-                    break;
-                case Number:
-                    isValid = response.matches("^\\d+$");
-                    break;
-                case PositiveNumber:
-                    isValid = response.matches("^\\d+$") && Integer.parseInt(response) >= 0;
-                    break;
-                case YesNo:
-                    response = response.toUpperCase(); //Make sure to accept uncapitalized letters too
-                    isValid = response.equals("J") || response.equals("N");
-                    break;
-                case Alphabetic:
-                    isValid = response.matches("^[a-zA-Z]+$");
-                    break;
-                case Alphanumeric:
-                    isValid = response.matches("^[a-zA-Z0-9]+$");
-                    break;
-                case AlphanumericWithSpaces:
-                    isValid = response.matches("^[a-zA-Z0-9\\s]+$");
-                    break;
-            }
-
-            if (isValid) {
-                return response;
+            if (validValues != null && !validValues.isEmpty() && !validValues.contains(response)) {
+                out.println("Fout: Invoer komt niet overeen met de toegestane waarden: " + validValues);
             } else {
-                // Provide more specific error messages in Dutch based on the sanitization type
-                switch (sanitizationType) {
-                    case Number:
-                        System.out.println("Fout: Invoer komt niet overeen met het vereiste formaat (alleen cijfers zijn toegestaan).");
-                        break;
-                    case PositiveNumber:
-                        System.out.println("Fout: Invoer komt niet overeen met het vereiste formaat (alleen positieve getallen groter dan 0 zijn toegestaan).");
-                        break;
-                    case Alphabetic:
-                        System.out.println("Fout: Invoer komt niet overeen met het vereiste formaat (alleen letters zijn toegestaan).");
-                        break;
-                    case Alphanumeric:
-                        System.out.println("Fout: Invoer komt niet overeen met het vereiste formaat (alleen letters en cijfers zijn toegestaan).");
-                        break;
-                    case AlphanumericWithSpaces:
-                        System.out.println("Fout: Invoer komt niet overeen met het vereiste formaat (alleen letters, cijfers en spaties zijn toegestaan).");
-                        break;
-                    default:
-                        System.out.println("Fout: Invoer komt niet overeen met het vereiste formaat.");
-                        break;
+                response = validator.normalize(response);
+                if (validator.isValid(response)) {
+                    return response;
                 }
-                System.out.print(query);
-                response = scanner.nextLine();
+                out.println(validator.getErrorMessage());
             }
-        }
 
-        return response; // This line should never be reached, but is needed for compilation
+            out.print(query);
+            out.flush();
+            response = readLine();
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,4 +1,318 @@
 package util;
 
-public class DateFormatter {
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Converts timestamps between the database, {@link LocalDateTime} and the screen, without going through
+ * {@link java.sql.Timestamp} or {@link java.time.format.DateTimeFormatter}. Thread-safe.
+ *
+ * The database holds a timestamp as epoch milliseconds of the local time in the default time zone,
+ * which is what the SQLite driver makes of a {@link java.sql.Timestamp}, so old and new rows read the same.
+ * Text ("yyyy-MM-dd HH:mm:ss.SSS", e.g. typed in by hand) and Julian day numbers are read as well.
+ */
+public final class DateFormatter {
+    // Length of "yyyy-MM-dd HH:mm"
+    public static final int DISPLAY_LENGTH = 16;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final ZoneRules RULES = ZONE.getRules();
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final double JULIAN_DAY_AT_EPOCH = 2440587.5;
+
+    // Formatted display strings by minute, direct-mapped: a minute only pushes out the minute with the same slot
+    private static final int DISPLAY_CACHE_SIZE = 4096;
+    private static final DisplayEntry[] DISPLAY_CACHE = new DisplayEntry[DISPLAY_CACHE_SIZE];
+
+    /**
+     * A minute and its display string. Immutable, so the cache needs no lock.
+     */
+    private static final class DisplayEntry {
+        final long minute;
+        final String text;
+
+        DisplayEntry(long minute, String text) {
+            this.minute = minute;
+            this.text = text;
+        }
+    }
+
+    /**
+     * The time between two offset changes of the time zone (e.g. summer time), so most conversions
+     * only compare against the bounds instead of asking the zone rules.
+     */
+    private static final class OffsetWindow {
+        final long startMillis;
+        final long endMillis;
+        final ZoneOffset offset;
+
+        OffsetWindow(long startMillis, long endMillis, ZoneOffset offset) {
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+            this.offset = offset;
+        }
+
+        boolean contains(long epochMillis) {
+            return epochMillis >= startMillis && epochMillis < endMillis;
+        }
+    }
+
+    private static volatile OffsetWindow window = windowAt(System.currentTimeMillis());
+
+    private DateFormatter() {
+    }
+
+    // Database
+
+    /**
+     * Reads a timestamp column, the replacement for {@code rs.getTimestamp(column).toLocalDateTime()}.
+     *
+     * @return the timestamp, or null if the column is NULL
+     * @throws SQLException if the column cannot be read or does not hold a timestamp
+     */
+    public static LocalDateTime getTimestamp(ResultSet rs, String column) throws SQLException {
+        return decode(rs.getObject(column), column);
+    }
+
+    /**
+     * Reads a timestamp column by position, for row mappers that know their column order.
+     *
+     * @return the timestamp, or null if the column is NULL
+     * @throws SQLException if the column cannot be read or does not hold a timestamp
+     */
+    public static LocalDateTime getTimestamp(ResultSet rs, int column) throws SQLException {
+        return decode(rs.getObject(column), column);
+    }
+
+    /**
+     * Reads a timestamp column by position as epoch milliseconds, for code that keeps times as a long.
+     * The usual rows hold the milliseconds already and are read without a LocalDateTime in between.
+     *
+     * @throws SQLException if the column cannot be read, is NULL or does not hold a timestamp
+     */
+    public static long getEpochMillis(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue();
+        }
+        // Older rows may hold text
+        LocalDateTime timestamp = decode(value, column);
+        if (timestamp == null) {
+            throw new SQLException("Missing timestamp in column " + column);
+        }
+        return toEpochMillis(timestamp);
+    }
+
+    /**
+     * Reads a date column by position, the replacement for {@code rs.getDate(column).toLocalDate()}.
+     * The driver stores a {@link java.sql.Date} as the epoch milliseconds of its local midnight, text is read as well.
+     *
+     * @return the date, or null if the column is NULL
+     * @throws SQLException if the column cannot be read or does not hold a date
+     */
+    public static LocalDate getDate(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof String text && text.length() == 10) {
+            // "yyyy-MM-dd", without a time
+            try {
+                return LocalDate.parse(text);
+            } catch (DateTimeParseException e) {
+                throw new SQLException("Invalid date in column " + column + ": " + value, e);
+            }
+        }
+
+        LocalDateTime timestamp = decode(value, column);
+        return timestamp == null ? null : timestamp.toLocalDate();
+    }
+
+    private static LocalDateTime decode(Object value, Object column) throws SQLException {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Long || value instanceof Integer) {
+            return fromEpochMillis(((Number) value).longValue());
+        }
+        if (value instanceof Double) {
+            // A Julian day number (SQLite's julianday()) has no time zone, it is the local time itself
+            long millis = Math.round(((Double) value - JULIAN_DAY_AT_EPOCH) * MILLIS_PER_DAY);
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+        }
+
+        try {
+            return parse(value.toString());
+        } catch (IllegalArgumentException e) {
+            throw new SQLException("Invalid timestamp in column " + column + ": " + value, e);
+        }
+    }
+
+    /**
+     * Binds a timestamp parameter, the replacement for {@code stmt.setTimestamp(index, Timestamp.valueOf(value))}.
+     */
+    public static void setTimestamp(PreparedStatement stmt, int index, LocalDateTime value) throws SQLException {
+        stmt.setLong(index, toEpochMillis(value));
+    }
+
+    /**
+     * @return the local time in the default time zone at the given instant
+     */
+    public static LocalDateTime fromEpochMillis(long epochMillis) {
+        OffsetWindow current = window;
+        if (!current.contains(epochMillis)) {
+            current = windowAt(epochMillis);
+            window = current;
+        }
+
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                Math.floorMod(epochMillis, 1000) * 1_000_000, current.offset);
+    }
+
+    /**
+     * @return the instant of the local time in the default time zone, in epoch milliseconds
+     */
+    public static long toEpochMillis(LocalDateTime value) {
+        OffsetWindow current = window;
+        long epochMillis = value.toEpochSecond(current.offset) * 1000 + value.getNano() / 1_000_000;
+        // A local time within a day of an offset change may fall in its gap or overlap
+        if (epochMillis - MILLIS_PER_DAY >= current.startMillis && epochMillis + MILLIS_PER_DAY < current.endMillis) {
+            return epochMillis;
+        }
+
+        // The later offset in an overlap, like java.sql.Timestamp
+        epochMillis = value.atZone(ZONE).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+        window = windowAt(epochMillis);
+        return epochMillis;
+    }
+
+    private static OffsetWindow windowAt(long epochMillis) {
+        Instant instant = Instant.ofEpochMilli(epochMillis);
+        ZoneOffsetTransition previous = RULES.previousTransition(instant.plusMillis(1));
+        ZoneOffsetTransition next = RULES.nextTransition(instant);
+
+        long start = previous != null ? previous.toEpochSecond() * 1000 : Long.MIN_VALUE;
+        long end = next != null ? next.toEpochSecond() * 1000 : Long.MAX_VALUE;
+        return new OffsetWindow(start, end, RULES.getOffset(instant));
+    }
+
+    // Text
+
+    /**
+     * Parses "yyyy-MM-dd", "yyyy-MM-dd HH:mm", "yyyy-MM-dd HH:mm:ss" or "yyyy-MM-dd HH:mm:ss.fraction",
+     * with a space or a 'T' between the date and the time.
+     *
+     * @throws IllegalArgumentException if the text is not a valid timestamp
+     */
+    public static LocalDateTime parse(CharSequence text) throws IllegalArgumentException {
+        int length = text.length();
+        if (length != 10 && length != 16 && length < 19) {
+            throw new IllegalArgumentException("Invalid timestamp " + text);
+        }
+
+        int year = digits(text, 0, 4);
+        expect(text, 4, '-');
+        int month = digits(text, 5, 2);
+        expect(text, 7, '-');
+        int day = digits(text, 8, 2);
+
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int nano = 0;
+        if (length > 10) {
+            char separator = text.charAt(10);
+            if (separator != ' ' && separator != 'T') {
+                throw new IllegalArgumentException("Invalid timestamp " + text);
+            }
+            hour = digits(text, 11, 2);
+            expect(text, 13, ':');
+            minute = digits(text, 14, 2);
+
+            if (length > 16) {
+                expect(text, 16, ':');
+                second = digits(text, 17, 2);
+
+                if (length > 19) {
+                    expect(text, 19, '.');
+                    int fractionDigits = length - 20;
+                    if (fractionDigits < 1 || fractionDigits > 9) {
+                        throw new IllegalArgumentException("Invalid timestamp " + text);
+                    }
+                    nano = digits(text, 20, fractionDigits);
+                    for (int i = fractionDigits; i < 9; i++) {
+                        nano *= 10;
+                    }
+                }
+            }
+        }
+
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid timestamp " + text, e);
+        }
+    }
+
+    private static int digits(CharSequence text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Invalid timestamp " + text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void expect(CharSequence text, int index, char expected) {
+        if (text.charAt(index) != expected) {
+            throw new IllegalArgumentException("Invalid timestamp " + text);
+        }
+    }
+
+    /**
+     * Formats a timestamp for the screen as "yyyy-MM-dd HH:mm". Messages of the same minute share the string.
+     */
+    public static String formatDisplay(LocalDateTime value) {
+        long minute = value.toLocalDate().toEpochDay() * 1440 + value.getHour() * 60 + value.getMinute();
+        int slot = (int) (minute & (DISPLAY_CACHE_SIZE - 1));
+
+        DisplayEntry entry = DISPLAY_CACHE[slot];
+        if (entry != null && entry.minute == minute) {
+            return entry.text;
+        }
+
+        char[] chars = new char[DISPLAY_LENGTH];
+        int i = 0;
+        i = putDigits(chars, i, value.getYear(), 4);
+        chars[i++] = '-';
+        i = putDigits(chars, i, value.getMonthValue(), 2);
+        chars[i++] = '-';
+        i = putDigits(chars, i, value.getDayOfMonth(), 2);
+        chars[i++] = ' ';
+        i = putDigits(chars, i, value.getHour(), 2);
+        chars[i++] = ':';
+        putDigits(chars, i, value.getMinute(), 2);
+
+        String text = new String(chars);
+        DISPLAY_CACHE[slot] = new DisplayEntry(minute, text);
+        return text;
+    }
+
+    private static int putDigits(char[] chars, int offset, int value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + count;
+    }
 }
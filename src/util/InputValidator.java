@@ -0,0 +1,49 @@
+package util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Checks one line of user input for {@link CLI#acceptUserInput(String, InputValidator, AllowedValues)}.
+ * Validators run on every line a session types or a script feeds in, so they should not allocate:
+ * {@link CLI.SanitizationType} checks characters by hand, {@link #matching(Pattern, String)} reuses a compiled pattern.
+ */
+public interface InputValidator {
+
+    /**
+     * @param input the normalized input
+     * @return true if the input is accepted
+     */
+    boolean isValid(String input);
+
+    /**
+     * @return the message shown when the input is not accepted
+     */
+    String getErrorMessage();
+
+    /**
+     * Rewrites the input before it is checked and returned, e.g. to upper case.
+     */
+    default String normalize(String input) {
+        return input;
+    }
+
+    /**
+     * A validator that accepts input matching a pattern. Compile the pattern once and keep the validator.
+     *
+     * @param pattern the pattern the whole input has to match
+     * @param errorMessage the message shown when the input does not match
+     */
+    static InputValidator matching(Pattern pattern, String errorMessage) {
+        return new InputValidator() {
+            @Override
+            public boolean isValid(String input) {
+                return pattern.matcher(input).matches();
+            }
+
+            @Override
+            public String getErrorMessage() {
+                return errorMessage;
+            }
+        };
+    }
+}
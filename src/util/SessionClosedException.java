@@ -0,0 +1,17 @@
+package util;
+
+/**
+ * Thrown when the input of a console session has ended, e.g. because the client hung up.
+ * Ends the session instead of leaving it waiting for input that never comes.
+ */
+public class SessionClosedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public SessionClosedException() {
+        super("The input of the session has ended");
+    }
+
+    public SessionClosedException(Throwable cause) {
+        super("The input of the session has ended", cause);
+    }
+}
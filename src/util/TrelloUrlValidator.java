@@ -1,4 +1,190 @@
 package util;
 
-public class TrelloUrlValidator {
+/**
+ * Checks and canonicalizes links to a Trello board or card, in a single pass over the characters without a regex.
+ *
+ * Accepted are "[http[s]://][www.]trello.com/b/shortId" and ".../c/shortId", optionally followed by
+ * a "/slug", a "?query" or a "#fragment". Scheme, host and type are case-insensitive, the short ID is not.
+ * The canonical form is "https://trello.com/b/shortId" (or /c/), so every way of writing the same link
+ * ends up as the same string, which is what {@link database.model.Trello} stores and deduplicates on.
+ */
+public final class TrelloUrlValidator implements InputValidator {
+    public static final TrelloUrlValidator INSTANCE = new TrelloUrlValidator();
+
+    public static final String CANONICAL_PREFIX = "https://trello.com/";
+    // Short links are 8 characters, the full object IDs 24
+    public static final int MAX_SHORT_ID_LENGTH = 24;
+
+    private static final String HOST = "trello.com";
+    private static final long INVALID = -1L;
+
+    private TrelloUrlValidator() {
+    }
+
+    @Override
+    public boolean isValid(String input) {
+        return input != null && scan(input) != INVALID;
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return "Fout: Invoer is geen geldige Trello URL (bijvoorbeeld https://trello.com/c/AbCd1234).";
+    }
+
+    /**
+     * Rewrites a valid link to its canonical form, anything else is returned as it is.
+     */
+    @Override
+    public String normalize(String input) {
+        String canonical = canonicalize(input);
+        return canonical != null ? canonical : input;
+    }
+
+    /**
+     * @return the canonical form of the link, or null if it is not a Trello board or card link
+     */
+    public static String canonicalize(CharSequence url) {
+        if (url == null) {
+            return null;
+        }
+
+        long result = scan(url);
+        if (result == INVALID) {
+            return null;
+        }
+
+        int start = idStart(result);
+        int end = idEnd(result);
+        // Already canonical, keep the string
+        if (url instanceof String s && start == CANONICAL_PREFIX.length() + 2 && end == s.length()
+                && s.startsWith(CANONICAL_PREFIX) && s.charAt(CANONICAL_PREFIX.length()) == type(result)) {
+            return s;
+        }
+
+        return new StringBuilder(CANONICAL_PREFIX.length() + 2 + end - start)
+                .append(CANONICAL_PREFIX).append(type(result)).append('/')
+                .append(url, start, end)
+                .toString();
+    }
+
+    /**
+     * @return the short ID of the board or card, or null if it is not a Trello link
+     */
+    public static String shortId(CharSequence url) {
+        if (url == null) {
+            return null;
+        }
+
+        long result = scan(url);
+        return result == INVALID ? null : url.subSequence(idStart(result), idEnd(result)).toString();
+    }
+
+    /**
+     * @return true if the link points to a card, false for a board or something that is not a Trello link
+     */
+    public static boolean isCard(CharSequence url) {
+        if (url == null) {
+            return false;
+        }
+
+        long result = scan(url);
+        return result != INVALID && type(result) == 'c';
+    }
+
+    /**
+     * Walks the link once. The result packs the type and the bounds of the short ID into a long,
+     * so checking a link allocates nothing.
+     *
+     * @return the packed result, or {@link #INVALID}
+     */
+    private static long scan(CharSequence url) {
+        int length = url.length();
+        int i = 0;
+
+        // Scheme
+        if (regionMatches(url, 0, "https://")) {
+            i = 8;
+        } else if (regionMatches(url, 0, "http://")) {
+            i = 7;
+        }
+
+        // Host
+        if (regionMatches(url, i, "www.")) {
+            i += 4;
+        }
+        if (!regionMatches(url, i, HOST)) {
+            return INVALID;
+        }
+        i += HOST.length();
+
+        // Type
+        if (i + 3 > length || url.charAt(i) != '/' || url.charAt(i + 2) != '/') {
+            return INVALID;
+        }
+        char type = Character.toLowerCase(url.charAt(i + 1));
+        if (type != 'b' && type != 'c') {
+            return INVALID;
+        }
+        i += 3;
+
+        // Short ID
+        int start = i;
+        while (i < length && isIdChar(url.charAt(i))) {
+            i++;
+        }
+        int end = i;
+        if (end == start || end - start > MAX_SHORT_ID_LENGTH) {
+            return INVALID;
+        }
+
+        // The rest (slug, query, fragment) is not part of the link, but may not hold whitespace
+        if (i < length) {
+            char next = url.charAt(i);
+            if (next != '/' && next != '?' && next != '#') {
+                return INVALID;
+            }
+            for (; i < length; i++) {
+                if (url.charAt(i) <= ' ') {
+                    return INVALID;
+                }
+            }
+        }
+
+        return (type == 'c' ? 1L << 62 : 0L) | ((long) start << 31) | end;
+    }
+
+    private static char type(long result) {
+        return (result & (1L << 62)) != 0 ? 'c' : 'b';
+    }
+
+    private static int idStart(long result) {
+        return (int) ((result >>> 31) & Integer.MAX_VALUE);
+    }
+
+    private static int idEnd(long result) {
+        return (int) (result & Integer.MAX_VALUE);
+    }
+
+    private static boolean isIdChar(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * Case-insensitive for ASCII, the expected text is lower case.
+     */
+    private static boolean regionMatches(CharSequence url, int offset, String expected) {
+        if (offset + expected.length() > url.length()) {
+            return false;
+        }
+        for (int j = 0; j < expected.length(); j++) {
+            char c = url.charAt(offset + j);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            if (c != expected.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
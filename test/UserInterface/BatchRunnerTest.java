@@ -0,0 +1,112 @@
+package UserInterface;
+
+import database.Database;
+import database.TestDatabase;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Trello;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import server.LocalTeamflowService;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchRunnerTest {
+    private static final LocalTeamflowService SERVICE = new LocalTeamflowService();
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        new Gebruiker("piet", "Piet Jansen").save();
+        new Sprint(1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)).save();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    /**
+     * @return the JSON lines the runner wrote, the summary last
+     */
+    private static List<String> run(String script) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BatchRunner(SERVICE, new PrintStream(bytes, true, StandardCharsets.UTF_8))
+                .run(new BufferedReader(new StringReader(script)));
+        return bytes.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    private static String summary(List<String> output) {
+        return output.get(output.size() - 1);
+    }
+
+    @Test
+    void trelloLinksToItsSendAcrossTheFlushOfAFullBatch() throws Exception {
+        // One pair more than the runner keeps in flight, so one send fills the batch and its trello line follows the flush
+        int pairs = 1025;
+        StringBuilder script = new StringBuilder("login piet 1\n");
+        for (int i = 0; i < pairs; i++) {
+            script.append("send bericht ").append(i).append('\n');
+            script.append("trello https://trello.com/c/batch").append(i).append('\n');
+        }
+
+        int boards = Trello.getAll().size();
+        List<String> output = run(script.toString());
+
+        assertTrue(summary(output).contains("\"sent\":" + pairs + ","), summary(output));
+        assertTrue(summary(output).contains("\"errors\":0,"), summary(output));
+        assertEquals(pairs, output.stream().filter(line -> line.startsWith("{\"command\":\"trello\"")).count());
+        assertEquals(boards + pairs, Trello.getAll().size());
+    }
+
+    @Test
+    void trelloAfterAReadLinksToTheLastSend() throws Exception {
+        List<String> output = run("""
+                login piet 1
+                send bericht voor de geschiedenis
+                history 1
+                trello https://trello.com/c/history1
+                """);
+
+        assertTrue(summary(output).contains("\"errors\":0,"), String.join("\n", output));
+        String send = output.get(1);
+        String trello = output.get(3);
+        String berichtID = send.substring(send.indexOf("\"berichtID\":"), send.lastIndexOf('}'));
+        assertTrue(trello.startsWith("{\"command\":\"trello\",\"line\":4,") && trello.contains(berichtID + ","), trello);
+    }
+
+    @Test
+    void trelloWithoutASendIsRefused() throws Exception {
+        List<String> output = run("""
+                login piet 1
+                trello https://trello.com/c/nosend1
+                """);
+
+        assertTrue(output.get(1).startsWith("{\"line\":2,\"status\":\"error\""), output.get(1));
+    }
+
+    @Test
+    void loginSavesANewUserWithTheWeergavenaam() throws Exception {
+        List<String> output = run("""
+                login anna 1 Anna de Vries
+                send hallo
+                """);
+
+        assertTrue(summary(output).contains("\"errors\":0,"), String.join("\n", output));
+        assertEquals("Anna de Vries", Gebruiker.lookup("anna").getWeergavenaam());
+
+        // An existing user keeps the name it has
+        run("login piet 1 Iemand Anders\n");
+        assertEquals("Piet Jansen", Gebruiker.lookup("piet").getWeergavenaam());
+    }
+}
@@ -0,0 +1,143 @@
+package database;
+
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BerichtWriteQueueTest {
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        new Gebruiker("piet", "Piet Jansen").save();
+        new Sprint(1, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 14)).save();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    private static Bericht bericht(String inhoud) {
+        return new Bericht(0, inhoud, LocalDateTime.of(2024, 3, 1, 9, 15), "piet", 1);
+    }
+
+    @Test
+    void shutdownCommitsEverythingThatWasAccepted() throws Exception {
+        BerichtWriteQueue queue = new BerichtWriteQueue(4, 2);
+        List<CompletableFuture<Bericht>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(queue.submit(bericht("bericht " + i)));
+        }
+
+        queue.shutdown();
+
+        for (CompletableFuture<Bericht> future : futures) {
+            assertTrue(future.isDone());
+            assertTrue(future.get().getBerichtID() > 0);
+        }
+        assertEquals(50, queue.getCommittedCount());
+        assertEquals(0, queue.getQueueDepth());
+    }
+
+    @Test
+    void submitAfterShutdownIsRefused() {
+        BerichtWriteQueue queue = new BerichtWriteQueue(4, 2);
+        queue.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> queue.submit(bericht("te laat")));
+        assertThrows(IllegalStateException.class, () -> queue.offer(bericht("te laat"), 1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shutdownCanBeCalledAgainAndFromSeveralThreads() throws Exception {
+        BerichtWriteQueue queue = new BerichtWriteQueue(2, 1);
+        CompletableFuture<Bericht> future = queue.submit(bericht("eenmaal"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> shutdowns = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                shutdowns.add(executor.submit(queue::shutdown));
+            }
+            for (Future<?> shutdown : shutdowns) {
+                shutdown.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every call returns after the flush, so the message is committed by now
+        assertTrue(future.isDone());
+        queue.shutdown();
+    }
+
+    @Test
+    void noFutureIsLeftOpenWhenShutdownRacesWithSubmitters() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                raceShutdown(executor, 8);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void raceShutdown(ExecutorService executor, int threads) throws Exception {
+        BerichtWriteQueue queue = new BerichtWriteQueue(2, 1);
+        CountDownLatch started = new CountDownLatch(threads);
+        List<Future<List<CompletableFuture<Bericht>>>> submitters = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            submitters.add(executor.submit(() -> {
+                List<CompletableFuture<Bericht>> accepted = new ArrayList<>();
+                started.countDown();
+                while (true) {
+                    try {
+                        accepted.add(queue.submit(bericht("race")));
+                    } catch (IllegalStateException e) {
+                        return accepted;
+                    }
+                }
+            }));
+        }
+
+        started.await();
+        queue.shutdown();
+
+        int accepted = 0;
+        for (Future<List<CompletableFuture<Bericht>>> submitter : submitters) {
+            // A submitter blocked on a full queue behind the stop marker would never return
+            for (CompletableFuture<Bericht> future : submitter.get(10, TimeUnit.SECONDS)) {
+                // Accepted before the stop marker, so committed; never left waiting
+                assertTrue(future.isDone());
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new AssertionError("Accepted message was not committed", e.getCause());
+                }
+                accepted++;
+            }
+        }
+        assertEquals(accepted, queue.getCommittedCount());
+    }
+}
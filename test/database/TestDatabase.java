@@ -0,0 +1,86 @@
+package database;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gives a test class its own database. {@link Database} reads its URL once per JVM and surefire
+ * starts a JVM per test class, so a test class calls {@link #create()} before it touches the model.
+ */
+public final class TestDatabase {
+    private TestDatabase() {
+    }
+
+    /**
+     * Creates a new SQLite file with the schema of database/db.sql and points {@link Database} at it.
+     *
+     * @return the database file, deleted when the JVM exits
+     * @throws IllegalStateException if the database of this JVM was already opened
+     */
+    public static synchronized Path create() throws IOException, SQLException {
+        if (System.getProperty("teamflow.db.url") != null) {
+            throw new IllegalStateException("The database of this JVM is already set to " + System.getProperty("teamflow.db.url"));
+        }
+
+        Path file = Files.createTempFile("teamflow-test", ".sqlite");
+        file.toFile().deleteOnExit();
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement stmt = conn.createStatement()) {
+            for (String sql : splitScript(Files.readString(Path.of("database/db.sql")))) {
+                stmt.execute(sql);
+            }
+        }
+
+        System.setProperty("teamflow.db.url", "jdbc:sqlite:" + file);
+        return file;
+    }
+
+    /**
+     * Runs a statement on the write connection of the pool, e.g. to set up rows the model has no method for.
+     */
+    public static void execute(String sql) throws SQLException {
+        Connection conn = Database.getInstance().getWriteConnection();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        } finally {
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+
+    // Splits on the semicolons that end a line, keeping trigger bodies (BEGIN ... END;) together
+    private static List<String> splitScript(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inTrigger = false;
+
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+
+            current.append(line).append('\n');
+
+            if (trimmed.toUpperCase().startsWith("CREATE TRIGGER")) {
+                inTrigger = true;
+            }
+
+            boolean endOfStatement = inTrigger ? trimmed.equalsIgnoreCase("END;") : trimmed.endsWith(";");
+            if (endOfStatement) {
+                statements.add(current.toString());
+                current.setLength(0);
+                inTrigger = false;
+            }
+        }
+
+        return statements;
+    }
+}
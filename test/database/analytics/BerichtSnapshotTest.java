@@ -0,0 +1,122 @@
+package database.analytics;
+
+import database.Database;
+import database.TestDatabase;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link BerichtSnapshot#rowsContaining(String)} searches the content of all messages as one region,
+ * it must find exactly the messages for which String.contains is true.
+ */
+class BerichtSnapshotTest {
+    private static final String[] WOORDEN = {"retro", "sprint", "trello.com/c/", "é", "café", "日本", "🚀", "a", "b", "ab", " ", "ee"};
+
+    private static List<Bericht> berichten;
+    private static BerichtSnapshot snapshot;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        new Gebruiker("piet", "Piet Jansen").save();
+        new Sprint(1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)).save();
+
+        // Many short messages of a few words, so needles often run across the end of a message
+        Random random = new Random(24);
+        List<Bericht> nieuw = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder inhoud = new StringBuilder();
+            int woorden = 1 + random.nextInt(4);
+            for (int w = 0; w < woorden; w++) {
+                inhoud.append(WOORDEN[random.nextInt(WOORDEN.length)]);
+            }
+            nieuw.add(new Bericht(0, inhoud.toString(), LocalDateTime.of(2024, 1, 2, 9, 0).plusMinutes(i), "piet", 1));
+        }
+        Bericht.saveAll(nieuw);
+
+        berichten = new ArrayList<>(nieuw);
+        berichten.sort(Comparator.comparingInt(Bericht::getBerichtID));
+        snapshot = BerichtSnapshot.load();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    private static void assertSameAsContains(String needle) {
+        List<Integer> expected = new ArrayList<>();
+        for (Bericht bericht : berichten) {
+            if (bericht.getInhoud().contains(needle)) {
+                expected.add(bericht.getBerichtID());
+            }
+        }
+
+        List<Integer> actual = new ArrayList<>();
+        for (int row : snapshot.rowsContaining(needle)) {
+            actual.add(snapshot.getBerichtID(row));
+        }
+        assertEquals(expected, actual, "needle '" + needle + "'");
+    }
+
+    @Test
+    void fixedNeedles() {
+        for (String needle : WOORDEN) {
+            assertSameAsContains(needle);
+        }
+        for (String needle : new String[] {"", "x", "Retro", "retroretro", "sprintsprintsprint", "café日本🚀", "c/é", "éé"}) {
+            assertSameAsContains(needle);
+        }
+    }
+
+    @Test
+    void pieceOfAMessage() {
+        Random random = new Random(1);
+        for (int k = 0; k < 300; k++) {
+            String inhoud = berichten.get(random.nextInt(berichten.size())).getInhoud();
+            int from = random.nextInt(inhoud.length());
+            int to = Math.min(inhoud.length(), from + 1 + random.nextInt(20));
+            // Keep surrogate pairs whole
+            if (Character.isLowSurrogate(inhoud.charAt(from))) {
+                from--;
+            }
+            if (to < inhoud.length() && Character.isLowSurrogate(inhoud.charAt(to))) {
+                to++;
+            }
+            assertSameAsContains(inhoud.substring(from, to));
+        }
+    }
+
+    @Test
+    void needleAcrossTwoMessages() {
+        Random random = new Random(2);
+        for (int k = 0; k < 300; k++) {
+            int i = random.nextInt(berichten.size() - 1);
+            String einde = berichten.get(i).getInhoud();
+            String begin = berichten.get(i + 1).getInhoud();
+            // The end of one message followed by the start of the next: in the region, but in no message
+            String needle = einde.substring(Math.max(0, einde.length() - 1 - random.nextInt(6)))
+                    + begin.substring(0, Math.min(begin.length(), 1 + random.nextInt(6)));
+            if (Character.isLowSurrogate(needle.charAt(0))) {
+                needle = needle.substring(1);
+            }
+            if (Character.isHighSurrogate(needle.charAt(needle.length() - 1))) {
+                needle = needle.substring(0, needle.length() - 1);
+            }
+            assertSameAsContains(needle);
+        }
+    }
+}
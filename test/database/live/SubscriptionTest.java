@@ -0,0 +1,92 @@
+package database.live;
+
+import database.model.Bericht;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionTest {
+    private static Bericht bericht(int berichtID) {
+        return new Bericht(berichtID, "bericht " + berichtID, LocalDateTime.of(2024, 1, 2, 9, 0), "piet", 1);
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestMessages() {
+        Subscription subscription = new Subscription(1, 3, Subscription.OverflowPolicy.DROP_OLDEST);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(subscription.offer(bericht(i)));
+        }
+
+        List<Bericht> berichten = new ArrayList<>();
+        assertEquals(3, subscription.drainTo(berichten, 10));
+        assertEquals(List.of(3, 4, 5), berichten.stream().map(Bericht::getBerichtID).toList());
+        assertEquals(2, subscription.getDropped());
+        assertFalse(subscription.isClosed());
+    }
+
+    @Test
+    void overflowDisconnects() {
+        Subscription subscription = new Subscription(1, 2, Subscription.OverflowPolicy.DISCONNECT);
+        assertTrue(subscription.offer(bericht(1)));
+        assertTrue(subscription.offer(bericht(2)));
+        assertFalse(subscription.offer(bericht(3)));
+
+        assertTrue(subscription.isDisconnected());
+        assertTrue(subscription.isClosed());
+        assertNull(subscription.poll());
+    }
+
+    @Test
+    void nothingIsDeliveredAfterClose() throws Exception {
+        Subscription subscription = new Subscription(1, 10, Subscription.OverflowPolicy.DROP_OLDEST);
+        subscription.offer(bericht(1));
+        subscription.offer(bericht(2));
+        subscription.close();
+
+        assertNull(subscription.take());
+        assertNull(subscription.poll());
+        assertNull(subscription.poll(1, TimeUnit.SECONDS));
+        assertEquals(0, subscription.drainTo(new ArrayList<>(), 10));
+        assertEquals(0, subscription.size());
+        assertFalse(subscription.offer(bericht(3)));
+    }
+
+    @Test
+    void closeWakesAWaitingTake() throws Exception {
+        Subscription subscription = new Subscription(1, 10, Subscription.OverflowPolicy.DROP_OLDEST);
+        CompletableFuture<Bericht> taken = new CompletableFuture<>();
+        Thread taker = Thread.ofVirtual().start(() -> {
+            try {
+                taken.complete(subscription.take());
+            } catch (InterruptedException e) {
+                taken.completeExceptionally(e);
+            }
+        });
+
+        while (taker.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        subscription.close();
+        assertNull(taken.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void onCloseRunsOnce() {
+        Subscription subscription = new Subscription(1, 10, Subscription.OverflowPolicy.DROP_OLDEST);
+        int[] calls = new int[1];
+        subscription.onClose(() -> calls[0]++);
+
+        subscription.close();
+        subscription.close();
+        assertEquals(1, calls[0]);
+    }
+}
@@ -0,0 +1,92 @@
+package database.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AfzenderDictionaryTest {
+    @Test
+    void codesAreStableAndRoundTrip() {
+        AfzenderDictionary dictionary = new AfzenderDictionary(100);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, dictionary.add("gebruiker" + i));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, dictionary.add("gebruiker" + i));
+            assertEquals(i, dictionary.code("gebruiker" + i));
+            assertEquals("gebruiker" + i, dictionary.name(i));
+        }
+        assertEquals(50, dictionary.size());
+        assertEquals(AfzenderDictionary.NONE, dictionary.add(null));
+        assertNull(dictionary.name(AfzenderDictionary.NONE));
+    }
+
+    @Test
+    void lookingUpNeverAdds() {
+        AfzenderDictionary dictionary = new AfzenderDictionary(100);
+        String naam = new String("piet");
+
+        assertEquals(AfzenderDictionary.NONE, dictionary.code(naam));
+        assertSame(naam, dictionary.canonical(naam));
+        assertEquals(0, dictionary.size());
+
+        String shared = dictionary.intern(naam);
+        assertSame(shared, dictionary.canonical(new String("piet")));
+        assertSame(shared, dictionary.intern(new String("piet")));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void fullDictionaryFallsBackToTheCallersString() {
+        AfzenderDictionary dictionary = new AfzenderDictionary(3);
+        dictionary.add("anna");
+        dictionary.add("joost");
+        dictionary.add("piet");
+
+        String nieuw = new String("kees");
+        assertEquals(AfzenderDictionary.NONE, dictionary.add(nieuw));
+        assertSame(nieuw, dictionary.intern(nieuw));
+        assertNotSame(nieuw, dictionary.intern(new String("kees")));
+        assertEquals(3, dictionary.size());
+
+        // Names that were already in it keep their code
+        assertEquals(1, dictionary.add("joost"));
+    }
+
+    @Test
+    void concurrentAddsHandOutOneCodePerName() throws Exception {
+        AfzenderDictionary dictionary = new AfzenderDictionary(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(() -> {
+                    int[] codes = new int[500];
+                    for (int i = 0; i < codes.length; i++) {
+                        codes[i] = dictionary.add("gebruiker" + i);
+                        assertEquals("gebruiker" + i, dictionary.name(codes[i]));
+                    }
+                    return codes;
+                }));
+            }
+
+            int[] first = results.get(0).get();
+            for (Future<int[]> result : results) {
+                assertArrayEquals(first, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(500, dictionary.size());
+    }
+}
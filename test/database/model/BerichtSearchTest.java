@@ -0,0 +1,113 @@
+package database.model;
+
+import database.Database;
+import database.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link Bericht#search(String, int)} understands the query syntax the search screen shows in its tip.
+ */
+class BerichtSearchTest {
+    private static Bericht retroAnna;
+    private static Bericht retroPiet;
+    private static Bericht planning;
+    private static Bericht zin;
+    private static Bericht omgedraaid;
+    private static Bericht frontEnd;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        new Gebruiker("anna", "Anna de Vries").save();
+        new Gebruiker("piet", "Piet Jansen").save();
+        new Sprint(1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)).save();
+        new Sprint(2, LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 28)).save();
+
+        retroAnna = save("De retro is om drie uur", "anna", 1);
+        retroPiet = save("Retrospective notities staan online", "piet", 2);
+        planning = save("Sprint planning morgen", "piet", 2);
+        zin = save("Dit is een exacte zin", "anna", 2);
+        omgedraaid = save("Een zin die niet exacte volgorde heeft", "anna", 1);
+        frontEnd = save("De front-end build is groen", "piet", 1);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    private static int minuut = 0;
+
+    private static Bericht save(String inhoud, String afzender, int sprint) throws Exception {
+        Bericht bericht = new Bericht(0, inhoud, LocalDateTime.of(2024, 1, 2, 9, 0).plusMinutes(minuut++), afzender, sprint);
+        bericht.save();
+        return bericht;
+    }
+
+    private static void assertFinds(String query, Bericht... expected) {
+        Set<Integer> expectedIds = new TreeSet<>();
+        for (Bericht bericht : expected) {
+            expectedIds.add(bericht.getBerichtID());
+        }
+        Set<Integer> actualIds = new TreeSet<>();
+        for (Bericht bericht : Bericht.search(query, 50)) {
+            actualIds.add(bericht.getBerichtID());
+        }
+        assertEquals(expectedIds, actualIds, query);
+    }
+
+    @Test
+    void wordsMustAllOccurAsWordOrPrefix() {
+        assertFinds("retro", retroAnna, retroPiet);
+        assertFinds("retro uur", retroAnna);
+        assertFinds("retro*", retroAnna, retroPiet);
+    }
+
+    @Test
+    void orCombinesGroups() {
+        assertFinds("planning OR notities", planning, retroPiet);
+        assertFinds("retro drie OF planning", retroAnna, planning);
+        // A lowercase or is just a word
+        assertFinds("retro or planning");
+    }
+
+    @Test
+    void quotedWordsAreAPhrase() {
+        assertFinds("\"exacte zin\"", zin);
+        assertFinds("exacte zin", zin, omgedraaid);
+        assertFinds("front-end", frontEnd);
+    }
+
+    @Test
+    void filtersRestrictTheMatches() {
+        assertFinds("retro sprint:2", retroPiet);
+        assertFinds("retro van:anna", retroAnna);
+        assertFinds("zin van:anna sprint:1", omgedraaid);
+        assertFinds("van:piet sprint:1", frontEnd);
+        assertFinds("sprint:2", retroPiet, planning, zin);
+    }
+
+    @Test
+    void onlyFiltersListTheNewestFirst() {
+        List<Bericht> berichten = Bericht.search("van:anna", 2);
+        assertEquals(List.of(omgedraaid.getBerichtID(), zin.getBerichtID()),
+                berichten.stream().map(Bericht::getBerichtID).toList());
+    }
+
+    @Test
+    void queryWithoutWordsOrFiltersFindsNothing() {
+        assertFinds("");
+        assertFinds("\"\" ***");
+        assertFinds(null);
+    }
+}
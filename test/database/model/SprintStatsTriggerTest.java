@@ -0,0 +1,160 @@
+package database.model;
+
+import database.Database;
+import database.TestDatabase;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The triggers that keep SPRINT_STATS up to date must end up where {@link Sprint#rebuildStats()},
+ * which computes everything again from BERICHT and TAAK, ends up: it must find nothing to correct.
+ */
+class SprintStatsTriggerTest {
+    private static final String[] AFZENDERS = {"anna", "joost", "piet"};
+    private static final int SPRINTS = 3;
+    private static final LocalDateTime BEGIN = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private static int trelloID;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        for (String afzender : AFZENDERS) {
+            new Gebruiker(afzender, afzender).save();
+        }
+        for (int sprint = 1; sprint <= SPRINTS; sprint++) {
+            new Sprint(sprint, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)).save();
+        }
+
+        Trello board = new Trello(0, "https://trello.com/c/stats1");
+        board.save();
+        trelloID = board.getTrelloID();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    private static void assertStatsMatch() throws Exception {
+        assertEquals(List.of(), Sprint.rebuildStats());
+    }
+
+    private static Bericht save(String inhoud, int minuten, String afzender, int sprint) throws Exception {
+        Bericht bericht = new Bericht(0, inhoud, BEGIN.plusMinutes(minuten), afzender, sprint);
+        bericht.save();
+        return bericht;
+    }
+
+    @Test
+    void firstAndLastMessageFollowUpdatesAndDeletes() throws Exception {
+        // Sprint 3 is left to this test
+        Bericht eerste = save("eerste", 10, "anna", 3);
+        Bericht midden = save("midden", 20, "joost", 3);
+        Bericht laatste = save("laatste", 30, "anna", 3);
+        new Taak(midden.getBerichtID(), trelloID, "Taak bij het middelste bericht").save();
+        assertStatsMatch();
+
+        SprintStats stats = Sprint.getStats(3);
+        assertEquals(3, stats.getBerichtCount());
+        assertEquals(2, stats.getAfzenderCount());
+        assertEquals(1, stats.getTaakCount());
+        assertEquals(BEGIN.plusMinutes(10), stats.getEersteTijdstip());
+        assertEquals(BEGIN.plusMinutes(30), stats.getLaatsteTijdstip());
+
+        // The first message moves past the last one
+        eerste.setTijdstip(BEGIN.plusMinutes(40));
+        eerste.save();
+        assertStatsMatch();
+        assertEquals(BEGIN.plusMinutes(20), Sprint.getStats(3).getEersteTijdstip());
+        assertEquals(BEGIN.plusMinutes(40), Sprint.getStats(3).getLaatsteTijdstip());
+
+        // The only message of joost, with its task, moves to another sprint
+        midden.setSprintNummer(2);
+        midden.save();
+        assertStatsMatch();
+        assertEquals(1, Sprint.getStats(3).getAfzenderCount());
+        assertEquals(0, Sprint.getStats(3).getTaakCount());
+
+        midden.setSprintNummer(3);
+        midden.setAfzender("piet");
+        midden.save();
+        assertStatsMatch();
+        assertEquals(2, Sprint.getStats(3).getAfzenderCount());
+        assertEquals(1, Sprint.getStats(3).getTaakCount());
+
+        assertTrue(new Taak(midden.getBerichtID(), trelloID, null).delete());
+        assertStatsMatch();
+        assertEquals(0, Sprint.getStats(3).getTaakCount());
+
+        assertTrue(eerste.delete());
+        assertTrue(laatste.delete());
+        assertStatsMatch();
+        assertEquals(BEGIN.plusMinutes(20), Sprint.getStats(3).getEersteTijdstip());
+        assertEquals(BEGIN.plusMinutes(20), Sprint.getStats(3).getLaatsteTijdstip());
+
+        // The last message of a sprint removes its row
+        assertTrue(midden.delete());
+        assertStatsMatch();
+        assertEquals(0, Sprint.getStats(3).getBerichtCount());
+    }
+
+    @Test
+    void randomInsertsUpdatesAndDeletes() throws Exception {
+        Random random = new Random(19);
+        List<Bericht> berichten = new ArrayList<>();
+        List<Integer> metTaak = new ArrayList<>();
+
+        for (int stap = 0; stap < 300; stap++) {
+            int kans = random.nextInt(10);
+            String afzender = AFZENDERS[random.nextInt(AFZENDERS.length)];
+            int sprint = 1 + random.nextInt(2);
+            // Few distinct times, so first and last messages are often shared
+            LocalDateTime tijdstip = BEGIN.plusMinutes(random.nextInt(20));
+
+            if (berichten.isEmpty() || kans < 4) {
+                Bericht bericht = new Bericht(0, "bericht " + stap, tijdstip, afzender, sprint);
+                bericht.save();
+                berichten.add(bericht);
+            } else if (kans < 5) {
+                List<Bericht> batch = new ArrayList<>();
+                for (int i = 0; i < 5; i++) {
+                    batch.add(new Bericht(0, "batch " + stap + "." + i, BEGIN.plusMinutes(random.nextInt(20)),
+                            AFZENDERS[random.nextInt(AFZENDERS.length)], 1 + random.nextInt(2)));
+                }
+                Bericht.saveAll(batch);
+                berichten.addAll(batch);
+            } else if (kans < 7) {
+                Bericht bericht = berichten.get(random.nextInt(berichten.size()));
+                switch (random.nextInt(3)) {
+                    case 0 -> bericht.setSprintNummer(sprint);
+                    case 1 -> bericht.setAfzender(afzender);
+                    default -> bericht.setTijdstip(tijdstip);
+                }
+                bericht.save();
+            } else if (kans < 8) {
+                Bericht bericht = berichten.remove(random.nextInt(berichten.size()));
+                assertTrue(bericht.delete());
+            } else if (kans < 9) {
+                Bericht bericht = berichten.get(random.nextInt(berichten.size()));
+                new Taak(bericht.getBerichtID(), trelloID, "taak " + stap).save();
+                metTaak.add(bericht.getBerichtID());
+            } else if (!metTaak.isEmpty()) {
+                int berichtID = metTaak.remove(random.nextInt(metTaak.size()));
+                new Taak(berichtID, trelloID, null).delete();
+            }
+
+            assertEquals(List.of(), Sprint.rebuildStats(), "after step " + stap);
+        }
+    }
+}
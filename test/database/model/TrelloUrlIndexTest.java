@@ -0,0 +1,48 @@
+package database.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrelloUrlIndexTest {
+    @Test
+    void findsTheBoardThatHasALink() throws SQLException {
+        TrelloUrlIndex index = new TrelloUrlIndex(() -> List.of(new Trello(5, 42, "https://trello.com/c/abc123")));
+
+        assertEquals(5, index.findOther("https://trello.com/c/abc123", 0));
+        assertEquals(0, index.findOther("https://trello.com/c/abc123", 5));
+        assertEquals(0, index.findOther("https://trello.com/c/def456", 0));
+
+        index.put(6, "https://trello.com/c/def456");
+        assertEquals(6, index.findOther("https://trello.com/c/def456", 0));
+        index.remove(6);
+        assertEquals(0, index.findOther("https://trello.com/c/def456", 0));
+    }
+
+    @Test
+    void failedLoadIsRetriedByTheNextCheck() throws SQLException {
+        AtomicInteger loads = new AtomicInteger();
+        TrelloUrlIndex index = new TrelloUrlIndex(() -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new SQLException("database is locked");
+            }
+            return List.of(new Trello(5, 42, "https://trello.com/c/abc123"));
+        });
+
+        // A failed load must not pass for an empty database
+        assertThrows(SQLException.class, () -> index.findOther("https://trello.com/c/abc123", 0));
+        assertEquals(0, index.size());
+
+        // A save in between is picked up by the load rather than making the index look loaded
+        index.put(6, "https://trello.com/c/def456");
+
+        assertEquals(5, index.findOther("https://trello.com/c/abc123", 0));
+        assertEquals(2, loads.get());
+        assertEquals(1, index.size());
+    }
+}
@@ -0,0 +1,147 @@
+package database.search;
+
+import database.Database;
+import database.QueryStats;
+import database.TestDatabase;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The first build of the index while messages are saved and deleted, in a JVM of its own
+ * because only the first build can run before the index is loaded.
+ */
+class BerichtIndexBuildTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        new Gebruiker("piet", "Piet Jansen").save();
+        new Sprint(1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)).save();
+
+        List<Bericht> berichten = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            berichten.add(new Bericht(0, "bestaand bericht " + i, START.plusSeconds(i), "piet", 1));
+        }
+        Bericht.saveAll(berichten);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    @Test
+    void changesDuringTheFirstBuildAreKept() throws Exception {
+        BerichtIndex index = BerichtIndex.getInstance();
+        QueryStats.getInstance().setSampleRate(1);
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch writing = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+
+        try {
+            Future<Integer> writer = executor.submit(() -> {
+                int saved = 0;
+                while (!stop.get()) {
+                    Bericht bericht = new Bericht(0, "nieuw bericht " + saved, START.plusDays(1).plusSeconds(saved), "piet", 1);
+                    bericht.save();
+                    saved++;
+                    if (saved % 3 == 0) {
+                        // Edit an older message and delete one, both possibly already read by the build
+                        Bericht oud = Bericht.lookup(saved * 7);
+                        oud.setInhoud("gewijzigd bericht " + saved);
+                        oud.save();
+                        Bericht.lookup(saved * 7 + 1).delete();
+                    }
+                    writing.countDown();
+                }
+                return saved;
+            });
+
+            writing.await();
+
+            // Several first searches at once share one build
+            List<Future<?>> builds = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                builds.add(executor.submit(index::ensureLoaded));
+            }
+            for (Future<?> build : builds) {
+                build.get(60, TimeUnit.SECONDS);
+            }
+
+            // The build reads the newest page once, a second build would only hide lost changes
+            assertEquals(1, executions("ORDER BY tijdstip DESC, berichtID DESC LIMIT"));
+
+            Thread.sleep(50);
+            stop.set(true);
+            assertTrue(writer.get(60, TimeUnit.SECONDS) > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(index.isLoaded());
+        Set<Integer> indexed = new TreeSet<>();
+        for (Bericht bericht : index.search("bericht", 0, null, Integer.MAX_VALUE)) {
+            indexed.add(bericht.getBerichtID());
+        }
+        assertEquals(databaseIds(), indexed);
+        assertEquals(index.search("gewijzigd", 0, null, Integer.MAX_VALUE).size(), countLike("gewijzigd%"));
+        assertEquals(index.search("nieuw", 0, null, Integer.MAX_VALUE).size(), countLike("nieuw%"));
+    }
+
+    private static long executions(String sqlPart) {
+        long executions = 0;
+        for (QueryStats.Shape shape : QueryStats.getInstance().getShapes()) {
+            if (shape.getSql().contains(sqlPart) && !shape.getSql().contains("WHERE")) {
+                executions += shape.getExecutions();
+            }
+        }
+        return executions;
+    }
+
+    private static Set<Integer> databaseIds() throws Exception {
+        Set<Integer> ids = new TreeSet<>();
+        Connection conn = Database.getInstance().getReadConnection();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT berichtID FROM BERICHT")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } finally {
+            Database.getInstance().releaseConnection(conn);
+        }
+        return ids;
+    }
+
+    private static int countLike(String pattern) throws Exception {
+        Connection conn = Database.getInstance().getReadConnection();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM BERICHT WHERE inhoud LIKE '" + pattern + "'")) {
+            return rs.getInt(1);
+        } finally {
+            Database.getInstance().releaseConnection(conn);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package database.search;
+
+import database.Database;
+import database.TestDatabase;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Answers the in-memory index gives against the same query run as FTS5 MATCH on BERICHT_FTS.
+ */
+class BerichtIndexTest {
+    private static final String[] USERS = {"piet", "anna", "joost"};
+    private static final String[] WORDS = {
+            "retro", "planning", "plannen", "demo", "stand", "up", "review", "backlog",
+            "front-end", "database", "data", "café", "cafe", "de", "het", "een", "sprint", "taak"
+    };
+    private static final String[] SEPARATORS = {" ", " ", " ", ", ", ". ", "! ", " - "};
+
+    private static final int MESSAGES = 600;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        for (String user : USERS) {
+            new Gebruiker(user, "Gebruiker " + user).save();
+        }
+        for (int sprint = 1; sprint <= 3; sprint++) {
+            LocalDate begin = LocalDate.of(2024, 1, 1).plusWeeks(2L * (sprint - 1));
+            new Sprint(sprint, begin, begin.plusDays(13)).save();
+        }
+
+        Random random = new Random(42);
+        List<Bericht> berichten = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            StringBuilder inhoud = new StringBuilder();
+            int words = 3 + random.nextInt(6);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    inhoud.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+                }
+                String word = WORDS[random.nextInt(WORDS.length)];
+                inhoud.append(random.nextInt(5) == 0 ? word.toUpperCase() : word);
+            }
+            berichten.add(new Bericht(0, inhoud.toString(), LocalDateTime.of(2024, 1, 1, 9, 0).plusMinutes(i),
+                    USERS[random.nextInt(USERS.length)], 1 + random.nextInt(3)));
+        }
+        Bericht.saveAll(berichten);
+
+        BerichtIndex.getInstance().ensureLoaded();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        Database.getInstance().closeConnection();
+    }
+
+    @Test
+    void indexHoldsEveryMessage() throws Exception {
+        assertTrue(BerichtIndex.getInstance().isLoaded());
+        assertEquals(ftsIds(null, 0, null).size(), BerichtIndex.getInstance().size());
+    }
+
+    @Test
+    void wordsMustAllOccur() throws Exception {
+        assertSameAsFts("retro planning", "retro AND planning", 0, null);
+        assertSameAsFts("DEMO review backlog", "demo AND review AND backlog", 0, null);
+    }
+
+    @Test
+    void orCombinesGroups() throws Exception {
+        assertSameAsFts("retro OR demo", "retro OR demo", 0, null);
+        assertSameAsFts("retro planning OF demo review", "(retro AND planning) OR (demo AND review)", 0, null);
+    }
+
+    @Test
+    void quotedWordsAreAPhrase() throws Exception {
+        assertSameAsFts("\"stand up\"", "\"stand up\"", 0, null);
+        assertSameAsFts("\"de retro\" OR \"het backlog\"", "\"de retro\" OR \"het backlog\"", 0, null);
+        // Punctuation inside a word makes a phrase of its parts
+        assertSameAsFts("front-end", "\"front end\"", 0, null);
+    }
+
+    @Test
+    void starMatchesPrefix() throws Exception {
+        assertSameAsFts("plan*", "plan*", 0, null);
+        assertSameAsFts("data* retro", "data* AND retro", 0, null);
+        assertSameAsFts("retro plan* OR \"stand up\" review", "(retro AND plan*) OR (\"stand up\" AND review)", 0, null);
+    }
+
+    @Test
+    void accentsAndCaseAreIgnored() throws Exception {
+        assertSameAsFts("cafe", "cafe", 0, null);
+        assertSameAsFts("CAFÉ", "cafe", 0, null);
+    }
+
+    @Test
+    void filtersInQueryAndParameters() throws Exception {
+        assertSameAsFts("retro sprint:2", "retro", 2, null);
+        assertSameAsFts("van:anna demo OR review", "demo OR review", 0, "anna");
+        assertSameAsFts("sprint:3", null, 3, null);
+        assertSameAsFts("van:joost sprint:1", null, 1, "joost");
+
+        Set<Integer> parameters = ids(BerichtIndex.getInstance().search("taak", 2, "piet", Integer.MAX_VALUE));
+        assertEquals(ftsIds("taak", 2, "piet"), parameters);
+    }
+
+    @Test
+    void resultsAreNewestFirstUpToLimit() {
+        List<Bericht> berichten = BerichtIndex.getInstance().search("retro OR demo", 0, null, 10);
+        assertEquals(10, berichten.size());
+        for (int i = 1; i < berichten.size(); i++) {
+            assertTrue(berichten.get(i - 1).getBerichtID() > berichten.get(i).getBerichtID());
+        }
+    }
+
+    @Test
+    void savesAndDeletesKeepTheIndexInSync() throws Exception {
+        Bericht nieuw = new Bericht(0, "Zebra overleg na de retro", LocalDateTime.of(2024, 2, 1, 10, 0), "anna", 3);
+        nieuw.save();
+        assertSameAsFts("zebra", "zebra", 0, null);
+        assertEquals(1, BerichtIndex.getInstance().search("zebra retro", 0, null, 10).size());
+
+        nieuw.setInhoud("Giraf overleg");
+        nieuw.save();
+        assertSameAsFts("zebra", "zebra", 0, null);
+        assertSameAsFts("giraf", "giraf", 0, null);
+
+        Bericht oud = Bericht.lookup(1);
+        assertTrue(oud.delete());
+        assertFalse(ids(BerichtIndex.getInstance().search("sprint:" + oud.getSprintNummer(), 0, null, Integer.MAX_VALUE)).contains(1));
+        assertSameAsFts("retro OR demo OR review", "retro OR demo OR review", 0, null);
+
+        assertTrue(nieuw.delete());
+        assertSameAsFts("giraf", "giraf", 0, null);
+    }
+
+    private static void assertSameAsFts(String query, String match, int sprintNummer, String afzender) throws Exception {
+        Set<Integer> expected = ftsIds(match, sprintNummer, afzender);
+        Set<Integer> actual = ids(BerichtIndex.getInstance().search(query, 0, null, Integer.MAX_VALUE));
+        assertEquals(expected, actual, query);
+    }
+
+    private static Set<Integer> ids(List<Bericht> berichten) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Bericht bericht : berichten) {
+            ids.add(bericht.getBerichtID());
+        }
+        return ids;
+    }
+
+    /**
+     * The berichtIDs FTS5 finds for a match expression, null for no text, filtered like the index filters.
+     */
+    private static Set<Integer> ftsIds(String match, int sprintNummer, String afzender) throws Exception {
+        String sql = match == null
+                ? "SELECT berichtID FROM BERICHT b WHERE 1 = 1"
+                : "SELECT b.berichtID FROM BERICHT_FTS f JOIN BERICHT b ON b.berichtID = f.rowid WHERE BERICHT_FTS MATCH ?";
+        if (sprintNummer > 0) {
+            sql += " AND b.sprintNummer = " + sprintNummer;
+        }
+        if (afzender != null) {
+            sql += " AND b.afzender = '" + afzender + "'";
+        }
+
+        Set<Integer> ids = new TreeSet<>();
+        Connection conn = Database.getInstance().getReadConnection();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (match != null) {
+                stmt.setString(1, match);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } finally {
+            Database.getInstance().releaseConnection(conn);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,132 @@
+package server;
+
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import database.model.Taak;
+import database.model.Trello;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProtocolTest {
+    private interface Writer<T> {
+        void write(DataOutput out, T value) throws IOException;
+    }
+
+    private interface Reader<T> {
+        T read(DataInput in) throws IOException;
+    }
+
+    // Writes the value, reads it back and checks that every byte was read
+    private static <T> T roundTrip(T value, Writer<T> writer, Reader<T> reader) throws IOException {
+        Protocol.Payload payload = new Protocol.Payload();
+        writer.write(payload, value);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.toByteArray()));
+        T read = reader.read(in);
+        assertEquals(0, in.available());
+        return read;
+    }
+
+    private static void assertBericht(Bericht expected, Bericht actual) {
+        assertEquals(expected.getBerichtID(), actual.getBerichtID());
+        assertEquals(expected.getInhoud(), actual.getInhoud());
+        assertEquals(expected.getTijdstip(), actual.getTijdstip());
+        assertEquals(expected.getAfzender(), actual.getAfzender());
+        assertEquals(expected.getSprintNummer(), actual.getSprintNummer());
+    }
+
+    @Test
+    void stringsRoundTrip() throws IOException {
+        for (String value : new String[] {"", "Goedemorgen", "één café, 日本 🚀", null}) {
+            assertEquals(value, roundTrip(value, Protocol::writeString, Protocol::readString));
+        }
+    }
+
+    @Test
+    void timestampsAndDatesRoundTrip() throws IOException {
+        for (LocalDateTime value : new LocalDateTime[] {
+                LocalDateTime.of(2024, 1, 2, 9, 0, 0, 123_000_000),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000),
+                null}) {
+            assertEquals(value, roundTrip(value, Protocol::writeTimestamp, Protocol::readTimestamp));
+        }
+        for (LocalDate value : new LocalDate[] {LocalDate.of(2024, 2, 29), LocalDate.of(1900, 1, 1), null}) {
+            assertEquals(value, roundTrip(value, Protocol::writeDate, Protocol::readDate));
+        }
+    }
+
+    @Test
+    void berichtenRoundTrip() throws IOException {
+        Bericht bericht = new Bericht(42, "Stand-up om 9 uur", LocalDateTime.of(2024, 1, 2, 9, 0), "piet", 3);
+        assertBericht(bericht, roundTrip(bericht, Protocol::writeBericht, Protocol::readBericht));
+
+        Bericht leeg = new Bericht(7, null, null, null, 1);
+        assertBericht(leeg, roundTrip(leeg, Protocol::writeBericht, Protocol::readBericht));
+
+        assertNull(roundTrip(null, Protocol::writeBericht, Protocol::readBericht));
+
+        List<Bericht> berichten = Arrays.asList(bericht, null, leeg);
+        List<Bericht> read = roundTrip(berichten, Protocol::writeBerichten, Protocol::readBerichten);
+        assertEquals(3, read.size());
+        assertBericht(bericht, read.get(0));
+        assertNull(read.get(1));
+        assertBericht(leeg, read.get(2));
+
+        assertEquals(List.of(), roundTrip(List.of(), Protocol::writeBerichten, Protocol::readBerichten));
+    }
+
+    @Test
+    void gebruikersRoundTrip() throws IOException {
+        for (Gebruiker gebruiker : new Gebruiker[] {new Gebruiker("piet", "Piet Jansen"), new Gebruiker("anna", null)}) {
+            Gebruiker read = roundTrip(gebruiker, Protocol::writeGebruiker, Protocol::readGebruiker);
+            assertEquals(gebruiker.getGebruikersnaam(), read.getGebruikersnaam());
+            assertEquals(gebruiker.getWeergavenaam(), read.getWeergavenaam());
+        }
+        assertNull(roundTrip(null, Protocol::writeGebruiker, Protocol::readGebruiker));
+    }
+
+    @Test
+    void sprintsRoundTrip() throws IOException {
+        for (Sprint sprint : new Sprint[] {
+                new Sprint(1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)),
+                new Sprint(2, LocalDate.of(2024, 1, 15), null),
+                new Sprint(3, null, null)}) {
+            Sprint read = roundTrip(sprint, Protocol::writeSprint, Protocol::readSprint);
+            assertEquals(sprint.getSprintNummer(), read.getSprintNummer());
+            assertEquals(sprint.getBeginDatum(), read.getBeginDatum());
+            assertEquals(sprint.getEindDatum(), read.getEindDatum());
+        }
+        assertNull(roundTrip(null, Protocol::writeSprint, Protocol::readSprint));
+    }
+
+    @Test
+    void trellosAndTakenRoundTrip() throws IOException {
+        for (Trello trello : new Trello[] {new Trello(5, 42, "https://trello.com/c/abc123"), new Trello(6, 0, null)}) {
+            Trello read = roundTrip(trello, Protocol::writeTrello, Protocol::readTrello);
+            assertEquals(trello.getTrelloID(), read.getTrelloID());
+            assertEquals(trello.getBerichtID(), read.getBerichtID());
+            assertEquals(trello.getTrelloURL(), read.getTrelloURL());
+        }
+        assertNull(roundTrip(null, Protocol::writeTrello, Protocol::readTrello));
+
+        for (Taak taak : new Taak[] {new Taak(42, 5, "Login pagina bouwen"), new Taak(43, 6, null)}) {
+            Taak read = roundTrip(taak, Protocol::writeTaak, Protocol::readTaak);
+            assertEquals(taak.getBerichtID(), read.getBerichtID());
+            assertEquals(taak.getTrelloID(), read.getTrelloID());
+            assertEquals(taak.getBeschrijving(), read.getBeschrijving());
+        }
+        assertNull(roundTrip(null, Protocol::writeTaak, Protocol::readTaak));
+    }
+}
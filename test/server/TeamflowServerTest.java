@@ -0,0 +1,95 @@
+package server;
+
+import database.Database;
+import database.TestDatabase;
+import database.live.Subscription;
+import database.model.Bericht;
+import database.model.Gebruiker;
+import database.model.Sprint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * A thin client against a server in the same JVM.
+ */
+class TeamflowServerTest {
+    private static LocalTeamflowService local;
+    private static TeamflowServer server;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        TestDatabase.create();
+        new Gebruiker("piet", "Piet Jansen").save();
+        for (int sprint = 1; sprint <= 2; sprint++) {
+            new Sprint(sprint, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 14)).save();
+        }
+
+        local = new LocalTeamflowService();
+        server = new TeamflowServer(local, 0);
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        server.close();
+        Database.getInstance().closeConnection();
+    }
+
+    private static Bericht bericht(String inhoud, int sprint) {
+        return new Bericht(0, inhoud, LocalDateTime.of(2024, 1, 2, 9, 0), "piet", sprint);
+    }
+
+    @Test
+    void sentMessagesArePushedToTheSubscriber() throws Exception {
+        RemoteTeamflowService client = new RemoteTeamflowService("localhost", server.getPort());
+        try (Subscription subscription = client.subscribe(1)) {
+            Bericht sent = client.sendBericht(bericht("Goedemorgen", 1)).get(10, TimeUnit.SECONDS);
+
+            Bericht pushed = subscription.poll(10, TimeUnit.SECONDS);
+            assertNotNull(pushed);
+            assertEquals(sent.getBerichtID(), pushed.getBerichtID());
+            assertEquals("Goedemorgen", pushed.getInhoud());
+            assertEquals(sent.getTijdstip(), pushed.getTijdstip());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    void resubscribingDropsPushesOfThePreviousSprint() throws Exception {
+        RemoteTeamflowService client = new RemoteTeamflowService("localhost", server.getPort());
+        try {
+            client.subscribe(1);
+
+            // Pushes for sprint 1 are still on their way while the client switches to sprint 2
+            List<CompletableFuture<Bericht>> sent = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                sent.add(local.sendBericht(bericht("sprint 1 bericht " + i, 1)));
+            }
+
+            try (Subscription subscription = client.subscribe(2)) {
+                sent.get(sent.size() - 1).get(10, TimeUnit.SECONDS);
+                Bericht last = client.sendBericht(bericht("sprint 2 bericht", 2)).get(10, TimeUnit.SECONDS);
+
+                Bericht pushed;
+                do {
+                    pushed = subscription.poll(10, TimeUnit.SECONDS);
+                    assertNotNull(pushed);
+                    assertEquals(2, pushed.getSprintNummer(), pushed.getInhoud());
+                } while (pushed.getBerichtID() != last.getBerichtID());
+            }
+        } finally {
+            client.close();
+        }
+    }
+}